@@ -0,0 +1,83 @@
+package engine;
+
+import index.VertexStore;
+import mapObject.Segment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures scaling of {@link CrossingSearch} with number of threads. Cells of the grid are generated: every cell has
+ * given number of random segments of layer 0 or 1, up to 0.0005 degree long in each coordinate, inside 0.01 x 0.01 degree square,
+ * as cells of the map are.
+ * The same cells are searched with 1, 2, ... given number of threads, every number of threads given number of rounds.
+ * Crossings found with every number of threads must be the same as found with one thread.
+ * <p>
+ * Usage: java -cp [classes] engine.CrossingSearchBench [cells] [segments_per_cell] [max_threads] [rounds] [b/s]
+ * Default: 1024 cells, 400 segments per cell, all available processors, 5 rounds, sweep engine.
+ */
+public class CrossingSearchBench {
+
+    private static final double CELL_SIZE = 0.01D;
+    private static final double MAX_SEGMENT_SIZE = 0.0005D;      // About 50 m, as segments of OSM roads in towns are.
+
+    public static void main(String[] args) {
+        int numberOfCells = (args.length > 0) ? Integer.parseInt(args[0]) : 1024;
+        int segmentsPerCell = (args.length > 1) ? Integer.parseInt(args[1]) : 400;
+        int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int rounds = (args.length > 3) ? Integer.parseInt(args[3]) : 5;
+        CrossingEngine engine = (args.length > 4 && args[4].equals("b")) ? new BruteForceEngine() : new SweepEngine();
+        List<List<Segment>> cells = createCells(numberOfCells, segmentsPerCell, new Random(1));
+        System.out.println(String.format(Locale.ROOT, "%d cells, %d segments per cell, %s, %d available processors, %d rounds",
+                numberOfCells, segmentsPerCell, engine.getClass().getSimpleName(), Runtime.getRuntime().availableProcessors(), rounds));
+        System.out.println("threads,best_ms,speedup,crossings");
+        for(int round=0; round<3; round++) {
+            new CrossingSearch(1, engine).search(cells);            // Warm-up.
+        }
+        long expected = -1;
+        double single = 0D;
+        for(int threads=1; threads<=maxThreads; threads++) {
+            CrossingSearch search = new CrossingSearch(threads, engine);
+            double best = Double.POSITIVE_INFINITY;
+            long crossings = 0;
+            for(int round=0; round<rounds; round++) {
+                long start = System.nanoTime();
+                List<List<Crossing>> results = search.search(cells);
+                best = Math.min(best, (System.nanoTime() - start) / 1e6);
+                crossings = 0;
+                for(List<Crossing> cellCrossings : results) {
+                    crossings += cellCrossings.size();
+                }
+            }
+            if(threads == 1) {
+                expected = crossings;
+                single = best;
+            } else if(crossings != expected) {
+                throw new IllegalStateException(String.format("%d threads found %d crossings, one thread found %d.", threads, crossings, expected));
+            }
+            System.out.println(String.format(Locale.ROOT, "%d,%.1f,%.2f,%d", threads, best, single / best, crossings));
+        }
+    }
+
+    private static List<List<Segment>> createCells(int numberOfCells, int segmentsPerCell, Random random) {
+        VertexStore vertices = new VertexStore();
+        int side = (int) Math.ceil(Math.sqrt(numberOfCells));
+        List<List<Segment>> cells = new ArrayList<>(numberOfCells);
+        for(int cell=0; cell<numberOfCells; cell++) {
+            double minLatitude = 54D + (cell / side) * CELL_SIZE;
+            double minLongitude = 21D + (cell % side) * CELL_SIZE;
+            List<Segment> segments = new ArrayList<>(segmentsPerCell);
+            for(int i=0; i<segmentsPerCell; i++) {
+                double latitude = minLatitude + MAX_SEGMENT_SIZE + random.nextDouble() * (CELL_SIZE - 2 * MAX_SEGMENT_SIZE);
+                double longitude = minLongitude + MAX_SEGMENT_SIZE + random.nextDouble() * (CELL_SIZE - 2 * MAX_SEGMENT_SIZE);
+                int start = vertices.firstOrNew(latitude, longitude);
+                int end = vertices.firstOrNew(latitude + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_SIZE, longitude + (random.nextDouble() * 2 - 1) * MAX_SEGMENT_SIZE);
+                segments.add(new Segment(vertices, start, end, false, random.nextInt(2)));      // Only segments of different layers cross.
+            }
+            cells.add(segments);
+        }
+        return cells;
+    }
+}
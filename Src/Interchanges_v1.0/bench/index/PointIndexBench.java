@@ -0,0 +1,121 @@
+package index;
+
+import mapObject.Point;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares lookup of vertices by coordinates: open addressing {@link PointIndex} (used by {@link VertexStore#firstOrNew(double, double)})
+ * and bucketed lookup, which Point.firstOrNew used before it: HashMap of latitude buckets, HashMap of longitude buckets
+ * and LinkedList of points, buckets are 0.01 degree wide, see {@link Point#getBucketKey(double)}.
+ * <p>
+ * Distinct coordinates are random points of given area rounded to 7 decimals, as coordinates of OSM extracts are.
+ * Every round looks up given number of coordinates picked at random from distinct ones into empty table,
+ * so the first lookup of coordinate adds new point and later lookups find it. Both tables get the same coordinates.
+ * <p>
+ * Usage: java -cp [classes] index.PointIndexBench [distinct_points] [lookups] [rounds]
+ * Default: 1000000 distinct points of area 54..56 x 21..27 (180 000 buckets), 4000000 lookups, 5 rounds.
+ */
+public class PointIndexBench {
+
+    private static final double MIN_LATITUDE = 54D;
+    private static final double MIN_LONGITUDE = 21D;
+    private static final double LATITUDE_RANGE = 2D;
+    private static final double LONGITUDE_RANGE = 6D;
+
+    public static void main(String[] args) {
+        int numberOfPoints = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int numberOfLookups = (args.length > 1) ? Integer.parseInt(args[1]) : 4000000;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+        Random random = new Random(1);
+        double[] latitudes = new double[numberOfPoints];
+        double[] longitudes = new double[numberOfPoints];
+        for(int i=0; i<numberOfPoints; i++) {
+            latitudes[i] = Math.round((MIN_LATITUDE + random.nextDouble() * LATITUDE_RANGE) * 1e7) / 1e7;
+            longitudes[i] = Math.round((MIN_LONGITUDE + random.nextDouble() * LONGITUDE_RANGE) * 1e7) / 1e7;
+        }
+        int[] lookups = new int[numberOfLookups];
+        for(int i=0; i<numberOfLookups; i++) {
+            lookups[i] = random.nextInt(numberOfPoints);
+        }
+        System.out.println(String.format(Locale.ROOT, "%d distinct points, %d lookups, %d rounds (the first round is warm-up)",
+                numberOfPoints, numberOfLookups, rounds));
+        System.out.println("round,bucketed_ns_per_op,point_index_ns_per_op,bucketed_points,point_index_points");
+        double bestBucketed = Double.POSITIVE_INFINITY;
+        double bestIndexed = Double.POSITIVE_INFINITY;
+        for(int round=0; round<rounds; round++) {
+            long start = System.nanoTime();
+            int bucketedSize = runBucketed(latitudes, longitudes, lookups);
+            double bucketed = (double) (System.nanoTime() - start) / numberOfLookups;
+            start = System.nanoTime();
+            int indexedSize = runPointIndex(latitudes, longitudes, lookups);
+            double indexed = (double) (System.nanoTime() - start) / numberOfLookups;
+            if(bucketedSize != indexedSize) {
+                throw new IllegalStateException(String.format("Tables have different number of points: %d and %d.", bucketedSize, indexedSize));
+            }
+            if(round > 0) {
+                bestBucketed = Math.min(bestBucketed, bucketed);
+                bestIndexed = Math.min(bestIndexed, indexed);
+            }
+            System.out.println(String.format(Locale.ROOT, "%d,%.1f,%.1f,%d,%d", round, bucketed, indexed, bucketedSize, indexedSize));
+        }
+        if(rounds > 1) {
+            System.out.println(String.format(Locale.ROOT, "best: bucketed %.1f ns/op, point index %.1f ns/op, %.2fx",
+                    bestBucketed, bestIndexed, bestBucketed / bestIndexed));
+        }
+    }
+
+    /**
+     * @return Number of points in the table.
+     */
+    private static int runPointIndex(double[] latitudes, double[] longitudes, int[] lookups) {
+        VertexStore vertices = new VertexStore();
+        for(int lookup : lookups) {
+            vertices.firstOrNew(latitudes[lookup], longitudes[lookup]);
+        }
+        return vertices.size();
+    }
+
+    /**
+     * @return Number of points in the table.
+     */
+    private static int runBucketed(double[] latitudes, double[] longitudes, int[] lookups) {
+        HashMap<Integer, HashMap<Integer, LinkedList<double[]>>> buckets = new HashMap<>();
+        int size = 0;
+        for(int lookup : lookups) {
+            if(firstOrNewBucketed(latitudes[lookup], longitudes[lookup], buckets)) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The same lookup as Point.firstOrNew had, point is kept as array of its coordinates.
+     * @return True - if new point was added.
+     */
+    private static boolean firstOrNewBucketed(double latitude, double longitude, HashMap<Integer, HashMap<Integer, LinkedList<double[]>>> latitudeBuckets) {
+        int latitudeBucketKey = Point.getBucketKey(latitude);
+        int longitudeBucketKey = Point.getBucketKey(longitude);
+        HashMap<Integer, LinkedList<double[]>> longitudeBuckets = latitudeBuckets.get(latitudeBucketKey);
+        if(longitudeBuckets == null) {
+            longitudeBuckets = new HashMap<>();
+            latitudeBuckets.put(latitudeBucketKey, longitudeBuckets);
+        }
+        LinkedList<double[]> pointsBucket = longitudeBuckets.get(longitudeBucketKey);
+        if(pointsBucket == null) {
+            pointsBucket = new LinkedList<>();
+            longitudeBuckets.put(longitudeBucketKey, pointsBucket);
+        }
+        for(double[] point : pointsBucket) {
+            if(point[0] == latitude && point[1] == longitude) {
+                return false;
+            }
+        }
+        pointsBucket.add(new double[] {latitude, longitude});
+        return true;
+    }
+}
@@ -1,18 +1,34 @@
 package application;
 
+import engine.BruteForceEngine;
+import engine.SweepEngine;
 import exception.CmdException;
+import index.Envelope;
+import mapObject.ConnectionSearch;
+import mapObject.Detection;
+import mapObject.Road;
+import server.MapServer;
+import writer.OutputPipeline;
+import writer.RowEncoder;
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
 
 public class Main {
 
     private Map map;
+    private Settings settings = new Settings();
     private boolean isSourceSet = false;
     private boolean isJunctionsDetected = false;
     private Boolean isRightHandTraffic;
     private String inputName;
+    private int numberOfFiles;          // Output files written by commands, counted for summary of batch mode.
 
     private int runCmd() {
         System.out.println("  TIDA v1.0 January-2019");
@@ -29,27 +45,218 @@ public class Main {
         }
     }
 
+    /**
+     * Runs program with command line arguments instead of console commands.
+     * -S [port] -J [number_of_threads] -X [number_of_threads] - starts server, see {@link MapServer}.
+     * -F [path_to_script] - runs commands of script file in batch mode, see {@link #runBatch(List)}.
+     * Other arguments are run as one command in batch mode, for example "-I source.csv -T r -R 6 -L 900 -O output.csv -P j".
+     * @return Exit code. 0 - success, 1 - wrong arguments or failure.
+     */
+    private int runArguments(String[] args) {
+        Integer port = null;
+        int threads = 1;
+        int crossingThreads = 1;
+        if(args.length % 2 != 0) {
+            System.err.println("Every parameter must have one argument!");
+            return 1;
+        }
+        if(!Arrays.asList(args).contains("-S")) {
+            if(args[0].equals("-F")) {
+                if(args.length != 2) {
+                    System.err.println("Parameter '-F' can not be used with other parameters!");
+                    return 1;
+                }
+                return runScript(args[1]);
+            }
+            return runBatch(Collections.singletonList(args));
+        }
+        try {
+            for(int i=0; i<args.length; i+=2) {
+                switch (args[i]) {
+                    case "-S":  port = Integer.parseInt(args[i+1]);
+                                if(port < 0 || port > 65535) {
+                                    throw new NumberFormatException(String.format("Port must be from 0 to 65535! For input string: \"%s\"", args[i+1]));
+                                }
+                                break;
+                    case "-J":  threads = Integer.parseInt(args[i+1]);
+                                if(threads < 1) {
+                                    throw new NumberFormatException(String.format("Number of threads must be positive! For input string: \"%s\"", args[i+1]));
+                                }
+                                break;
+                    case "-X":  crossingThreads = Integer.parseInt(args[i+1]);
+                                if(crossingThreads < 1) {
+                                    throw new NumberFormatException(String.format("Number of threads must be positive! For input string: \"%s\"", args[i+1]));
+                                }
+                                break;
+                    default:    System.err.println(String.format("Command '%s' does not exist.", args[i]));
+                                return 1;
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        if(port == null) {
+            System.err.println("Parameter '-S' is missing!");
+            return 1;
+        }
+        return runServer(port, threads, crossingThreads);
+    }
+
+    /**
+     * Reads commands of script file, one command per line. Empty lines and lines starting with '#' are skipped,
+     * line 'exit' ends the script.
+     * @param scriptName Path to script file.
+     */
+    private int runScript(String scriptName) {
+        List<String[]> commands = new ArrayList<>();
+        try(BufferedReader br = new BufferedReader(new FileReader(scriptName))) {
+            String line;
+            while((line = br.readLine()) != null) {
+                line = line.trim();
+                if(line.equals("exit")) {
+                    break;
+                }
+                commands.add((line.isEmpty() || line.startsWith("#")) ? new String[0] : line.split("\\s+"));
+            }
+        } catch (IOException e) {
+            System.err.println(String.format("Script file '%s' can not be read! %s", scriptName, e.getMessage()));
+            return 1;
+        }
+        return runBatch(commands);
+    }
+
+    /**
+     * Runs commands one after another on the same loaded map, the same way as console commands, but prompts, progress
+     * and messages are not printed, see {@link Settings#isQuiet()}. Errors are printed to the error stream.
+     * Run stops at the first command which fails. At the end summary is printed in CSV format, one row per run command:
+     * line,status,time,roads,crossingPoints,detection,junctions,files - where line is number of command in the script,
+     * status is 'OK' or 'FAILED', time is in seconds, roads and crossing points are counted in the loaded map,
+     * detection is name of the last detection (see {@link Detection#getName()}), junctions are its junctions
+     * and files is number of output files written by the command.
+     * @param commands Arguments of each command. Empty - line is skipped, but it is counted.
+     * @return Exit code. 0 - all commands succeeded, 1 - some command failed.
+     */
+    private int runBatch(List<String[]> commands) {
+        settings.setQuiet(true);
+        RowEncoder summary = new RowEncoder();
+        summary.append("line,status,time,roads,crossingPoints,detection,junctions,files");
+        summary.endRow();
+        int exitCode = 0;
+        for(int lineNo=1; lineNo<=commands.size(); lineNo++) {
+            String[] input = commands.get(lineNo - 1);
+            if(input.length == 0) {
+                continue;
+            }
+            numberOfFiles = 0;
+            long start = System.currentTimeMillis();
+            boolean isExecuted;
+            List<String[]> statements = toStatements(input);
+            if(statements == null) {
+                System.err.println("One argument is missing!");
+                isExecuted = false;
+            } else {
+                try {
+                    isExecuted = executeInput(statements);
+                } catch (NumberFormatException e) {
+                    System.err.println("Wrong argument! " + e.getMessage());
+                    isExecuted = false;
+                }
+            }
+            long elapsedTime = System.currentTimeMillis() - start;
+            encodeSummaryRow(summary, lineNo, isExecuted, elapsedTime);
+            if(!isExecuted) {
+                System.err.println(String.format("Batch is stopped at line %d.", lineNo));
+                exitCode = 1;
+                break;
+            }
+        }
+        System.out.print(summary.toString());
+        System.out.flush();
+        return exitCode;
+    }
+
+    private void encodeSummaryRow(RowEncoder summary, int lineNo, boolean isExecuted, long elapsedTime) {
+        int numberOfRoads = 0;
+        int numberOfCrossingPoints = 0;
+        Detection detection = null;
+        if(isSourceSet) {
+            for(Road road : map.getRoads()) {
+                if(!road.isCopy()) {
+                    numberOfRoads++;
+                }
+            }
+            numberOfCrossingPoints = map.getCrossingPoints().size();
+            detection = isJunctionsDetected ? map.getDetection() : null;
+        }
+        summary.append(lineNo);
+        summary.append(Map.CSV_SPLITTER);
+        summary.append(isExecuted ? "OK" : "FAILED");
+        summary.append(Map.CSV_SPLITTER);
+        summary.appendFixed(elapsedTime / 1000D, 3);
+        summary.append(Map.CSV_SPLITTER);
+        summary.append(numberOfRoads);
+        summary.append(Map.CSV_SPLITTER);
+        summary.append(numberOfCrossingPoints);
+        summary.append(Map.CSV_SPLITTER);
+        summary.append((detection == null) ? "" : detection.getName());
+        summary.append(Map.CSV_SPLITTER);
+        summary.append((detection == null) ? 0 : detection.getJunctions().size());
+        summary.append(Map.CSV_SPLITTER);
+        summary.append(numberOfFiles);
+        summary.endRow();
+    }
+
+    /**
+     * Starts server and keeps it running until 'exit' is entered or process is stopped.
+     * @param port Port of the server. 0 - any free port.
+     * @param threads Number of threads used to load maps and to detect junctions.
+     * @param crossingThreads Number of threads used to search crossings of loaded maps.
+     */
+    private int runServer(int port, int threads, int crossingThreads) {
+        MapServer server;
+        try {
+            server = new MapServer(port, threads, crossingThreads);
+        } catch (IOException e) {
+            System.err.println(String.format("Server can not be started on port %d! %s", port, e.getMessage()));
+            return 1;
+        }
+        server.start();
+        System.out.println("  TIDA v1.0 January-2019");
+        System.out.println(String.format("  Server listens on http://localhost:%d/", server.getPort()));
+        System.out.println("  Type: 'exit' - to stop server.");
+        System.out.print("> ");
+        Scanner scanner = new Scanner(System.in);
+        while(scanner.hasNextLine()) {
+            if(scanner.nextLine().trim().equals("exit")) {
+                server.stop();
+                return 0;
+            }
+            System.out.print("> ");
+        }
+        try {
+            server.await();                                 // Input is closed, server runs until process is stopped.
+        } catch (InterruptedException e) {
+            server.stop();
+        }
+        return 0;
+    }
+
     private int readInput(Scanner scanner) {
         String[] input = scanner.nextLine().split(" ");
         System.out.print("> ");
-        List<String[]> statements = new ArrayList<>();
+        List<String[]> statements;
         if(input.length > 0 && !input[0].equals("") && !input[0].isEmpty()){
             switch (input[0]) {
                 case "help":    printHelp();
                                 System.out.print("> ");
                                 return 0;
                 case "exit":    return 1;
-                default:        if(input.length % 2 != 0) {
+                default:        statements = toStatements(input);
+                                if(statements == null) {
                                     System.err.println("One argument is missing!");
                                     System.out.print("> ");
                                     return 0;
-                                } else {
-                                    for (int i=1; i<input.length; i+=2) {
-                                        String[] statement = new String[2];
-                                        statement[0] = input[i-1];
-                                        statement[1] = input[i];
-                                        statements.add(statement);
-                                    }
                                 }
                                 long start = System.currentTimeMillis();
                                 try {
@@ -67,13 +274,34 @@ public class Main {
         }
     }
 
-    private void executeInput(List<String[]> statements) throws NumberFormatException  {
+    /**
+     * @param input Parameters and their arguments.
+     * @return Pairs of parameter and argument. Null - if some argument is missing.
+     */
+    private List<String[]> toStatements(String[] input) {
+        if(input.length % 2 != 0) {
+            return null;
+        }
+        List<String[]> statements = new ArrayList<>();
+        for (int i=1; i<input.length; i+=2) {
+            String[] statement = new String[2];
+            statement[0] = input[i-1];
+            statement[1] = input[i];
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    /**
+     * @return True - if command is executed and all requested outputs are printed.
+     */
+    private boolean executeInput(List<String[]> statements) throws NumberFormatException  {
         List<String> allParameters = new ArrayList<>();
         for(String[] statement : statements) {
             if(allParameters.contains(statement[0])) {
                 System.err.println("Duplicate parameters entered!");
-                System.out.print("> ");
-                return;
+                prompt();
+                return false;
             } else {
                 allParameters.add(statement[0]);
             }
@@ -83,62 +311,64 @@ public class Main {
                 if(isJunctionsDetected || (allParameters.contains("-R") && allParameters.contains("-L"))) {
                     if(!isSourceSet && (!allParameters.contains("-I") || !allParameters.contains("-T"))) {
                         System.err.println("Parameter '-I' or '-T' is missing or source is not set!");
-                        System.out.print("> ");
-                        return;
+                        prompt();
+                        return false;
                     }
                 } else {
                     System.err.println("Parameter '-R' or '-L' is missing or junctions is not set!");
-                    System.out.print("> ");
-                    return;
+                    prompt();
+                    return false;
                 }
             } else {
                 System.err.println("Parameter '-O' or '-P' is missing!");
-                System.out.print("> ");
-                return;
+                prompt();
+                return false;
             }
         } else {
             if(allParameters.contains("-O") || allParameters.contains("-P")) {
                 if(!allParameters.contains("-O") || !allParameters.contains("-P")) {
                     System.err.println("Parameter '-O' or '-P' is missing!");
-                    System.out.print("> ");
-                    return;
+                    prompt();
+                    return false;
                 } else {
                     if (!isSourceSet && (!allParameters.contains("-I") || !allParameters.contains("-T"))) {
                         System.err.println("Parameter '-I' or '-T' is missing or source is not set!");
-                        System.out.print("> ");
-                        return;
+                        prompt();
+                        return false;
                     }
                 }
             } else {
                 if(allParameters.contains("-R") || allParameters.contains("-L")) {
                     if(!allParameters.contains("-R") || !allParameters.contains("-L")) {
                         System.err.println("Parameter '-R' or '-L' is missing!");
-                        System.out.print("> ");
-                        return;
+                        prompt();
+                        return false;
                     } else {
                         if (!isSourceSet && (!allParameters.contains("-I") || !allParameters.contains("-T"))) {
                             System.err.println("Parameter '-I' or '-T' is missing or source is not set!");
-                            System.out.print("> ");
-                            return;
+                            prompt();
+                            return false;
                         }
                     }
                 } else {
                     if(!allParameters.contains("-I") || !allParameters.contains("-T")) {
                         System.err.println("Parameter '-I' or '-T' is missing!");
-                        System.out.print("> ");
-                        return;
+                        prompt();
+                        return false;
                     }
                 }
             }
         }
         int sourceChangeCheck = 0;
-        Integer numberOfRoads = null;
-        Double length = null;
+        int[] numbersOfRoads = null;
+        double[] lengths = null;
         String outputName = null;
         Boolean printConnections = null;
         Boolean printCrossingPoints = null;
         Boolean printJunctions = null;
+        Boolean printJunctionsArchive = null;
         Boolean printRoads = null;
+        Envelope area = null;
         String crossingPoints = null;
         String sides = null;
         String levels = null;
@@ -157,18 +387,58 @@ public class Main {
                                                 sourceChangeCheck++;
                                                 break;
                                     default:    System.err.println(String.format("Parameter '%s' argument '%s' does not exist.", statement[0], statement[1]));
-                                                System.out.print("> ");
-                                                return;
+                                                prompt();
+                                                return false;
+                                }
+                                break;
+                case "-R":      String[] roadsValues = statement[1].split(",");
+                                numbersOfRoads = new int[roadsValues.length];
+                                for(int i=0; i<roadsValues.length; i++) {
+                                    numbersOfRoads[i] = Integer.parseInt(roadsValues[i]);
+                                    if(numbersOfRoads[i]<0) {
+                                        throw new NumberFormatException(String.format("Negative number! For input string: \"%s\"",roadsValues[i]));
+                                    }
+                                }
+                                break;
+                case "-L":      String[] lengthValues = statement[1].split(",");
+                                lengths = new double[lengthValues.length];
+                                for(int i=0; i<lengthValues.length; i++) {
+                                    lengths[i] = Double.parseDouble(lengthValues[i]);
+                                    if(lengths[i]<0) {
+                                        throw new NumberFormatException(String.format("Negative number! For input string: \"%s\"",lengthValues[i]));
+                                    }
                                 }
                                 break;
-                case "-R":      numberOfRoads = Integer.parseInt(statement[1]);
-                                if(numberOfRoads<0) {
-                                    throw new NumberFormatException(String.format("Negative number! For input string: \"%s\"",statement[1]));
+                case "-J":      int threads = Integer.parseInt(statement[1]);
+                                if(threads < 1) {
+                                    throw new NumberFormatException(String.format("Number of threads must be positive! For input string: \"%s\"",statement[1]));
+                                }
+                                settings.setThreads(threads);
+                                break;
+                case "-X":      int crossingThreads = Integer.parseInt(statement[1]);
+                                if(crossingThreads < 1) {
+                                    throw new NumberFormatException(String.format("Number of threads must be positive! For input string: \"%s\"",statement[1]));
+                                }
+                                settings.setCrossingThreads(crossingThreads);
+                                break;
+                case "-E":      switch (statement[1]) {
+                                    case "b":   settings.setCrossingEngine(new BruteForceEngine());
+                                                break;
+                                    case "s":   settings.setCrossingEngine(new SweepEngine());
+                                                break;
+                                    default:    System.err.println(String.format("Parameter '%s' argument '%s' does not exist.", statement[0], statement[1]));
+                                                prompt();
+                                                return false;
                                 }
                                 break;
-                case "-L":      length = Double.parseDouble(statement[1]);
-                                if(length<0) {
-                                    throw new NumberFormatException(String.format("Negative number! For input string: \"%s\"",statement[1]));
+                case "-V":      switch (statement[1]) {
+                                    case "y":   settings.setVerbose(true);
+                                                break;
+                                    case "n":   settings.setVerbose(false);
+                                                break;
+                                    default:    System.err.println(String.format("Parameter '%s' argument '%s' does not exist.", statement[0], statement[1]));
+                                                prompt();
+                                                return false;
                                 }
                                 break;
                 case "-O":      outputName = statement[1];
@@ -179,6 +449,9 @@ public class Main {
                                 if(statement[1].indexOf('j') >= 0) {
                                     printJunctions = true;
                                 }
+                                if(statement[1].indexOf('a') >= 0) {
+                                    printJunctionsArchive = true;
+                                }
                                 if(statement[1].indexOf('r') >= 0) {
                                     printRoads = true;
                                 }
@@ -186,6 +459,8 @@ public class Main {
                                     printCrossingPoints = true;
                                 }
                                 break;
+                case "-B":      area = Envelope.parse(statement[1]);
+                                break;
                 case "-x":      crossingPoints = statement[1];
                                 break;
                 case "-s":      sides = statement[1];
@@ -197,93 +472,160 @@ public class Main {
                 case "-c":      conflictRoads = statement[1];
                                 break;
                 default:        System.err.println(String.format("Command '%s' does not exist.", statement[0]));
-                                System.out.print("> ");
-                                return;
+                                prompt();
+                                return false;
             }
         }
+        if(numbersOfRoads != null && lengths != null && numbersOfRoads.length * lengths.length > ConnectionSearch.MAX_DETECTIONS) {
+            System.err.println(String.format("Too many pairs of '-R' and '-L' arguments! Maximum is %d.", ConnectionSearch.MAX_DETECTIONS));
+            prompt();
+            return false;
+        }
         if(sourceChangeCheck == 2) {
             try {
-                map = new Map(inputName, isRightHandTraffic);
+                map = new Map(inputName, isRightHandTraffic, settings);
                 isSourceSet = true;
                 isJunctionsDetected = false;
             } catch (IOException e) {
                 isSourceSet = false;
                 isJunctionsDetected = false;
                 System.err.println(e.getMessage());
-                System.out.print("> ");
-                return;
+                prompt();
+                return false;
             } catch (CmdException e) {
                 isSourceSet = false;
                 isJunctionsDetected = false;
                 System.err.println(e.getMessage());
-                System.out.print("> ");
-                return;
+                prompt();
+                return false;
             }
         }
-        if(numberOfRoads != null && length != null) {
-            if(isJunctionsDetected && isSourceSet) {
-                try {
-                    map = new Map(inputName, isRightHandTraffic);
-                } catch (IOException e) {
-                    System.err.println(e.getMessage());
-                    System.out.print("> ");
-                    return;
-                } catch (CmdException e) {
-                    System.err.println(e.getMessage());
-                    System.out.print("> ");
-                    return;
-                }
+        List<Detection> sweep = null;                               // Results of each pair of '-R' and '-L', if more than one pair is entered.
+        if(numbersOfRoads != null && lengths != null) {
+            List<Detection> detections = map.findConnections(numbersOfRoads, lengths);     // Detection does not change the loaded map, it is reused.
+            if(detections.size() > 1) {
+                sweep = detections;
             }
-            map.findConnections(numberOfRoads, length);
             isJunctionsDetected = true;
         }
+        boolean isComplete = true;                                  // False - some of requested outputs are not printed.
         if(outputName != null) {
+            final Map outputMap = map;
+            final Envelope outputArea = area;
+            final String junctionCrossingPoints = crossingPoints;
+            final String junctionSides = sides;
+            final String junctionLevels = levels;
+            final String junctionConflictRoads = conflictRoads;
+            final String junctionIntersections = intersections;
+            OutputPipeline pipeline = new OutputPipeline(settings.getThreads());
+            List<String> outputs = new ArrayList<>();              // Name of each output of the pipeline, messages are printed when all outputs are written.
             if(printRoads != null && printRoads) {
-                if(map.toFileRoads(appendBeforeFormat(outputName, "roads")) == 0) {
-                    System.out.println("Roads file created!");
-                    System.out.print("> ");
-                } else {
-                    System.err.println("The system cannot find output folder!");
-                    System.out.print("> ");
-                    return;
+                final String roadsName = appendBeforeFormat(outputName, "roads");
+                pipeline.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return outputMap.toFileRoads(roadsName, outputArea);
+                    }
+                });
+                outputs.add("Roads");
+            }
+            if(!isJunctionsDetected && printConnections != null && printConnections) {
+                System.err.println("Connections are not printed because junctions are not detected yet!");
+                prompt();
+                isComplete = false;
+            }
+            if(!isJunctionsDetected && ((printJunctions != null && printJunctions) || (printJunctionsArchive != null && printJunctionsArchive))) {
+                System.err.println("Junctions are not printed because they are not detected yet!");
+                prompt();
+                isComplete = false;
+            }
+            List<Detection> results = (sweep == null) ? Collections.singletonList(map.getDetection()) : sweep;
+            for(final Detection detection : results) {
+                String resultName = (sweep == null) ? outputName : appendBeforeFormat(outputName, detection.getName());     // Files of each pair are named after it.
+                if(printCrossingPoints != null && printCrossingPoints) {
+                    final String crossingPointsName = appendBeforeFormat(resultName, "crossing_points");
+                    pipeline.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return outputMap.toFileCrossingPoints(crossingPointsName, detection, outputArea);
+                        }
+                    });
+                    outputs.add("Crossing points");
+                }
+                if(isJunctionsDetected && printConnections != null && printConnections) {
+                    final String connectionsName = appendBeforeFormat(resultName, "connections");
+                    pipeline.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return outputMap.toFileConnections(connectionsName, detection, outputArea);
+                        }
+                    });
+                    outputs.add("Connections");
+                }
+                if(isJunctionsDetected && printJunctions != null && printJunctions) {
+                    final String junctionsName = appendBeforeFormat(resultName, "junction");
+                    pipeline.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return outputMap.toFilesJunctions(junctionsName, detection, outputArea, junctionCrossingPoints, junctionSides, junctionLevels, junctionConflictRoads, junctionIntersections);
+                        }
+                    });
+                    outputs.add("Junctions");
+                }
+                if(isJunctionsDetected && printJunctionsArchive != null && printJunctionsArchive) {
+                    final String archiveName = appendBeforeFormat(resultName, "junctions");
+                    final String indexName = appendBeforeFormat(resultName, "junctions_index");
+                    pipeline.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            return outputMap.toFileJunctionsArchive(archiveName, indexName, detection, outputArea, junctionCrossingPoints, junctionSides, junctionLevels, junctionConflictRoads, junctionIntersections);
+                        }
+                    });
+                    outputs.add("Junctions archive");
                 }
             }
-            if(printCrossingPoints != null && printCrossingPoints) {
-                if(map.toFileCrossingPoints(appendBeforeFormat(outputName, "crossing_points")) == 0) {
-                    System.out.println("Crossing points file created!");
-                    System.out.print("> ");
-                } else {
+            List<Integer> written = pipeline.write();
+            for(int i=0; i<outputs.size(); i++) {
+                int result = written.get(i);
+                if(result == -1) {
                     System.err.println("The system cannot find output folder!");
-                    System.out.print("> ");
-                    return;
+                    prompt();
+                    return false;
                 }
-            }
-            if(printConnections != null && printConnections) {
-                if(isJunctionsDetected) {
-                    if(map.toFileConnections(appendBeforeFormat(outputName,"connections")) == 0) {
-                        System.out.println("Connections file created!");
-                        System.out.print("> ");
+                if(outputs.get(i).equals("Junctions")) {
+                    numberOfFiles += result;
+                    if (result == 0) {
+                        println("No junctions found with given parameters!");
                     } else {
-                        System.err.println("The system cannot find output folder!");
-                        System.out.print("> ");
-                        return;
+                        println(String.format("%d junction%s file%s created!", result, ((result == 1) ? "" : "s"), ((result == 1) ? "" : "s")));
                     }
-                } else {
-                    System.err.println("Connections are not printed because junctions are not detected yet!");
-                    System.out.print("> ");
-                }
-            }
-            if(printJunctions != null && printJunctions) {
-                if(isJunctionsDetected) {
-                    if(map.toFilesJunctions(appendBeforeFormat(outputName,"junction"), crossingPoints, sides, levels, conflictRoads, intersections) == -1) {
-                        return;
+                } else if(outputs.get(i).equals("Junctions archive")) {
+                    numberOfFiles += 2;
+                    if (result == 0) {
+                        println("No junctions found with given parameters!");
+                    } else {
+                        println(String.format("Junctions archive file with %d junction%s created!", result, ((result == 1) ? "" : "s")));
                     }
                 } else {
-                    System.err.println("Junctions are not printed because they are not detected yet!");
-                    System.out.print("> ");
+                    numberOfFiles++;
+                    println(String.format("%s file created!", outputs.get(i)));
                 }
+                prompt();
             }
         }
+        return isComplete;
+    }
+
+    private void prompt() {
+        if(!settings.isQuiet()) {
+            System.out.print("> ");
+        }
+    }
+
+    private void println(String line) {
+        if(!settings.isQuiet()) {
+            System.out.println(line);
+        }
     }
 
     private String appendBeforeFormat(String fileName, String appending) {
@@ -292,6 +634,9 @@ public class Main {
 
     public static void main(String[] args) {
         Main main = new Main();
+        if(args.length > 0) {
+            System.exit(main.runArguments(args));
+        }
         System.exit(main.runCmd());
     }
 
@@ -305,23 +650,42 @@ public class Main {
         System.out.println("         Example: -I C:/maps/source.csv -T r -R 6 -L 900 -O C:/analysis/output.csv -P cjrx -x >3");
         System.out.println();
         System.out.println(" 1. ---- Setting Source Command --------------------------------------------------------------------------");
-        System.out.println(" -I [path_to_file] -T [r/l]");
+        System.out.println(" -I [path_to_file] -T [r/l] -J [number_of_threads] -X [number_of_threads] -E [b/s] -V [y/n]");
         System.out.println(" Example: -I C:/maps/source.csv -T r");
         System.out.println("        '-I' indicates input - path to the source file which is in CSV format.");
         System.out.println("        '-T' indicates traffic side. 'r' - if right hand traffic. 'l' - if left hand traffic.");
+        System.out.println("        '-J' (optional) indicates number of worker threads. If more than 1, source file is memory-mapped,");
+        System.out.println("             its chunks are parsed, junctions are detected and analysed in parallel and output files are written at once.");
+        System.out.println("             Default - 1.");
+        System.out.println("        '-X' (optional) indicates number of threads of crossing points search. Default - 1, parallel search");
+        System.out.println("             was not measured faster yet.");
+        System.out.println("        '-E' (optional) indicates crossing search engine. 'b' - brute force, every pair of segments is checked.");
+        System.out.println("             's' - sweep, only segments with overlapping bounding boxes are checked. Default - 's'.");
+        System.out.println("        '-V' (optional) indicates verbose mode. 'y' - statistics of connection search are printed after detection:");
+        System.out.println("             roads expanded and branches pruned. If '-J' is more than 1, these counters depend on scheduling");
+        System.out.println("             of threads and may differ between runs. Default - 'n'.");
         System.out.println();
         System.out.println(" 2. ---- Detection Command -------------------------------------------------------------------------------");
         System.out.println(" -R [number_of_roads] -L [max_length]");
         System.out.println(" Example: -R 6 -L 900");
+        System.out.println(" Example: -R 4,6 -L 600,900");
         System.out.println("        '-R' indicates unsigned integer which sets number of roads in connection, within length is not checked.");
         System.out.println("        '-L' indicates unsigned floating point number which sets max length of connection.");
         System.out.println("        NOTICE: Set length can be exceeded if connection have number of roads which is less or equal to 'number_of_roads'.");
+        System.out.println("        Several comma separated values can be entered. Then roads are searched once and junctions are detected");
+        System.out.println("        for every pair of values. Statistics of each pair are printed and output file names are extended with the pair,");
+        System.out.println("        for example 'output_r6_l900_junction_1.csv'. Output Command writes results of the last pair later.");
         System.out.println();
         System.out.println(" 3. ---- Output Command ----------------------------------------------------------------------------------");
-        System.out.println(" -O [path_to_file] -P [c|j|r|x]");
+        System.out.println(" -O [path_to_file] -P [c|j|a|r|x]");
         System.out.println(" Example: -O C:/analysis/output.csv -P cjrx");
         System.out.println("        '-O' indicates path to the output location. Output file name is extended depending on what is written in the file.");
         System.out.println("        '-P' indicates what output files to print. c - connections, j - junction, r - all roads, x - crossing points.");
+        System.out.println("             a - all junctions in one file 'output_junctions.csv', every road has junction ID. Index file");
+        System.out.println("             'output_junctions_index.csv' has metrics of every junction and place of its roads: offset and length in bytes.");
+        System.out.println("        '-B' (optional) indicates bounding box [x1],[y1],[x2],[y2] in coordinates of the source file. Only roads,");
+        System.out.println("             crossing points, connections and junctions which are in the box or cross it are printed.");
+        System.out.println("             Example: -O C:/analysis/output.csv -P jx -B 25.1,54.6,25.4,54.8");
         System.out.println();
         System.out.println("        3.1. ---- Junction Output Parameters -------------------------------------------------------------");
         System.out.println("        NOTICE: These are optional Output Command parameters which filter junctions output.");
@@ -334,6 +698,24 @@ public class Main {
         System.out.println("        '-i' indicates intersections number");
         System.out.println("        '-c' indicates conflict roads number");
         System.out.println();
+        System.out.println(" 4. ---- Server Mode -------------------------------------------------------------------------------------");
+        System.out.println(" Program started with arguments -S [port] -J [number_of_threads] -X [number_of_threads] runs local HTTP server instead of commands.");
+        System.out.println(" Example: java -jar Interchanges_v1.0.jar -S 8080 -J 4");
+        System.out.println("        Maps stay loaded between requests, results are CSV or JSON ('format=json'). Requests:");
+        System.out.println("        /load?map=[name]&input=[path_to_file]&traffic=[r/l]   /unload?map=[name]   /maps");
+        System.out.println("        /detect?map=[name]&roads=[number_of_roads]&length=[max_length]");
+        System.out.println("        /junctions?map=[name]&detection=[r6_l900]&x=%3E3   /roads?map=[name]&junction=[id]   /crossing-points?map=[name]");
+        System.out.println();
+        System.out.println(" 5. ---- Batch Mode --------------------------------------------------------------------------------------");
+        System.out.println(" Program started with commands as arguments or with -F [path_to_script] runs them without console.");
+        System.out.println(" Example: java -jar Interchanges_v1.0.jar -I C:/maps/source.csv -T r -R 6 -L 900 -O C:/analysis/output.csv -P j");
+        System.out.println(" Example: java -jar Interchanges_v1.0.jar -F C:/analysis/nightly.txt");
+        System.out.println("        Script has one command per line, on the same loaded map. Lines starting with '#' are skipped.");
+        System.out.println("        Prompts and progress are not printed, errors are printed to error stream. Run stops at the first failed command.");
+        System.out.println("        At the end summary is printed in CSV format, one row per command:");
+        System.out.println("        line,status,time,roads,crossingPoints,detection,junctions,files");
+        System.out.println("        Exit code is 0 if all commands succeeded, 1 - otherwise.");
+        System.out.println();
         System.out.println(" ---- Program Commands -----------------------------------------------------------------------------------");
         System.out.println(" help - show all commands.");
         System.out.println(" exit - exits program.");
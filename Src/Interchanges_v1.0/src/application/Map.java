@@ -1,11 +1,27 @@
 package application;
 
+import engine.ComponentAggregation;
+import engine.ConnectionDetection;
+import engine.Crossing;
+import engine.CrossingSearch;
+import engine.JunctionAnalysis;
 import exception.CmdException;
-import exception.NoCrossingException;
 import exception.NoRoadException;
+import index.Envelope;
+import index.EnvelopeTree;
+import index.JunctionFilter;
+import index.VertexStore;
 import mapObject.*;
+import parser.CsvRow;
+import parser.MappedCsvReader;
+import parser.RowParser;
+import writer.ChannelWriter;
+import writer.RowEncoder;
+
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Map {
 
@@ -15,172 +31,192 @@ public class Map {
     public static final String CLASS = "fclass";
     public static final String CSV_SPLITTER = ",";
 
-    private HashMap<Integer, HashMap<Integer, LinkedList<Point>>> points = new HashMap<>();
+    private VertexStore vertices = new VertexStore();
     private HashMap<Integer, HashMap<Integer, ArrayList<Segment>>> segments = new HashMap<>();
     private LinkedList<Segment> allSegments = new LinkedList<>();
     private LinkedList<CrossingPoint> crossingPoints = new LinkedList<>();
     private LinkedList<Road> roads = new LinkedList<>();
-    private LinkedList<Junction> junctions = new LinkedList<>();
     private boolean isRightHandTraffic;
+    private Settings settings;
+    private Detection detection;        // Results of the last detection of junctions. Null - junctions are not detected.
+    private EnvelopeTree<Road> roadTree;                    // Created by the first spatial query of roads.
+    private EnvelopeTree<CrossingPoint> crossingPointTree;  // Created by the first spatial query of crossing points.
 
     public Map(String fileName, boolean isRightHandTraffic) throws IOException, CmdException {
+        this(fileName, isRightHandTraffic, new Settings());
+    }
+
+    public Map(String fileName, boolean isRightHandTraffic, Settings settings) throws IOException, CmdException {
         this.isRightHandTraffic = isRightHandTraffic;
-        System.out.print("Reading source file (10k's): 0");
+        this.settings = settings;
+        print("Reading source file (10k's): 0");
         long start = System.currentTimeMillis();
         read(fileName);
         long elapsedTime = System.currentTimeMillis() - start;
-        System.out.println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
-        System.out.print("> Aggregating roads:           0");
+        println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
+        print("> Aggregating roads:           0");
         start = System.currentTimeMillis();
         aggregate();
         elapsedTime = System.currentTimeMillis() - start;
-        System.out.println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
-        System.out.print("> Searching crossing points:   0");
+        println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
+        print("> Searching crossing points:   0");
         start = System.currentTimeMillis();
         findCrossings();
         splitBothWayRoads();
         sortCrossingPoints();
+        setIndexes();
         elapsedTime = System.currentTimeMillis() - start;
-        System.out.println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
-        System.out.print("> ");
+        println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
+        print("> ");
     }
 
-    public int toFileRoads(String fileName) {
-        try(Writer writer = new BufferedWriter(new OutputStreamWriter( new FileOutputStream(fileName), "utf-8"))) {
-            writer.write(Road.getLabels());
-            for (Road road : roads) {
+    /**
+     * @param area Only roads, whose envelopes intersect this area, are written. Null - all roads are written.
+     */
+    public int toFileRoads(String fileName, Envelope area) {
+        try(Writer writer = new ChannelWriter(fileName)) {
+            RowEncoder encoder = new RowEncoder(writer);
+            encoder.append(Road.getLabels());
+            for (Road road : (area == null) ? roads : getRoadTree().find(area)) {
                 if(!road.isCopy()) {
-                    writer.write(road.toString());
+                    road.encode(encoder);
+                    encoder.flushIfFull();
                 }
             }
+            encoder.flush();
         } catch (IOException e) {
             return -1;
         }
         return 0;
     }
 
-    public int toFileCrossingPoints(String fileName) {
-        try(Writer writer = new BufferedWriter(new OutputStreamWriter( new FileOutputStream(fileName), "utf-8"))) {
-            writer.write(CrossingPoint.getLabels());
-            for(CrossingPoint crossingPoint : crossingPoints) {
-                if(crossingPoint.isConnectionExist()) {
-                    writer.write(crossingPoint.toString());
+    /**
+     * @param detection Results of detection, only crossing points with connections are written. Null - junctions are not detected, no crossing points are written.
+     * @param area Only crossing points in this area are written. Null - all crossing points are written.
+     */
+    public int toFileCrossingPoints(String fileName, Detection detection, Envelope area) {
+        try(Writer writer = new ChannelWriter(fileName)) {
+            RowEncoder encoder = new RowEncoder(writer);
+            encoder.append(CrossingPoint.getLabels());
+            for(CrossingPoint crossingPoint : (area == null) ? crossingPoints : getCrossingPointTree().find(area)) {
+                if(detection != null && detection.isConnectionExist(crossingPoint)) {
+                    crossingPoint.encode(encoder, detection.getJunction(crossingPoint));
+                    encoder.flushIfFull();
                 }
             }
+            encoder.flush();
         } catch (IOException e) {
             return -1;
         }
         return 0;
     }
 
-    public int toFileConnections(String fileName) {
-        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), "utf-8"))) {
-            writer.write(Road.getLabels());
-            for(CrossingPoint crossingPoint : crossingPoints) {
-                if (crossingPoint.isConnectionExist() && crossingPoint.isJunctionSet()) {
+    /**
+     * @param detection Results of detection, whose connections are written.
+     * @param area Only connections of crossing points in this area are written. Null - all connections are written.
+     */
+    public int toFileConnections(String fileName, Detection detection, Envelope area) {
+        try(Writer writer = new ChannelWriter(fileName)) {
+            RowEncoder encoder = new RowEncoder(writer);
+            encoder.append(Road.getLabels());
+            for(CrossingPoint crossingPoint : (area == null) ? crossingPoints : getCrossingPointTree().find(area)) {
+                if (detection.isConnectionExist(crossingPoint) && detection.isJunctionSet(crossingPoint)) {
                     int connectionID = 0;
-                    for(LinkedList<Point> path : crossingPoint.getConnectionPaths()) {
-                        writer.write(Road.getPolylineStringForCSV(path, connectionID++,'X',0, crossingPoint.getJunction().getId()));
+                    for(int[] connection : detection.getConnectionPaths(crossingPoint)) {
+                        Road.encodeConnectionRow(encoder, detection.getPaths().getPolyline(connection), vertices, connectionID++,'X',0, detection.getJunction(crossingPoint).getId());
+                        encoder.flushIfFull();
                     }
 
                 }
             }
+            encoder.flush();
         } catch (IOException e) {
             return -1;
         }
         return 0;
     }
 
-    public int toFilesJunctions(String fileName, String crossingPoints, String sides, String levels, String conflictRoads, String intersections) {
+    /**
+     * Writes file of every junction, which meets given requirements, see {@link JunctionFilter}.
+     * @param detection Results of detection, whose junctions are written.
+     * @param area Only junctions, whose envelopes intersect this area, are written. Null - junctions are not restricted by area.
+     * @return Number of written files. -1 - if output folder does not exist.
+     */
+    public int toFilesJunctions(String fileName, Detection detection, Envelope area, String crossingPoints, String sides, String levels, String conflictRoads, String intersections) {
         int junctionNo = 0;
-        for (Junction junction : junctions) {
-            if (isMeetRequirement(junction.getNumberOfCrossingPoints(), crossingPoints) && isMeetRequirement(junction.getNumberOfSides(), sides) && isMeetRequirement(junction.getNumberOfLevels(), levels) && isMeetRequirement(junction.getNumberOfConflictRoads(), conflictRoads) && isMeetRequirement(junction.getNumberOfIntersectionPoints(), intersections)) {
-                try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(String.format("%s_s%d_l%d_x%d_c%d_i%d_%d%s", fileName.substring(0, fileName.lastIndexOf('.')), junction.getNumberOfSides(), junction.getNumberOfLevels(), junction.getNumberOfCrossingPoints(), junction.getNumberOfConflictRoads(), junction.getNumberOfIntersectionPoints(), junction.getId(), fileName.substring(fileName.lastIndexOf('.')))), "utf-8"))) {
-                    writer.write(Road.getLabels());
-                    for (Road road : junction.getRoads()) {
-                        if(!road.isCopy()) {
-                            writer.write(road.toString());
-                        } else {
-                            boolean isOriginalInJunction = false;
-                            for(Road checkRoad : junction.getRoads()) {
-                                if(!checkRoad.isCopy() && checkRoad.getId() == road.getId()) {
-                                    isOriginalInJunction = true;
-                                    break;
-                                }
-                            }
-                            if(!isOriginalInJunction) {
-                                writer.write(road.toString());
-                            }
-                        }
-                    }
-                    junctionNo++;
-                } catch (IOException e) {
-                    System.err.println("The system cannot find output folder!");
-                    System.out.print("> ");
-                    return -1;
+        JunctionFilter filter = new JunctionFilter(crossingPoints, sides, levels, conflictRoads, intersections);
+        RowEncoder encoder = new RowEncoder();                  // Buffer is reused by files of all junctions.
+        for (Junction junction : findJunctions(detection, filter, area)) {
+            try(Writer writer = new ChannelWriter(String.format("%s_s%d_l%d_x%d_c%d_i%d_%d%s", fileName.substring(0, fileName.lastIndexOf('.')), junction.getNumberOfSides(), junction.getNumberOfLevels(), junction.getNumberOfCrossingPoints(), junction.getNumberOfConflictRoads(), junction.getNumberOfIntersectionPoints(), junction.getId(), fileName.substring(fileName.lastIndexOf('.'))))) {
+                encoder.setWriter(writer);
+                encoder.append(Road.getLabels());
+                for(Road road : junction.getOutputRoads()) {
+                    road.encode(encoder);
+                    encoder.flushIfFull();
                 }
+                encoder.flush();
+                junctionNo++;
+            } catch (IOException e) {
+                return -1;
             }
         }
-        if (junctionNo == 0) {
-            System.out.println("No junctions found with given parameters!");
-        } else {
-            System.out.println(String.format("%d junction%s file%s created!", junctionNo, ((junctionNo == 1) ? "" : "s"), ((junctionNo == 1) ? "" : "s")));
-        }
-        System.out.print("> ");
-        return 0;
+        return junctionNo;
     }
 
-    // [</>/=][unsigned_integer] OR [unsigned_integer_from];[unsigned_integer_to]
-    private boolean isMeetRequirement(int value, String requirement) {
-        if(requirement == null) {
-            return true;
-        } else {
-            if(requirement.indexOf('-') > 0) {
-                String[] range = requirement.split("-");
-                if(range.length == 2) {
-                    int from;
-                    int to;
-                    try {
-                        from = Integer.parseInt(range[0]);
-                        to = Integer.parseInt(range[1]);
-                    } catch (NumberFormatException e) {
-                        return true;
-                    }
-                    if(from <= value && value <= to) {
-                        return true;
-                    } else {
-                        return false;
-                    }
-                } else {
-                    return true;
-                }
-            } else {
-                int conditionValue;
-                try {
-                    conditionValue = Integer.parseInt(requirement.substring(1));
-                } catch (NumberFormatException e) {
-                    return true;
-                }
-                switch (requirement.substring(0,1)) {
-                    case "=":   if(value == conditionValue) {
-                                    return true;
-                                } else {
-                                    return false;
-                                }
-                    case ">":   if(value > conditionValue) {
-                                    return true;
-                                } else {
-                                    return false;
-                                }
-                    case "<":   if(value < conditionValue) {
-                                    return true;
-                                } else {
-                                    return false;
-                                }
-                    default:    return true;
+    /**
+     * Writes roads of all junctions, which meet given requirements, into one file instead of file per junction, see {@link JunctionFilter}.
+     * Every row has ID of its junction. Rows of a junction follow each other, their place in the file is written to the index file:
+     * ID and metrics of junction, offset of its first row in bytes from the start of the file and length of its rows in bytes.
+     * @param fileName Path to the file of roads.
+     * @param indexFileName Path to the index file.
+     * @param detection Results of detection, whose junctions are written.
+     * @param area Only junctions, whose envelopes intersect this area, are written. Null - junctions are not restricted by area.
+     * @return Number of written junctions. -1 - if output folder does not exist.
+     */
+    public int toFileJunctionsArchive(String fileName, String indexFileName, Detection detection, Envelope area, String crossingPoints, String sides, String levels, String conflictRoads, String intersections) {
+        List<Junction> junctions = findJunctions(detection, new JunctionFilter(crossingPoints, sides, levels, conflictRoads, intersections), area);
+        try(ChannelWriter writer = new ChannelWriter(fileName);
+            ChannelWriter indexWriter = new ChannelWriter(indexFileName)) {
+            RowEncoder encoder = new RowEncoder(writer);
+            RowEncoder indexEncoder = new RowEncoder(indexWriter);
+            encoder.append(Road.getJunctionLabels());
+            indexEncoder.append(Junction.getIndexLabels());
+            for(Junction junction : junctions) {
+                encoder.flush();
+                long offset = writer.getPosition();
+                for(Road road : junction.getOutputRoads()) {
+                    road.encode(encoder, junction.getId());
+                    encoder.flushIfFull();
                 }
+                encoder.flush();
+                junction.encodeIndexRow(indexEncoder, offset, writer.getPosition() - offset);
+                indexEncoder.flushIfFull();
+            }
+            encoder.flush();
+            indexEncoder.flush();
+        } catch (IOException e) {
+            return -1;
+        }
+        return junctions.size();
+    }
+
+    /**
+     * @param area Null - junctions are not restricted by area.
+     * @return Junctions, which meet requirements of given filter and whose envelopes intersect given area, in order of detection.
+     */
+    public static List<Junction> findJunctions(Detection detection, JunctionFilter filter, Envelope area) {
+        List<Junction> junctions = detection.getJunctionIndex().find(filter);
+        if(area == null) {
+            return junctions;
+        }
+        Set<Junction> inArea = new HashSet<>(detection.getJunctionTree().find(area));
+        List<Junction> found = new ArrayList<>();
+        for(Junction junction : junctions) {
+            if(inArea.contains(junction)) {
+                found.add(junction);
             }
         }
+        return found;
     }
 
     /**
@@ -188,117 +224,131 @@ public class Map {
      * @param fileName Path to CSV format file containing map data.
      */
     private void read(String fileName) throws IOException, CmdException {
-
+        if(settings.isParallel()) {
+            readMapped(fileName);
+            return;
+        }
         String line = "";
-        int coordinatesColumn;
-        int directionColumn;
-        int layerColumn;
-        int classColumn = -1;
-        boolean filter = false;
         long fileLine = 1;
         int count10k = 0;
         long margin = 10000;
 
-        BufferedReader br = new BufferedReader(new FileReader(fileName));
-        if((line = br.readLine()) != null) {
-            String[] labels = line.split(CSV_SPLITTER);
-            try {
-                coordinatesColumn = searchLabel(labels, COORDINATES);
-                if(coordinatesColumn != 0) {
-                    throw new NoSuchElementException(COORDINATES + " column must be first!");
+        try(BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            if((line = br.readLine()) != null) {
+                RowParser parser = createParser(line, fileName);
+                if(parser == null) {
+                    return;
+                }
+                while ((line = br.readLine()) != null) {
+                    if(++fileLine == margin) {
+                        count10k++;
+                        print(count10k%10);
+                        margin += 10000L;
+                    }
+                    CsvRow row = parser.parse(line, fileLine);
+                    if(row != null) {
+                        addRow(row, fileName);
+                    }
                 }
-                directionColumn = searchLabel(labels, TRAFFIC_DIRECTION);
-                layerColumn = searchLabel(labels, LAYER);
-            } catch (NoSuchElementException e) {
-                System.err.println(String.format("At %s, line %d:%n%s", fileName, fileLine, e.getMessage()));
-                System.out.println("> ");
-                return;
             }
-            try {
-                classColumn = searchLabel(labels, CLASS);
-                filter = true;
-            } catch (NoSuchElementException e) {
+        }
+    }
 
-            }
-            while ((line = br.readLine()) != null) {
-                if(++fileLine == margin) {
-                    count10k++;
-                    System.out.print(count10k%10);
-                    margin += 10000L;
+    /**
+     * Method memory-maps CSV format file and parses its chunks on several threads.
+     * Parsed rows are added to the map in the same order as they are in the file,
+     * so created structure is the same as reading file line by line.
+     * @param fileName Path to CSV format file containing map data.
+     */
+    private void readMapped(String fileName) throws IOException {
+        long fileLine = 1;
+        int count10k = 0;
+        long margin = 10000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getThreads());
+        try(MappedCsvReader reader = new MappedCsvReader(fileName, settings.getThreads())) {
+            String header = reader.readHeader();
+            if(header != null) {
+                RowParser parser = createParser(header, fileName);
+                if(parser == null) {
+                    return;
                 }
-                int coordinateStart = line.indexOf("\"");
-                int coordinateEnd = line.indexOf("\"", coordinateStart + 1);
-                String coordinates = line.substring(coordinateStart, coordinateEnd + 1);
-                line = line.substring(coordinateEnd + 1);
-                int index;
-                while((index = line.indexOf("\"")) >= 0) {
-                    String cleanString = line.substring(0,index);
-                    int index2 = line.indexOf("\"", index + 1);
-                    cleanString += line.substring(index+1, index2).replace(',','.');
-                    if(index2+1 < line.length()) {
-                        line = line.substring(index2+1);
-                        line = cleanString + line;
-                    } else {
-                        line = cleanString;
+                MappedCsvReader.Chunks chunks = reader.parse(parser, executor);
+                MappedCsvReader.Chunk chunk;
+                while((chunk = chunks.next()) != null) {
+                    for(CsvRow row : chunk.getRows()) {
+                        row.setLineNumber(fileLine + row.getLineNumber());
+                        addRow(row, fileName);
                     }
-                }
-                String[] columns = line.split(CSV_SPLITTER);
-
-                if(filter) {
-                    if(!columns[classColumn].equals("motorway") && !columns[classColumn].equals("motorway_link") && !columns[classColumn].equals("primary") && !columns[classColumn].equals("primary_link") && !columns[classColumn].equals("secondary") && !columns[classColumn].equals("secondary_link") && !columns[classColumn].equals("tertiary") && !columns[classColumn].equals("tertiary_link") && !columns[classColumn].equals("trunk") && !columns[classColumn].equals("trunk_link") && !columns[classColumn].equals("unclassified") && !columns[classColumn].equals("unknown") && !columns[classColumn].equals("")) {
-                        continue;
+                    fileLine += chunk.getLines();
+                    while(fileLine >= margin) {
+                        count10k++;
+                        print(count10k%10);
+                        margin += 10000L;
                     }
                 }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                int layer;
-                try {
-                    layer = Integer.parseInt(columns[layerColumn]);
-                } catch (NumberFormatException e) {
-                    System.err.println(String.format("At %s, line %d:%n%s", fileName, fileLine, e));
-                    System.out.print("> ");
-                    continue;
-                }
+    /**
+     * @param header Labels line of CSV file.
+     * @param fileName Path to CSV format file, used in error message.
+     * @return Parser for the rows of the file or null if labels are not valid.
+     */
+    private RowParser createParser(String header, String fileName) {
+        try {
+            return new RowParser(header);
+        } catch (NoSuchElementException e) {
+            System.err.println(String.format("At %s, line %d:%n%s", fileName, 1, e.getMessage()));
+            println("> ");
+            return null;
+        }
+    }
 
-                coordinates = coordinates.substring(coordinates.lastIndexOf('(')+1 , coordinates.indexOf(')'));
-                String[] pointsCoordinates = coordinates.split(",");
-                LinkedList<Point> newPoints = new LinkedList<>();
-                try {
-                    for(int i=0; i<pointsCoordinates.length; i++) {
-                        Point newPoint = parseCoordinates(pointsCoordinates[i]);
-                        newPoints.add(newPoint);
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println(String.format("%s%nAt %s, line %d:%n%s", line, fileName, fileLine, e));
-                    System.out.print("> ");
-                    continue;
-                }
-                char way = ' ';
-                if(columns[directionColumn].length() > 0) {
-                    way = columns[directionColumn].charAt(0);
+    /**
+     * Creates vertices and segments of the given row and adds segments to the buckets.
+     * @param row Parsed row of CSV file.
+     * @param fileName Path to CSV format file, used in error messages.
+     */
+    private void addRow(CsvRow row, String fileName) {
+        if(row.isRejected()) {
+            System.err.println(row.getMessage(fileName));
+            print("> ");
+            return;
+        }
+        double[] coordinates = row.getCoordinates();
+        int[] newPoints = new int[row.getNumberOfPoints()];
+        for(int i=0; i<newPoints.length; i++) {
+            newPoints[i] = vertices.firstOrNew(coordinates[2*i], coordinates[2*i+1]);
+        }
+        for(int part=0; part<row.getNumberOfParts(); part++) {
+            for(int i=row.getPartStart(part)+1; i<row.getPartEnd(part); i++) {
+                int firstPoint = newPoints[i-1];
+                int secondPoint = newPoints[i];
+
+                Segment segment;
+                switch (row.getWay()) {
+                    case 'F':   segment = new Segment(vertices, firstPoint, secondPoint, false, row.getLayer());
+                        break;
+                    case 'T':   segment = new Segment(vertices, secondPoint, firstPoint, false, row.getLayer());
+                        break;
+                    case 'B':   segment = new Segment(vertices, firstPoint, secondPoint, true, row.getLayer());
+                        break;
+                    default:    System.err.println(row.getMessage(fileName));
+                        print("> ");
+                        continue;
                 }
-                while(newPoints.size() > 1) {
-                    Point firstPoint = newPoints.getFirst();
-                    newPoints.removeFirst();
-
-                    Segment segment;
-                    switch (way) {
-                        case 'F':   segment = new Segment(firstPoint, newPoints.getFirst(), false, layer);
-                            break;
-                        case 'T':   segment = new Segment(newPoints.getFirst(), firstPoint, false, layer);
-                            break;
-                        case 'B':   segment = new Segment(firstPoint, newPoints.getFirst(), true, layer);
-                            break;
-                        default:    System.err.println(String.format("%s%nAt %s, line %d:%nTraffic direction value \"%c\" is unrecognizable.", line, fileName, fileLine, way));
-                            System.out.print("> ");
-                            continue;
-                    }
-                    firstPoint.addConnectingSegment(segment);
-                    newPoints.getFirst().addConnectingSegment(segment);
-                    allSegments.add(segment);
-                    addSegmentToBucket(segment, firstPoint.getLatitudeBucket(), firstPoint.getLongitudeBucket());
-                    if(firstPoint.getLatitudeBucket() != newPoints.getFirst().getLatitudeBucket() || firstPoint.getLongitudeBucket() != newPoints.getFirst().getLongitudeBucket()) {
-                        addSegmentToBucket(segment, newPoints.getFirst().getLatitudeBucket(), newPoints.getFirst().getLongitudeBucket());
-                    }
+                allSegments.add(segment);
+                int firstLatitudeBucket = Point.getBucketKey(vertices.getLatitude(firstPoint));
+                int firstLongitudeBucket = Point.getBucketKey(vertices.getLongitude(firstPoint));
+                int secondLatitudeBucket = Point.getBucketKey(vertices.getLatitude(secondPoint));
+                int secondLongitudeBucket = Point.getBucketKey(vertices.getLongitude(secondPoint));
+                addSegmentToBucket(segment, firstLatitudeBucket, firstLongitudeBucket);
+                if(firstLatitudeBucket != secondLatitudeBucket || firstLongitudeBucket != secondLongitudeBucket) {
+                    addSegmentToBucket(segment, secondLatitudeBucket, secondLongitudeBucket);
                 }
             }
         }
@@ -323,35 +373,12 @@ public class Map {
         }
     }
 
-    /**
-     * Parse latitude and longitude coordinates which are separated by white space and are given as one String object,
-     * to double values and returns Point object with those coordinates.
-     * @param coordString String containing GPS coordinates.
-     * @return Pointer to new or existing point with given GPS coordinates.
-     */
-    private Point parseCoordinates(String coordString) {
-        String[] coordinates = coordString.split(" ");
-        double latitude = Double.parseDouble(coordinates[0]);
-        double longitude = Double.parseDouble(coordinates[1]);
-        return Point.firstOrNew(latitude, longitude, points);
-    }
-
-    /**
-     * Search for given label in array of strings.
-     * @param labels Array of labels.
-     * @param label Method is looking for this label.
-     * @return Label column id or NoSuchElementException if not found.
-     */
-    private int searchLabel(String[] labels, String label) {
-        for(int i=0; i<labels.length; i++) {
-            if (labels[i].equals(label)) {
-                return i;
-            }
-        }
-        throw new NoSuchElementException(String.format("Label \"%s\" was not found.", label));
-    }
-
     private void aggregate() {
+        vertices.buildAdjacency(allSegments);
+        if(settings.isParallel()) {
+            aggregateParallel();
+            return;
+        }
         int roadNo = 1;
         double onePercent = (double) allSegments.size() / 100D;
         double margin = onePercent;
@@ -368,42 +395,71 @@ public class Map {
                 }
             }
             if(++segmentNo >= margin) {
-                System.out.print(unit%10);
+                print(unit%10);
                 unit++;
                 margin += onePercent;
             }
         }
     }
 
+    /**
+     * Method aggregates components of segments on several threads. Relations of the roads are applied
+     * and ids are given here on one thread, in order of segments from which roads were started,
+     * so roads and their relations are the same as after sequential aggregation.
+     */
+    private void aggregateParallel() {
+        Road[] startedRoads = new ComponentAggregation(settings.getThreads()).aggregate(vertices);
+        int roadNo = 1;
+        double onePercent = (double) startedRoads.length / 100D;
+        double margin = onePercent;
+        int segmentNo = 0;
+        int unit = 1;
+        for(Road newRoad : startedRoads) {
+            if(newRoad != null) {
+                if(newRoad.applyDeferred(roadNo)) {
+                    roads.add(newRoad);
+                    roadNo++;
+                } else {
+                    continue;
+                }
+            }
+            if(++segmentNo >= margin) {
+                print(unit%10);
+                unit++;
+                margin += onePercent;
+            }
+        }
+    }
+
+    /**
+     * Method searches crossings in every cell of the grid and creates crossing points.
+     * Cells are searched on several threads if it is set, see {@link Settings#getCrossingThreads()}, but crossing points are created in order of cells,
+     * so their order and ids of junctions are the same for any number of threads.
+     */
     private void findCrossings() {
+        List<List<Segment>> cells = new ArrayList<>();
+        for (Integer latitudeBucket : segments.keySet()) {
+            cells.addAll(segments.get(latitudeBucket).values());
+        }
+        List<List<Crossing>> cellCrossings = new CrossingSearch(settings.getCrossingThreads(), settings.getCrossingEngine()).search(cells);
+
         double step = (double) segments.keySet().size() / 10D;
         double margin = step;
         int bucketNo = 0;
         int unit = 1;
-        List<Point> newCrossingPoints = new ArrayList<>();
+        int cellNo = 0;
+        Set<Point> newCrossingPoints = new HashSet<>();
         for (Integer latitudeBucket : segments.keySet()) {
-            for(Integer longitudeBucket : segments.get(latitudeBucket).keySet()) {
-                ArrayList<Segment> bucket = segments.get(latitudeBucket).get(longitudeBucket);
-                for(int i=0; i<bucket.size()-1; i++) {
-                    for(int j=i+1; j<bucket.size(); j++) {
-                        Segment a = bucket.get(i);
-                        Segment b = bucket.get(j);
-                        if(a.getLayer() != b.getLayer() && !a.isCorrupted() && !b.isCorrupted()) {
-                            try {
-                                Point crossingPoint = a.findCrossing(b, points);
-                                if(!newCrossingPoints.contains(crossingPoint)) {
-                                    newCrossingPoints.add(crossingPoint);
-                                    crossingPoints.add(new CrossingPoint(crossingPoint, a, b));
-                                }
-                            } catch (NoCrossingException e) {
-                                continue;
-                            }
-                        }
+            for(int i=0; i<segments.get(latitudeBucket).size(); i++) {
+                for(Crossing crossing : cellCrossings.get(cellNo++)) {
+                    Point crossingPoint = vertices.getPoint(vertices.firstOrNew(crossing.getLatitude(), crossing.getLongitude()));
+                    if(newCrossingPoints.add(crossingPoint)) {
+                        crossingPoints.add(new CrossingPoint(crossingPoint, crossing.getSegmentA(), crossing.getSegmentB()));
                     }
                 }
             }
             if(++bucketNo >= margin*unit) {
-                System.out.print("1234567890");
+                print("1234567890");
                 unit++;
             }
         }
@@ -421,6 +477,20 @@ public class Map {
         roads.addAll(newRoads);
     }
 
+    /**
+     * Indexes of roads and crossing points are used by detection of junctions, see {@link Detection}.
+     */
+    private void setIndexes() {
+        int index = 0;
+        for(Road road : roads) {
+            road.setIndex(index++);
+        }
+        index = 0;
+        for(CrossingPoint crossingPoint : crossingPoints) {
+            crossingPoint.setIndex(index++);
+        }
+    }
+
     private void sortCrossingPoints() {
         for(Road road : roads) {
             road.sortCrossingPoints();
@@ -433,55 +503,223 @@ public class Map {
      * @param maxLength Distance of path which connects two interchanging roads.
      */
     public void findConnections(int maxDepth, double maxLength) {
-        System.out.print("Detecting junctions:         0");
+        findConnections(new int[] {maxDepth}, new double[] {maxLength});
+    }
+
+    /**
+     * Method starts detection of interchanges for every pair of given parameters. Roads are searched only once
+     * with the loosest parameters, see {@link ConnectionSearch}, and results of each pair are the same as
+     * results of detection with these parameters alone. If more than one pair is given, statistics of each pair are printed.
+     * Results of the last pair are kept as results of the map, see {@link #getDetection()}.
+     * @param maxDepths Numbers of roads at which maxLength exceeding is ignored.
+     * @param maxLengths Distances of path which connects two interchanging roads.
+     * @return Results of each pair, pairs are ordered by number of roads and then by length, in order they are given.
+     */
+    public List<Detection> findConnections(int[] maxDepths, double[] maxLengths) {
+        print("Detecting junctions:         0");
         long start = System.currentTimeMillis();
         double step = (double) crossingPoints.size() / 50D;
-        int segmentNo = 0;
-        int unit = 1;
-        for(CrossingPoint crossingPoint : crossingPoints) {
-            if(crossingPoint.getBottomRoad().detectConnections(crossingPoint.getTopRoad(), crossingPoint, maxDepth, maxLength)) {
-                crossingPoint.setConnectionExist(true);
-                crossingPoint.addConnectingRoad(crossingPoint.getBottomRoad());
+        ConnectionPaths paths = new ConnectionPaths(roads);
+        List<Detection> detections = new ArrayList<>();
+        for(int maxDepth : maxDepths) {
+            for(double maxLength : maxLengths) {
+                detections.add(new Detection(crossingPoints.size(), paths, maxDepth, maxLength));
             }
-            if(++segmentNo >= step*unit) {
-                System.out.print(unit%10);
-                unit++;
+        }
+        createPoints();                         // Point objects are created on this thread before detection and analysis.
+        if(settings.isParallel()) {
+            findConnectionsParallel(detections, step);
+        } else {
+            ConnectionSearch search = new ConnectionSearch(vertices.size(), detections);
+            int segmentNo = 0;
+            int unit = 1;
+            for(CrossingPoint crossingPoint : crossingPoints) {
+                search.detect(crossingPoint);
+                if(++segmentNo >= step*unit) {
+                    print(unit%10);
+                    unit++;
+                }
+            }
+            for(Detection detection : detections) {
+                detection.addCounters(search.getExpanded(), search.getPruned());
+            }
+        }
+        boolean isProgressPrinted = detections.size() == 1;
+        for(Detection detection : detections) {
+            this.detection = detection;
+            groupJunctions(isProgressPrinted);
+            analyseJunctions(isProgressPrinted);
+        }
+        long elapsedTime = (System.currentTimeMillis() - start);
+        println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
+        if(settings.isVerbose()) {
+            println(String.format("> Connection search: %d roads expanded, %d branches pruned", detection.getExpanded(), detection.getPruned()));
+        }
+        if(detections.size() > 1) {
+            for(Detection result : detections) {
+                println(String.format("> %s: %d junctions, %d crossing points with connections, %d connections",
+                        result.getName(), result.getJunctions().size(), result.getNumberOfConnectedCrossingPoints(), result.getNumberOfConnections()));
             }
         }
-        groupJunctions(start);
+        print("> ");
+        return detections;
+    }
+
+    /**
+     * @return Results of the last detection of junctions. Null - junctions are not detected.
+     */
+    public Detection getDetection() {
+        return detection;
+    }
+
+    /**
+     * @return All roads of the map, including copies of both way roads, see {@link Road#isCopy()}.
+     */
+    public List<Road> getRoads() {
+        return roads;
     }
 
-    private void groupJunctions(long start) {
+    public List<CrossingPoint> getCrossingPoints() {
+        return crossingPoints;
+    }
+
+    /**
+     * Tree is created on the first call. Outputs may call it on different threads.
+     * @return R-tree of roads of the map, which are written to output, copies of both way roads are left out.
+     */
+    public synchronized EnvelopeTree<Road> getRoadTree() {
+        if(roadTree == null) {
+            List<Road> originalRoads = new ArrayList<>();
+            List<Envelope> envelopes = new ArrayList<>();
+            for(Road road : roads) {
+                if(!road.isCopy()) {
+                    originalRoads.add(road);
+                    envelopes.add(road.getEnvelope());
+                }
+            }
+            roadTree = new EnvelopeTree<>(originalRoads, envelopes);
+        }
+        return roadTree;
+    }
+
+    /**
+     * Tree is created on the first call. Outputs may call it on different threads.
+     * @return R-tree of all crossing points of the map.
+     */
+    public synchronized EnvelopeTree<CrossingPoint> getCrossingPointTree() {
+        if(crossingPointTree == null) {
+            List<Envelope> envelopes = new ArrayList<>(crossingPoints.size());
+            for(CrossingPoint crossingPoint : crossingPoints) {
+                Point point = crossingPoint.getCrossingPoint();
+                envelopes.add(new Envelope(point.getLatitude(), point.getLongitude(), point.getLatitude(), point.getLongitude()));
+            }
+            crossingPointTree = new EnvelopeTree<>(crossingPoints, envelopes);
+        }
+        return crossingPointTree;
+    }
+
+    private void createPoints() {
+        for(Road road : roads) {
+            road.getStart();
+            road.getEnd();
+        }
+    }
+
+    /**
+     * Detects connections of crossing points on several threads, see {@link ConnectionDetection}.
+     * Progress is printed by this thread while detection runs, the same digits as sequential detection prints.
+     * @param detections Results of detections, see {@link ConnectionSearch}.
+     * @param step Number of crossing points for one printed digit of progress.
+     */
+    private void findConnectionsParallel(List<Detection> detections, double step) {
+        ConnectionDetection connectionDetection = new ConnectionDetection(vertices.size(), detections);
+        connectionDetection.start(settings.getThreads(), crossingPoints);
+        int segmentNo = 0;
+        int unit = 1;
+        boolean isFinished;
+        do {
+            isFinished = connectionDetection.await(100);
+            int numberOfDone = connectionDetection.getNumberOfDone();
+            while(segmentNo < numberOfDone) {
+                if(++segmentNo >= step*unit) {
+                    print(unit%10);
+                    unit++;
+                }
+            }
+        } while(!isFinished);
+    }
+
+    private void groupJunctions(boolean isProgressPrinted) {
         double step = (double) crossingPoints.size() / 25D;
         int segmentNo = 0;
         int unit = 1;
         int junctionNo = 0;
+        JunctionGrouping grouping = new JunctionGrouping(detection);
         for(CrossingPoint crossingPoint : crossingPoints) {
-            if(crossingPoint.isConnectionExist() && !crossingPoint.isJunctionSet()) {
-                Junction junction = new Junction(crossingPoint, ++junctionNo);
-                junctions.add(junction);
+            if(detection.isConnectionExist(crossingPoint) && !detection.isJunctionSet(crossingPoint)) {
+                detection.addJunction(grouping.group(crossingPoint, ++junctionNo));
             }
-            if(++segmentNo >= step*unit) {
-                System.out.print(unit%10);
+            if(++segmentNo >= step*unit && isProgressPrinted) {
+                print(unit%10);
                 unit++;
             }
         }
-        analyseJunctions(start);
     }
 
-    private void analyseJunctions(long start) {
-        double step = (double) junctions.size() / 25D;
+    private void analyseJunctions(boolean isProgressPrinted) {
+        double step = (double) detection.getJunctions().size() / 25D;
+        if(settings.isParallel()) {
+            analyseJunctionsParallel(step, isProgressPrinted);
+            return;
+        }
         int segmentNo = 0;
         int unit = 1;
-        for(Junction junction : junctions) {
+        for(Junction junction : detection.getJunctions()) {
             junction.analyse(isRightHandTraffic);
-            if(++segmentNo >= step*unit) {
-                System.out.print((unit+5)%10);
+            if(++segmentNo >= step*unit && isProgressPrinted) {
+                print((unit+5)%10);
                 unit++;
             }
         }
-        long elapsedTime = (System.currentTimeMillis() - start);
-        System.out.println(String.format(" SUCCESS! [%.3f s]", elapsedTime/1000F));
-        System.out.print("> ");
+    }
+
+    /**
+     * Analyses junctions on several threads, see {@link JunctionAnalysis}.
+     * Progress is printed by this thread while analysis runs, the same digits as sequential analysis prints.
+     * @param step Number of junctions for one printed digit of progress.
+     */
+    private void analyseJunctionsParallel(double step, boolean isProgressPrinted) {
+        JunctionAnalysis junctionAnalysis = new JunctionAnalysis(isRightHandTraffic);
+        junctionAnalysis.start(settings.getThreads(), detection.getJunctions());
+        int segmentNo = 0;
+        int unit = 1;
+        boolean isFinished;
+        do {
+            isFinished = junctionAnalysis.await(100);
+            int numberOfDone = junctionAnalysis.getNumberOfDone();
+            while(segmentNo < numberOfDone) {
+                if(++segmentNo >= step*unit && isProgressPrinted) {
+                    print((unit+5)%10);
+                    unit++;
+                }
+            }
+        } while(!isFinished);
+    }
+
+    /**
+     * Prints progress or message to the console, unless quiet mode is set, see {@link Settings#isQuiet()}.
+     */
+    private void print(String text) {
+        if(!settings.isQuiet()) {
+            System.out.print(text);
+        }
+    }
+
+    private void print(int digit) {
+        print(String.valueOf(digit));
+    }
+
+    private void println(String line) {
+        print(line + System.lineSeparator());
     }
 }
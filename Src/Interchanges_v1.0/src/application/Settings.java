@@ -0,0 +1,71 @@
+package application;
+
+import engine.CrossingEngine;
+import engine.SweepEngine;
+
+public class Settings {
+
+    private int threads = 1;
+    private int crossingThreads = 1;
+    private CrossingEngine crossingEngine = new SweepEngine();
+    private boolean isQuiet = false;
+    private boolean isVerbose = false;
+
+    /**
+     * @return Number of worker threads. 1 - everything is processed sequentially.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public boolean isParallel() {
+        return threads > 1;
+    }
+
+    /**
+     * Crossing search has its own number of threads, because parallel search was not measured faster yet, see {@link engine.CrossingSearch}.
+     * @return Number of threads of crossing search. 1 - cells are searched sequentially.
+     */
+    public int getCrossingThreads() {
+        return crossingThreads;
+    }
+
+    public void setCrossingThreads(int crossingThreads) {
+        this.crossingThreads = crossingThreads;
+    }
+
+    public CrossingEngine getCrossingEngine() {
+        return crossingEngine;
+    }
+
+    public void setCrossingEngine(CrossingEngine crossingEngine) {
+        this.crossingEngine = crossingEngine;
+    }
+
+    /**
+     * @return True - prompts, progress digits and messages of stages are not printed, only errors are printed.
+     */
+    public boolean isQuiet() {
+        return isQuiet;
+    }
+
+    public void setQuiet(boolean isQuiet) {
+        this.isQuiet = isQuiet;
+    }
+
+    /**
+     * @return True - statistics of connection search are printed after detection. Counters of parallel search
+     * depend on scheduling of threads, so they may differ between runs with more than one thread.
+     */
+    public boolean isVerbose() {
+        return isVerbose;
+    }
+
+    public void setVerbose(boolean isVerbose) {
+        this.isVerbose = isVerbose;
+    }
+}
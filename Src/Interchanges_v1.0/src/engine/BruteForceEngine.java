@@ -0,0 +1,30 @@
+package engine;
+
+import mapObject.Segment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks every pair of segments of the cell.
+ */
+public class BruteForceEngine implements CrossingEngine {
+
+    @Override
+    public List<Crossing> findCrossings(List<Segment> cell) {
+        List<Crossing> crossings = new ArrayList<>();
+        for(int i=0; i<cell.size()-1; i++) {
+            for(int j=i+1; j<cell.size(); j++) {
+                Segment a = cell.get(i);
+                Segment b = cell.get(j);
+                if(a.getLayer() != b.getLayer() && !a.isCorrupted() && !b.isCorrupted()) {
+                    double t = a.intersect(b);
+                    if(t != Segment.NO_CROSSING) {
+                        crossings.add(new Crossing(a, b, t));
+                    }
+                }
+            }
+        }
+        return crossings;
+    }
+}
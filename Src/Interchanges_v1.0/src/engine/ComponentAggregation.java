@@ -0,0 +1,144 @@
+package engine;
+
+import index.VertexStore;
+import mapObject.Road;
+import mapObject.Segment;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Aggregates roads on several threads. Segments are joined into components by union-find at every vertex,
+ * which is not end of road. Aggregation of a road never passes end of road, so every component is aggregated
+ * independently of others and components are given to the threads of ForkJoinPool.
+ * Roads are created with deferred relations, see {@link Road#Road(Segment)}.
+ */
+public class ComponentAggregation {
+
+    private static final int MIN_SEGMENTS_PER_TASK = 1 << 12;   // Smaller tasks are not split.
+
+    private int threads;
+    private VertexStore vertices;
+    private int[] componentStarts;      // Segments of component c are componentSegments[componentStarts[c]] ... componentSegments[componentStarts[c+1]-1].
+    private int[] componentSegments;
+    private Road[] roads;
+
+    /**
+     * @param threads Number of threads.
+     */
+    public ComponentAggregation(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Adjacency of given vertices must be built.
+     * @param vertices Store of all vertices and segments of the map.
+     * @return Roads by index of the segment from which aggregation was started, null for other segments.
+     * Roads are in the same order as sequential aggregation creates them and their relations are not applied yet.
+     */
+    public Road[] aggregate(VertexStore vertices) {
+        this.vertices = vertices;
+        findComponents();
+        roads = new Road[vertices.getNumberOfSegments()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ComponentsTask(0, componentStarts.length - 1));
+        } finally {
+            pool.shutdown();
+        }
+        return roads;
+    }
+
+    /**
+     * Components are ordered by their first segment and segments of each component are in the same order as in the map.
+     */
+    private void findComponents() {
+        int numberOfSegments = vertices.getNumberOfSegments();
+        int[] parents = new int[numberOfSegments];
+        for(int i=0; i<numberOfSegments; i++) {
+            parents[i] = i;
+        }
+        for(int vertex=0; vertex<vertices.size(); vertex++) {
+            if(!vertices.isEndOfRoad(vertex)) {
+                int a = find(parents, vertices.getConnectingSegmentIndex(vertex, 0));
+                int b = find(parents, vertices.getConnectingSegmentIndex(vertex, 1));
+                if(a < b) {                     // Root is the first segment of component.
+                    parents[b] = a;
+                } else {
+                    parents[a] = b;
+                }
+            }
+        }
+        int[] componentOfRoot = new int[numberOfSegments];
+        int[] sizes = new int[numberOfSegments + 1];
+        int numberOfComponents = 0;
+        for(int i=0; i<numberOfSegments; i++) {
+            int root = find(parents, i);
+            if(root == i) {
+                componentOfRoot[i] = numberOfComponents++;
+            }
+            parents[i] = root;
+            sizes[componentOfRoot[root] + 1]++;
+        }
+        componentStarts = new int[numberOfComponents + 1];
+        for(int c=0; c<numberOfComponents; c++) {
+            componentStarts[c + 1] = componentStarts[c] + sizes[c + 1];
+        }
+        componentSegments = new int[numberOfSegments];
+        int[] next = sizes;
+        System.arraycopy(componentStarts, 0, next, 0, numberOfComponents);
+        for(int i=0; i<numberOfSegments; i++) {
+            componentSegments[next[componentOfRoot[parents[i]]]++] = i;
+        }
+    }
+
+    private static int find(int[] parents, int i) {
+        while(parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Aggregates segments of one component in the same order as sequential aggregation does.
+     * @param component Index of component.
+     */
+    private void aggregateComponent(int component) {
+        for(int k=componentStarts[component]; k<componentStarts[component + 1]; k++) {
+            int index = componentSegments[k];
+            Segment segment = vertices.getSegment(index);
+            if(!segment.isAggregated() && !segment.isCorrupted()) {
+                roads[index] = new Road(segment);
+            }
+        }
+    }
+
+    /**
+     * Aggregates range of components. Range is split in halves until it has one component or few segments.
+     */
+    private class ComponentsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+
+        ComponentsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from == 1 || componentStarts[to] - componentStarts[from] <= MIN_SEGMENTS_PER_TASK) {
+                for(int component=from; component<to; component++) {
+                    aggregateComponent(component);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ComponentsTask(from, middle), new ComponentsTask(middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package engine;
+
+import mapObject.ConnectionSearch;
+import mapObject.CrossingPoint;
+import mapObject.Detection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detects connections of crossing points on several threads. Search of one crossing point only reads roads
+ * and writes only to its own crossing point, so crossing points are given to the threads of ForkJoinPool
+ * and every crossing point gets the same connecting roads and paths in the same order as sequential detection gives.
+ * Every thread has its own scratch state of the search, which is reused for all crossing points detected on that thread.
+ * Point objects of road ends must be created before detection starts, see {@link index.VertexStore#getPoint(int)}.
+ */
+public class ConnectionDetection {
+
+    private static final int MAX_CROSSING_POINTS_PER_TASK = 8;     // Cost of search differs much between crossing points, so tasks are small.
+
+    private int numberOfVertices;
+    private List<Detection> detections;
+    private List<CrossingPoint> crossingPoints;
+    private AtomicInteger numberOfDone = new AtomicInteger();
+    private ForkJoinPool pool;
+    private ForkJoinTask<Void> task;
+    private List<ConnectionSearch> searches = new ArrayList<>();
+    private ThreadLocal<ConnectionSearch> search = new ThreadLocal<ConnectionSearch>() {
+        @Override
+        protected ConnectionSearch initialValue() {
+            ConnectionSearch search = new ConnectionSearch(numberOfVertices, detections);
+            synchronized(searches) {
+                searches.add(search);
+            }
+            return search;
+        }
+    };
+
+    /**
+     * @param numberOfVertices Number of vertices of the map, see {@link index.VertexStore#size()}.
+     * @param detections Results of detections with their parameters, see {@link ConnectionSearch}.
+     *                   Found connections and counters of the search are added to them.
+     */
+    public ConnectionDetection(int numberOfVertices, List<Detection> detections) {
+        this.numberOfVertices = numberOfVertices;
+        this.detections = detections;
+    }
+
+    /**
+     * Starts detection and returns immediately, see {@link #await(long)}.
+     * @param threads Number of threads.
+     * @param crossingPoints Crossing points whose connections are detected.
+     */
+    public void start(int threads, List<CrossingPoint> crossingPoints) {
+        this.crossingPoints = new ArrayList<>(crossingPoints);
+        pool = new ForkJoinPool(threads);
+        task = pool.submit(new CrossingPointsTask(0, this.crossingPoints.size()));
+    }
+
+    /**
+     * Waits until detection is finished or given time passes. When detection is finished, pool is shut down
+     * and counters of all threads are added to the results.
+     * @param milliseconds Maximum time to wait.
+     * @return True - if detection is finished. False - if it still runs.
+     */
+    public boolean await(long milliseconds) {
+        try {
+            task.get(milliseconds, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            pool.shutdown();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Detection of junctions was interrupted.", e);
+        } catch (ExecutionException e) {
+            pool.shutdown();
+            task.join();                // Rethrows exception of the task.
+        }
+        pool.shutdown();
+        synchronized(searches) {
+            for(ConnectionSearch search : searches) {
+                for(Detection detection : detections) {
+                    detection.addCounters(search.getExpanded(), search.getPruned());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of crossing points whose detection is finished.
+     */
+    public int getNumberOfDone() {
+        return numberOfDone.get();
+    }
+
+    /**
+     * Same as one step of sequential detection in {@link application.Map#findConnections(int[], double[])}.
+     */
+    private void detect(CrossingPoint crossingPoint, ConnectionSearch search) {
+        search.detect(crossingPoint);
+        numberOfDone.incrementAndGet();
+    }
+
+    /**
+     * Detects range of crossing points. Range is split in halves until it has few crossing points.
+     */
+    private class CrossingPointsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+
+        CrossingPointsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= MAX_CROSSING_POINTS_PER_TASK) {
+                ConnectionSearch threadSearch = search.get();
+                for(int i=from; i<to; i++) {
+                    detect(crossingPoints.get(i), threadSearch);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CrossingPointsTask(from, middle), new CrossingPointsTask(middle, to));
+            }
+        }
+    }
+}
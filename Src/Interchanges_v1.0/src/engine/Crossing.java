@@ -0,0 +1,40 @@
+package engine;
+
+import mapObject.Segment;
+
+/**
+ * Crossing of two segments, which is found but not yet added to the map.
+ */
+public class Crossing {
+
+    private Segment segmentA;
+    private Segment segmentB;
+    private double parameter;
+
+    /**
+     * @param segmentA First segment.
+     * @param segmentB Second segment.
+     * @param parameter Position of the crossing on the first segment, from 0 (start) to 1 (end).
+     */
+    public Crossing(Segment segmentA, Segment segmentB, double parameter) {
+        this.segmentA = segmentA;
+        this.segmentB = segmentB;
+        this.parameter = parameter;
+    }
+
+    public Segment getSegmentA() {
+        return segmentA;
+    }
+
+    public Segment getSegmentB() {
+        return segmentB;
+    }
+
+    public double getLatitude() {
+        return segmentA.getLatitudeAt(parameter);
+    }
+
+    public double getLongitude() {
+        return segmentA.getLongitudeAt(parameter);
+    }
+}
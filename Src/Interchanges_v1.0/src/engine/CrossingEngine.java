@@ -0,0 +1,20 @@
+package engine;
+
+import mapObject.Segment;
+
+import java.util.List;
+
+/**
+ * Finds crossings between segments of one cell of the grid. Only segments which are in different layers
+ * and are not corrupted can cross. Every engine must return the same crossings in the same order:
+ * ordered by index of the first segment and then by index of the second segment in the cell.
+ * Engine is used by several threads at the same time, so it must not keep state between calls.
+ */
+public interface CrossingEngine {
+
+    /**
+     * @param cell Segments of the cell.
+     * @return Crossings of the cell.
+     */
+    List<Crossing> findCrossings(List<Segment> cell);
+}
@@ -0,0 +1,94 @@
+package engine;
+
+import mapObject.Segment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Searches crossings of segments in the cells of the grid with given engine. Cells are independent, so they are searched
+ * on several threads of ForkJoinPool. Search does not create vertices and does not change segments,
+ * crossings of each cell are returned separately in the same order as cells were given. Caller adds them
+ * to the map on one thread, so created crossing points and their order do not depend on number of threads.
+ * Time with each number of threads is measured by engine.CrossingSearchBench of the <i>bench</i> folder. Speedup was not measured
+ * on several cores yet, so maps are searched on one thread, unless other number is set, see {@link application.Settings#getCrossingThreads()}.
+ */
+public class CrossingSearch {
+
+    private static final long MIN_PAIRS_PER_TASK = 1 << 14;   // Smaller tasks are not split, splitting would cost more than searching.
+
+    private int threads;
+    private CrossingEngine engine;
+
+    /**
+     * @param threads Number of threads. 1 - cells are searched on the calling thread.
+     * @param engine Engine which searches crossings in one cell.
+     */
+    public CrossingSearch(int threads, CrossingEngine engine) {
+        this.threads = threads;
+        this.engine = engine;
+    }
+
+    /**
+     * @param cells Segments of each cell.
+     * @return Crossings found in each cell, in the same order as cells.
+     */
+    public List<List<Crossing>> search(List<? extends List<Segment>> cells) {
+        List<List<Crossing>> results = new ArrayList<>(cells.size());
+        for(int i=0; i<cells.size(); i++) {
+            results.add(null);
+        }
+        if(threads > 1) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new CellsTask(cells, results, 0, cells.size()));
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for(int i=0; i<cells.size(); i++) {
+                results.set(i, engine.findCrossings(cells.get(i)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Searches range of cells. Range is split in halves until it has one cell or few pairs of segments.
+     */
+    private class CellsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private List<? extends List<Segment>> cells;
+        private List<List<Crossing>> results;
+        private int from;
+        private int to;
+
+        CellsTask(List<? extends List<Segment>> cells, List<List<Crossing>> results, int from, int to) {
+            this.cells = cells;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            long pairs = 0;
+            for(int i=from; i<to; i++) {
+                long size = cells.get(i).size();
+                pairs += size * (size - 1) / 2;
+            }
+            if(to - from == 1 || pairs <= MIN_PAIRS_PER_TASK) {
+                for(int i=from; i<to; i++) {
+                    results.set(i, engine.findCrossings(cells.get(i)));
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CellsTask(cells, results, from, middle), new CellsTask(cells, results, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package engine;
+
+import mapObject.Junction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyses junctions on several threads. Analysis of a junction classifies points only for that junction
+ * and writes only to the junction itself, see {@link Junction#analyse(boolean)}, so junctions are given to the threads
+ * of ForkJoinPool and every junction gets the same result as sequential analysis gives.
+ * Point objects of road ends must be created before analysis starts, see {@link index.VertexStore#getPoint(int)}.
+ */
+public class JunctionAnalysis {
+
+    private static final int MAX_JUNCTIONS_PER_TASK = 16;     // Size of junctions differs much, so tasks are small.
+
+    private boolean isRightHandTraffic;
+    private List<Junction> junctions;
+    private AtomicInteger numberOfDone = new AtomicInteger();
+    private ForkJoinPool pool;
+    private ForkJoinTask<Void> task;
+
+    /**
+     * @param isRightHandTraffic True - if right hand traffic. False - if left hand traffic.
+     */
+    public JunctionAnalysis(boolean isRightHandTraffic) {
+        this.isRightHandTraffic = isRightHandTraffic;
+    }
+
+    /**
+     * Starts analysis and returns immediately, see {@link #await(long)}.
+     * @param threads Number of threads.
+     * @param junctions Junctions which are analysed.
+     */
+    public void start(int threads, List<Junction> junctions) {
+        this.junctions = new ArrayList<>(junctions);
+        pool = new ForkJoinPool(threads);
+        task = pool.submit(new JunctionsTask(0, this.junctions.size()));
+    }
+
+    /**
+     * Waits until analysis is finished or given time passes. When analysis is finished, pool is shut down.
+     * @param milliseconds Maximum time to wait.
+     * @return True - if analysis is finished. False - if it still runs.
+     */
+    public boolean await(long milliseconds) {
+        try {
+            task.get(milliseconds, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            pool.shutdown();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Analysis of junctions was interrupted.", e);
+        } catch (ExecutionException e) {
+            pool.shutdown();
+            task.join();                // Rethrows exception of the task.
+        }
+        pool.shutdown();
+        return true;
+    }
+
+    /**
+     * @return Number of junctions whose analysis is finished.
+     */
+    public int getNumberOfDone() {
+        return numberOfDone.get();
+    }
+
+    /**
+     * Analyses range of junctions. Range is split in halves until it has few junctions.
+     */
+    private class JunctionsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int from;
+        private int to;
+
+        JunctionsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= MAX_JUNCTIONS_PER_TASK) {
+                for(int i=from; i<to; i++) {
+                    junctions.get(i).analyse(isRightHandTraffic);
+                    numberOfDone.incrementAndGet();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new JunctionsTask(from, middle), new JunctionsTask(middle, to));
+            }
+        }
+    }
+}
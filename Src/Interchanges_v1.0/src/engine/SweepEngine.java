@@ -0,0 +1,88 @@
+package engine;
+
+import index.VertexStore;
+import mapObject.Segment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted interval sweep over latitude. Segments are visited in order of their lowest latitude and each of them
+ * is compared only with active segments, whose latitude interval is not passed yet, and only if longitude
+ * intervals overlap too. Pairs which are left are checked in the same order as brute force checks them,
+ * so found crossings are the same as found by {@link BruteForceEngine}.
+ */
+public class SweepEngine implements CrossingEngine {
+
+    private static final double EPSILON = 1e-9;     // Bounding boxes are expanded, so rounding of crossing calculation can not lose a pair.
+
+    @Override
+    public List<Crossing> findCrossings(List<Segment> cell) {
+        final int size = cell.size();
+        final double[] minLatitudes = new double[size];
+        double[] maxLatitudes = new double[size];
+        double[] minLongitudes = new double[size];
+        double[] maxLongitudes = new double[size];
+        Integer[] order = new Integer[size];
+        for(int i=0; i<size; i++) {
+            Segment segment = cell.get(i);
+            VertexStore vertices = segment.getVertices();
+            double startLatitude = vertices.getLatitude(segment.getStart());
+            double endLatitude = vertices.getLatitude(segment.getEnd());
+            double startLongitude = vertices.getLongitude(segment.getStart());
+            double endLongitude = vertices.getLongitude(segment.getEnd());
+            minLatitudes[i] = Math.min(startLatitude, endLatitude) - EPSILON;
+            maxLatitudes[i] = Math.max(startLatitude, endLatitude) + EPSILON;
+            minLongitudes[i] = Math.min(startLongitude, endLongitude) - EPSILON;
+            maxLongitudes[i] = Math.max(startLongitude, endLongitude) + EPSILON;
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(minLatitudes[a], minLatitudes[b]);
+            }
+        });
+
+        int[] active = new int[size];
+        int activeSize = 0;
+        long[] pairs = new long[16];    // Index of first segment in the high half, index of second segment in the low half.
+        int numberOfPairs = 0;
+        for(int i : order) {
+            Segment segment = cell.get(i);
+            if(segment.isCorrupted()) {
+                continue;
+            }
+            int kept = 0;
+            for(int k=0; k<activeSize; k++) {
+                int j = active[k];
+                if(maxLatitudes[j] < minLatitudes[i]) {             // Interval of j is passed, it can not cross other segments.
+                    continue;
+                }
+                active[kept++] = j;
+                if(minLongitudes[j] <= maxLongitudes[i] && minLongitudes[i] <= maxLongitudes[j] && cell.get(j).getLayer() != segment.getLayer()) {
+                    if(numberOfPairs == pairs.length) {
+                        pairs = Arrays.copyOf(pairs, numberOfPairs * 2);
+                    }
+                    pairs[numberOfPairs++] = (i < j) ? ((long) i << 32) | j : ((long) j << 32) | i;
+                }
+            }
+            activeSize = kept;
+            active[activeSize++] = i;
+        }
+        Arrays.sort(pairs, 0, numberOfPairs);
+
+        List<Crossing> crossings = new ArrayList<>();
+        for(int p=0; p<numberOfPairs; p++) {
+            Segment a = cell.get((int) (pairs[p] >>> 32));
+            Segment b = cell.get((int) pairs[p]);
+            double t = a.intersect(b);
+            if(t != Segment.NO_CROSSING) {
+                crossings.add(new Crossing(a, b, t));
+            }
+        }
+        return crossings;
+    }
+}
@@ -0,0 +1,24 @@
+package exception;
+
+/**
+ * Thrown when request to the server can not be answered. Message is sent to the client with the status of this exception.
+ */
+public class QueryException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private int status;
+
+    /**
+     * @param status HTTP status of the response, for example 400 - wrong parameters, 404 - map or detection is not found.
+     * @param message Message for the client.
+     */
+    public QueryException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,102 @@
+package index;
+
+import mapObject.Point;
+
+/**
+ * Bounding box of map object. Coordinates are named and ordered as coordinates of WKT of source file, see {@link VertexStore}.
+ * Object is not changed after it is created.
+ */
+public class Envelope {
+
+    private static final double METERS_PER_DEGREE = 6371000D * Math.PI / 180D;    // The same radius of the earth as Point#distance uses.
+
+    private double minLatitude;
+    private double minLongitude;
+    private double maxLatitude;
+    private double maxLongitude;
+
+    /**
+     * Corners can be given in any order.
+     */
+    public Envelope(double latitudeA, double longitudeA, double latitudeB, double longitudeB) {
+        minLatitude = Math.min(latitudeA, latitudeB);
+        minLongitude = Math.min(longitudeA, longitudeB);
+        maxLatitude = Math.max(latitudeA, latitudeB);
+        maxLongitude = Math.max(longitudeA, longitudeB);
+    }
+
+    /**
+     * @param text Comma separated coordinates of two corners: [latitude_A],[longitude_A],[latitude_B],[longitude_B].
+     * @throws NumberFormatException If text does not have four numbers.
+     */
+    public static Envelope parse(String text) {
+        String[] values = text.split(",");
+        if(values.length != 4) {
+            throw new NumberFormatException(String.format("Bounding box must have 4 comma separated numbers! For input string: \"%s\"", text));
+        }
+        double[] coordinates = new double[4];
+        for(int i=0; i<4; i++) {
+            coordinates[i] = Double.parseDouble(values[i]);
+            if(Double.isNaN(coordinates[i])) {
+                throw new NumberFormatException(String.format("Coordinate is not a number! For input string: \"%s\"", values[i]));
+            }
+        }
+        return new Envelope(coordinates[0], coordinates[1], coordinates[2], coordinates[3]);
+    }
+
+    /**
+     * @param radius Distance in meters, see {@link Point#distance(double, double, double, double)}.
+     * @return Envelope, which contains all points not farther than given radius from given center.
+     */
+    public static Envelope around(double latitude, double longitude, double radius) {
+        double latitudeDelta = radius / METERS_PER_DEGREE * (1 + 1e-9);
+        double cos = Math.cos(Math.toRadians(Math.min(90D, Math.abs(latitude) + latitudeDelta)));
+        double longitudeDelta = (cos > 1e-12) ? latitudeDelta / cos : Double.POSITIVE_INFINITY;
+        return new Envelope(latitude - latitudeDelta, longitude - longitudeDelta, latitude + latitudeDelta, longitude + longitudeDelta);
+    }
+
+    /**
+     * @return Envelope of both envelopes.
+     */
+    public Envelope union(Envelope envelope) {
+        return new Envelope(Math.min(minLatitude, envelope.minLatitude), Math.min(minLongitude, envelope.minLongitude),
+                Math.max(maxLatitude, envelope.maxLatitude), Math.max(maxLongitude, envelope.maxLongitude));
+    }
+
+    /**
+     * @return True - if envelopes have at least one common point.
+     */
+    public boolean intersects(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        return this.minLatitude <= maxLatitude && minLatitude <= this.maxLatitude
+                && this.minLongitude <= maxLongitude && minLongitude <= this.maxLongitude;
+    }
+
+    public boolean intersects(Envelope envelope) {
+        return intersects(envelope.minLatitude, envelope.minLongitude, envelope.maxLatitude, envelope.maxLongitude);
+    }
+
+    /**
+     * @return Distance in meters from given point to the nearest point of This Envelope, 0 - if point is inside.
+     */
+    public double distanceTo(double latitude, double longitude) {
+        double nearestLatitude = Math.max(minLatitude, Math.min(latitude, maxLatitude));
+        double nearestLongitude = Math.max(minLongitude, Math.min(longitude, maxLongitude));
+        return Point.distance(latitude, longitude, nearestLatitude, nearestLongitude);
+    }
+
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+}
@@ -0,0 +1,222 @@
+package index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * R-tree over envelopes of map objects, packed once by Sort-Tile-Recursive method: entries of every level are sorted
+ * into vertical slices by center latitude, every slice is sorted by center longitude and each run of {@link #NODE_CAPACITY}
+ * entries becomes a node of the next level. Nodes are kept in flat arrays of each level, so query only compares numbers.
+ * Items must not move after tree is created. Object is not changed by queries, queries can run on several threads at once.
+ * @param <T> Type of map object.
+ */
+public class EnvelopeTree<T> {
+
+    public static final int NODE_CAPACITY = 16;
+
+    private List<T> items;
+    private Level[] levels;         // levels[0] has items, the last level has the root entries.
+
+    /**
+     * @param items Map objects.
+     * @param envelopes Envelope of each map object.
+     */
+    public EnvelopeTree(List<T> items, List<Envelope> envelopes) {
+        this.items = new ArrayList<>(items);
+        List<Level> built = new ArrayList<>();
+        Level level = new Level(items.size());
+        for(int i=0; i<items.size(); i++) {
+            Envelope envelope = envelopes.get(i);
+            level.set(i, envelope.getMinLatitude(), envelope.getMinLongitude(), envelope.getMaxLatitude(), envelope.getMaxLongitude(), i, i + 1);
+        }
+        level = level.sortTiles(true);
+        built.add(level);
+        while(level.size > NODE_CAPACITY) {
+            level = level.pack().sortTiles(false);
+            built.add(level);
+        }
+        levels = built.toArray(new Level[built.size()]);
+    }
+
+    /**
+     * @return Map objects whose envelopes intersect given envelope, in the same order as objects were given.
+     */
+    public List<T> find(Envelope area) {
+        return toItems(findPositions(area.getMinLatitude(), area.getMinLongitude(), area.getMaxLatitude(), area.getMaxLongitude()));
+    }
+
+    /**
+     * @param radius Distance in meters, see {@link Envelope#distanceTo(double, double)}.
+     * @return Map objects whose envelopes are not farther than given radius from given point, in the same order as objects were given.
+     */
+    public List<T> findNear(double latitude, double longitude, double radius) {
+        Envelope area = Envelope.around(latitude, longitude, radius);
+        int[] positions = findPositions(area.getMinLatitude(), area.getMinLongitude(), area.getMaxLatitude(), area.getMaxLongitude());
+        Level leaves = levels[0];
+        int count = 0;
+        for(int position : positions) {
+            int i = leaves.entryOf[position];
+            Envelope envelope = new Envelope(leaves.minLatitudes[i], leaves.minLongitudes[i], leaves.maxLatitudes[i], leaves.maxLongitudes[i]);
+            if(envelope.distanceTo(latitude, longitude) <= radius) {
+                positions[count++] = position;
+            }
+        }
+        return toItems(Arrays.copyOf(positions, count));
+    }
+
+    /**
+     * @return Sorted positions of items whose envelopes intersect given envelope.
+     */
+    private int[] findPositions(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        int[] found = new int[16];
+        int count = 0;
+        int[] stack = new int[64];          // Pairs of level and entry.
+        int top = 0;
+        Level root = levels[levels.length - 1];
+        for(int i=0; i<root.size; i++) {
+            if(top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = levels.length - 1;
+            stack[top++] = i;
+        }
+        while(top > 0) {
+            int entry = stack[--top];
+            int levelNo = stack[--top];
+            Level level = levels[levelNo];
+            if(!level.intersects(entry, minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                continue;
+            }
+            if(levelNo == 0) {
+                if(count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = level.from[entry];
+            } else {
+                for(int child=level.from[entry]; child<level.to[entry]; child++) {
+                    if(top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = levelNo - 1;
+                    stack[top++] = child;
+                }
+            }
+        }
+        found = Arrays.copyOf(found, count);
+        Arrays.sort(found);
+        return found;
+    }
+
+    private List<T> toItems(int[] positions) {
+        List<T> found = new ArrayList<>(positions.length);
+        for(int position : positions) {
+            found.add(items.get(position));
+        }
+        return found;
+    }
+
+    /**
+     * Entries of one level of the tree. Entry of the first level is item, its range [from;to) has only position of the item.
+     * Entry of other levels is node, its range has positions of its entries in the level below.
+     */
+    private static class Level {
+
+        private int size;
+        private double[] minLatitudes;
+        private double[] minLongitudes;
+        private double[] maxLatitudes;
+        private double[] maxLongitudes;
+        private int[] from;
+        private int[] to;
+        private int[] entryOf;          // Entry of each item, only the first level has it.
+
+        Level(int size) {
+            this.size = size;
+            minLatitudes = new double[size];
+            minLongitudes = new double[size];
+            maxLatitudes = new double[size];
+            maxLongitudes = new double[size];
+            from = new int[size];
+            to = new int[size];
+        }
+
+        void set(int i, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, int from, int to) {
+            minLatitudes[i] = minLatitude;
+            minLongitudes[i] = minLongitude;
+            maxLatitudes[i] = maxLatitude;
+            maxLongitudes[i] = maxLongitude;
+            this.from[i] = from;
+            this.to[i] = to;
+        }
+
+        boolean intersects(int i, double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            return minLatitudes[i] <= maxLatitude && minLatitude <= maxLatitudes[i]
+                    && minLongitudes[i] <= maxLongitude && minLongitude <= maxLongitudes[i];
+        }
+
+        /**
+         * @param isItemLevel True - entries are items, entry of each item is kept in sorted level.
+         * @return The same entries in order of tiles: slices by center latitude, entries of each slice by center longitude.
+         */
+        Level sortTiles(boolean isItemLevel) {
+            Integer[] order = new Integer[size];
+            for(int i=0; i<size; i++) {
+                order[i] = i;
+            }
+            int numberOfNodes = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int numberOfSlices = (int) Math.ceil(Math.sqrt(numberOfNodes));
+            int sliceSize = Math.max(NODE_CAPACITY * ((numberOfNodes + numberOfSlices - 1) / Math.max(numberOfSlices, 1)), 1);
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(minLatitudes[a] + maxLatitudes[a], minLatitudes[b] + maxLatitudes[b]);
+                }
+            });
+            for(int start=0; start<size; start+=sliceSize) {
+                Arrays.sort(order, start, Math.min(start + sliceSize, size), new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer a, Integer b) {
+                        return Double.compare(minLongitudes[a] + maxLongitudes[a], minLongitudes[b] + maxLongitudes[b]);
+                    }
+                });
+            }
+            Level sorted = new Level(size);
+            if(isItemLevel) {
+                sorted.entryOf = new int[size];
+            }
+            for(int i=0; i<size; i++) {
+                int entry = order[i];
+                sorted.set(i, minLatitudes[entry], minLongitudes[entry], maxLatitudes[entry], maxLongitudes[entry], from[entry], to[entry]);
+                if(isItemLevel) {
+                    sorted.entryOf[from[entry]] = i;
+                }
+            }
+            return sorted;
+        }
+
+        /**
+         * @return Level of nodes, each node has up to {@link #NODE_CAPACITY} consecutive entries of This Level.
+         */
+        Level pack() {
+            Level parents = new Level((size + NODE_CAPACITY - 1) / NODE_CAPACITY);
+            for(int node=0; node<parents.size; node++) {
+                int first = node * NODE_CAPACITY;
+                int last = Math.min(first + NODE_CAPACITY, size);
+                double minLatitude = Double.POSITIVE_INFINITY;
+                double minLongitude = Double.POSITIVE_INFINITY;
+                double maxLatitude = Double.NEGATIVE_INFINITY;
+                double maxLongitude = Double.NEGATIVE_INFINITY;
+                for(int i=first; i<last; i++) {
+                    minLatitude = Math.min(minLatitude, minLatitudes[i]);
+                    minLongitude = Math.min(minLongitude, minLongitudes[i]);
+                    maxLatitude = Math.max(maxLatitude, maxLatitudes[i]);
+                    maxLongitude = Math.max(maxLongitude, maxLongitudes[i]);
+                }
+                parents.set(node, minLatitude, minLongitude, maxLatitude, maxLongitude, first, last);
+            }
+            return parents;
+        }
+    }
+}
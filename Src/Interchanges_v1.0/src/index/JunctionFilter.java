@@ -0,0 +1,125 @@
+package index;
+
+import mapObject.Junction;
+
+/**
+ * Requirements of junctions output, compiled once from the strings of Output Command parameters.
+ * Every requirement - [</>/=][unsigned_integer] OR [unsigned_integer_from]-[unsigned_integer_to] - is kept as range of values
+ * [from;to] of one metric of junction. Requirement, which is not entered or can not be parsed, allows all values.
+ */
+public class JunctionFilter {
+
+    public static final int CROSSING_POINTS = 0;
+    public static final int SIDES = 1;
+    public static final int LEVELS = 2;
+    public static final int CONFLICT_ROADS = 3;
+    public static final int INTERSECTIONS = 4;
+    public static final int NUMBER_OF_METRICS = 5;
+
+    private long[] from = new long[NUMBER_OF_METRICS];
+    private long[] to = new long[NUMBER_OF_METRICS];
+
+    /**
+     * @param crossingPoints Requirement of crossing points number, null - not entered.
+     * @param sides Requirement of branches number, null - not entered.
+     * @param levels Requirement of levels number, null - not entered.
+     * @param conflictRoads Requirement of conflict roads number, null - not entered.
+     * @param intersections Requirement of intersections number, null - not entered.
+     */
+    public JunctionFilter(String crossingPoints, String sides, String levels, String conflictRoads, String intersections) {
+        compile(CROSSING_POINTS, crossingPoints);
+        compile(SIDES, sides);
+        compile(LEVELS, levels);
+        compile(CONFLICT_ROADS, conflictRoads);
+        compile(INTERSECTIONS, intersections);
+    }
+
+    /**
+     * @param metric One of CROSSING_POINTS, SIDES, LEVELS, CONFLICT_ROADS, INTERSECTIONS.
+     * @return Value of given metric of given analysed junction.
+     */
+    public static int getValue(Junction junction, int metric) {
+        switch (metric) {
+            case CROSSING_POINTS:   return junction.getNumberOfCrossingPoints();
+            case SIDES:             return junction.getNumberOfSides();
+            case LEVELS:            return junction.getNumberOfLevels();
+            case CONFLICT_ROADS:    return junction.getNumberOfConflictRoads();
+            case INTERSECTIONS:     return junction.getNumberOfIntersectionPoints();
+            default:                throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+
+    /**
+     * @return True - if given analysed junction meets all requirements.
+     */
+    public boolean isMet(Junction junction) {
+        for(int metric=0; metric<NUMBER_OF_METRICS; metric++) {
+            if(isRestricted(metric)) {
+                int value = getValue(junction, metric);
+                if(value < from[metric] || value > to[metric]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True - if requirement of given metric does not allow some values.
+     */
+    public boolean isRestricted(int metric) {
+        return from[metric] != Integer.MIN_VALUE || to[metric] != Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return The least allowed value of given metric. Range is empty if it is greater than {@link #getTo(int)}.
+     */
+    public long getFrom(int metric) {
+        return from[metric];
+    }
+
+    /**
+     * @return The greatest allowed value of given metric.
+     */
+    public long getTo(int metric) {
+        return to[metric];
+    }
+
+    private void compile(int metric, String requirement) {
+        from[metric] = Integer.MIN_VALUE;
+        to[metric] = Integer.MAX_VALUE;
+        if(requirement == null || requirement.isEmpty()) {
+            return;
+        }
+        if(requirement.indexOf('-') > 0) {
+            String[] range = requirement.split("-");
+            if(range.length == 2) {
+                try {
+                    long rangeFrom = Integer.parseInt(range[0]);
+                    long rangeTo = Integer.parseInt(range[1]);
+                    from[metric] = rangeFrom;
+                    to[metric] = rangeTo;
+                } catch (NumberFormatException e) {
+                    return;
+                }
+            }
+        } else {
+            long conditionValue;
+            try {
+                conditionValue = Integer.parseInt(requirement.substring(1));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            switch (requirement.substring(0,1)) {
+                case "=":   from[metric] = conditionValue;
+                            to[metric] = conditionValue;
+                            break;
+                case ">":   from[metric] = conditionValue + 1;
+                            break;
+                case "<":   to[metric] = conditionValue - 1;
+                            break;
+                default:    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package index;
+
+import mapObject.Junction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sorted indexes of analysed junctions by every metric of {@link JunctionFilter}. Each index is array of keys
+ * (value of metric << 32 | position of junction), sorted once when index is created. Query takes range of
+ * the most selective entered requirement by binary search and checks other requirements only on junctions of that range,
+ * so repeated queries on the same results of detection do not scan all junctions.
+ * Junctions must not change after index is created. Object is not changed by queries.
+ */
+public class JunctionIndex {
+
+    private static final long POSITION_MASK = 0xFFFFFFFFL;
+
+    private List<Junction> junctions;
+    private long[][] keys = new long[JunctionFilter.NUMBER_OF_METRICS][];
+
+    /**
+     * @param junctions Analysed junctions.
+     */
+    public JunctionIndex(List<Junction> junctions) {
+        this.junctions = new ArrayList<>(junctions);
+        for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+            long[] metricKeys = new long[this.junctions.size()];
+            for(int i=0; i<metricKeys.length; i++) {
+                metricKeys[i] = ((long) JunctionFilter.getValue(this.junctions.get(i), metric) << 32) | i;
+            }
+            Arrays.sort(metricKeys);
+            keys[metric] = metricKeys;
+        }
+    }
+
+    /**
+     * @param filter Compiled requirements.
+     * @return Junctions, which meet all requirements of given filter, in the same order as junctions were given.
+     */
+    public List<Junction> find(JunctionFilter filter) {
+        int bestMetric = -1;
+        int bestFrom = 0;
+        int bestTo = junctions.size();
+        for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+            if(filter.isRestricted(metric)) {
+                long from = Math.max(filter.getFrom(metric), 0L);           // Metrics are counts, they are not negative.
+                long to = filter.getTo(metric);
+                if(from > to) {
+                    return new ArrayList<>();
+                }
+                int rangeFrom = lowerBound(keys[metric], from << 32);
+                int rangeTo = (to >= Integer.MAX_VALUE) ? junctions.size() : lowerBound(keys[metric], (to + 1) << 32);
+                if(rangeTo - rangeFrom < bestTo - bestFrom) {
+                    bestMetric = metric;
+                    bestFrom = rangeFrom;
+                    bestTo = rangeTo;
+                }
+            }
+        }
+        List<Junction> found = new ArrayList<>();
+        if(bestMetric < 0) {
+            found.addAll(junctions);
+            return found;
+        }
+        int[] positions = new int[bestTo - bestFrom];
+        for(int i=bestFrom; i<bestTo; i++) {
+            positions[i - bestFrom] = (int) (keys[bestMetric][i] & POSITION_MASK);
+        }
+        Arrays.sort(positions);
+        for(int position : positions) {
+            Junction junction = junctions.get(position);
+            if(filter.isMet(junction)) {
+                found.add(junction);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return Position of the first key, which is not less than given key.
+     */
+    private static int lowerBound(long[] metricKeys, long key) {
+        int low = 0;
+        int high = metricKeys.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(metricKeys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,93 @@
+package index;
+
+/**
+ * Table of all vertices, where vertex id is found by its coordinates.
+ * Key is made of bit patterns of latitude and longitude, table uses open addressing
+ * with linear probing over primitive array, so lookup does not box values and does not walk lists.
+ * Coordinates are not copied into the table, they are read from the columns of the vertex store.
+ */
+public class PointIndex {
+
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+    private static final double LOAD_FACTOR = 0.5;
+
+    private VertexStore vertices;
+    private int[] slots;        // Vertex id + 1. 0 - empty slot.
+    private int size = 0;
+    private int mask;
+    private int resizeThreshold;
+
+    PointIndex(VertexStore vertices) {
+        this.vertices = vertices;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param latitude Latitude coordinate of required vertex.
+     * @param longitude Longitude coordinate of required vertex.
+     * @return Id of vertex with given coordinates, or id of new vertex if vertex with given coordinates does not exist.
+     */
+    int firstOrNew(double latitude, double longitude) {
+        if(Double.isNaN(latitude) || Double.isNaN(longitude)) {   // NaN is not equal to any coordinate, so such vertex is never shared.
+            return vertices.add(latitude, longitude);
+        }
+        long latitudeKey = getKey(latitude);
+        long longitudeKey = getKey(longitude);
+        int slot = hash(latitudeKey, longitudeKey) & mask;
+        while(slots[slot] != 0) {
+            int vertex = slots[slot] - 1;
+            if(getKey(vertices.getLatitude(vertex)) == latitudeKey && getKey(vertices.getLongitude(vertex)) == longitudeKey) {
+                return vertex;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int vertex = vertices.add(latitude, longitude);
+        slots[slot] = vertex + 1;
+        if(++size > resizeThreshold) {
+            allocate(slots.length << 1);
+        }
+        return vertex;
+    }
+
+    /**
+     * @return Size of the table in bytes.
+     */
+    long getMemoryUsage() {
+        return 4L * slots.length;
+    }
+
+    /**
+     * @param coordinate Coordinate value.
+     * @return Bit pattern of coordinate. Negative zero has the same key as zero, because they are equal coordinates.
+     */
+    private static long getKey(double coordinate) {
+        return Double.doubleToRawLongBits(coordinate + 0D);
+    }
+
+    private static int hash(long latitudeKey, long longitudeKey) {
+        long h = latitudeKey * 0x9E3779B97F4A7C15L + longitudeKey;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldSlots = slots;
+        slots = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+        if(oldSlots != null) {
+            for(int oldSlot : oldSlots) {
+                if(oldSlot != 0) {
+                    int vertex = oldSlot - 1;
+                    int slot = hash(getKey(vertices.getLatitude(vertex)), getKey(vertices.getLongitude(vertex))) & mask;
+                    while(slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlot;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package index;
+
+import java.util.Arrays;
+
+/**
+ * Path of vertices with check in constant time, if vertex is on the path. Vertices are kept in preallocated int stack
+ * and every vertex on the path is stamped with current epoch in array indexed by vertex id.
+ * {@link #clear()} only starts new epoch, so one object is reused for many searches without clearing the array.
+ * Object is not thread safe, every thread needs its own path.
+ */
+public class VertexPath {
+
+    private static final int DEFAULT_CAPACITY = 1 << 6;
+
+    private int[] stamps;       // Epoch in which vertex was added to the path. Vertex is on the path only if its stamp is current epoch.
+    private int epoch = 1;
+    private int[] stack = new int[DEFAULT_CAPACITY];
+    private int size = 0;
+
+    /**
+     * @param numberOfVertices Number of vertices of the map, see {@link VertexStore#size()}.
+     */
+    public VertexPath(int numberOfVertices) {
+        stamps = new int[numberOfVertices];
+    }
+
+    /**
+     * Removes all vertices from the path.
+     */
+    public void clear() {
+        size = 0;
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     */
+    public void push(int vertex) {
+        if(size == stack.length) {
+            stack = Arrays.copyOf(stack, size << 1);
+        }
+        stack[size++] = vertex;
+        stamps[vertex] = epoch;
+    }
+
+    /**
+     * Removes last vertex of the path.
+     * @return Id of removed vertex.
+     */
+    public int pop() {
+        int vertex = stack[--size];
+        stamps[vertex] = 0;
+        return vertex;
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @return True - if given vertex is on the path.
+     */
+    public boolean contains(int vertex) {
+        return stamps[vertex] == epoch;
+    }
+
+    /**
+     * @return Number of vertices on the path.
+     */
+    public int size() {
+        return size;
+    }
+}
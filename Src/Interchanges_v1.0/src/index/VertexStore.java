@@ -0,0 +1,253 @@
+package index;
+
+import exception.EndOfRoadException;
+import mapObject.Point;
+import mapObject.Segment;
+import writer.RowEncoder;
+
+import java.util.List;
+
+/**
+ * Compact storage of all vertices of the map. Vertex is identified by int id, its coordinates are kept in
+ * primitive columns and segments connecting to it are kept in CSR (compressed sparse row) arrays.
+ * Point objects are created only for vertices which need them - ends of roads and crossing points.
+ * <p>
+ * Memory per vertex (coordinate columns, index table, CSR arrays and table of Point objects):
+ * 44 - 45 bytes of filled arrays, measured on files of <i>data</i> folder (87 - 223 vertices each).
+ * These files are smaller than initial capacity, so allocated arrays take about 26 KB for each of them.
+ * On generated file with 186 836 vertices allocated arrays take 55 bytes per vertex, see {@link #getMemoryUsage()}.
+ * Every created Point object adds about 80 bytes. When every vertex had its own Point object, heap of the loaded map
+ * was 159 bytes per vertex larger (about 214 bytes per vertex instead of 55).
+ * Object is not thread safe.
+ */
+public class VertexStore {
+
+    public static final int END_OF_ROAD = -1;      // Returned by findNeighbor(...) if vertex is end of road.
+    public static final int NOT_CONNECTED = -2;    // Returned by findNeighbor(...) if segment is not connected to vertex.
+
+    private static final int DEFAULT_CAPACITY = 1 << 10;
+
+    private double[] latitudes = new double[DEFAULT_CAPACITY];
+    private double[] longitudes = new double[DEFAULT_CAPACITY];
+    private int size = 0;
+    private PointIndex index = new PointIndex(this);
+    private Point[] points = new Point[DEFAULT_CAPACITY];
+    private int[] adjacencyStarts = new int[1];   // Segments of vertex v are adjacency[adjacencyStarts[v]] ... adjacency[adjacencyStarts[v+1]-1].
+    private int[] adjacency = new int[0];
+    private Segment[] segments = new Segment[0];
+
+    /**
+     * @param latitude Latitude coordinate of required vertex.
+     * @param longitude Longitude coordinate of required vertex.
+     * @return Id of vertex with given coordinates, or id of new vertex if vertex with given coordinates does not exist.
+     */
+    public int firstOrNew(double latitude, double longitude) {
+        return index.firstOrNew(latitude, longitude);
+    }
+
+    /**
+     * Adds new vertex without checking, if vertex with the same coordinates exists.
+     * @return Id of new vertex.
+     */
+    int add(double latitude, double longitude) {
+        if(size == latitudes.length) {
+            int capacity = latitudes.length << 1;
+            double[] newLatitudes = new double[capacity];
+            double[] newLongitudes = new double[capacity];
+            Point[] newPoints = new Point[capacity];
+            System.arraycopy(latitudes, 0, newLatitudes, 0, size);
+            System.arraycopy(longitudes, 0, newLongitudes, 0, size);
+            System.arraycopy(points, 0, newPoints, 0, size);
+            latitudes = newLatitudes;
+            longitudes = newLongitudes;
+            points = newPoints;
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        return size++;
+    }
+
+    /**
+     * Builds lists of connecting segments for every vertex. Segments are listed in the same order as in given list.
+     * Vertices, which are added later (crossing points), do not have connecting segments.
+     * @param allSegments All segments of the map.
+     */
+    public void buildAdjacency(List<Segment> allSegments) {
+        segments = allSegments.toArray(new Segment[allSegments.size()]);
+        adjacencyStarts = new int[size + 1];
+        for(Segment segment : segments) {
+            adjacencyStarts[segment.getStart() + 1]++;
+            adjacencyStarts[segment.getEnd() + 1]++;
+        }
+        for(int vertex=0; vertex<size; vertex++) {
+            adjacencyStarts[vertex + 1] += adjacencyStarts[vertex];
+        }
+        adjacency = new int[adjacencyStarts[size]];
+        int[] next = new int[size];
+        System.arraycopy(adjacencyStarts, 0, next, 0, size);
+        for(int i=0; i<segments.length; i++) {
+            adjacency[next[segments[i].getStart()]++] = i;
+            adjacency[next[segments[i].getEnd()]++] = i;
+        }
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @return Number of segments connecting to given vertex.
+     */
+    public int getDegree(int vertex) {
+        if(vertex + 1 >= adjacencyStarts.length) {
+            return 0;
+        }
+        return adjacencyStarts[vertex + 1] - adjacencyStarts[vertex];
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @param i Index of connecting segment.
+     * @return <i>i</i>-th segment connecting to given vertex.
+     */
+    public Segment getConnectingSegment(int vertex, int i) {
+        return segments[adjacency[adjacencyStarts[vertex] + i]];
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @param i Index of connecting segment.
+     * @return Index of <i>i</i>-th segment connecting to given vertex, see {@link #getSegment(int)}.
+     */
+    public int getConnectingSegmentIndex(int vertex, int i) {
+        return adjacency[adjacencyStarts[vertex] + i];
+    }
+
+    /**
+     * Checking is given vertex is end of road. End of road is an intersection or vertex connecting to only one segment.
+     * @param vertex Id of vertex.
+     * @return True - if vertex connects not to 2 segments or 2 connecting segments are opposite directions.
+     * False - if vertex connects to 2 segments, which are the same direction.
+     */
+    public boolean isEndOfRoad(int vertex) {
+        if(getDegree(vertex) == 2) {                                                    // If only two segments are connected, there may not be an end of road.
+            Segment first = getConnectingSegment(vertex, 0);
+            Segment second = getConnectingSegment(vertex, 1);
+            if(first.isBothWay() != second.isBothWay()) {                               // If one road is one way and another is both way - end of road.
+                return true;
+            } else {                                                                    // If both segments are one way or both way
+                return !first.isBothWay() &&                                            //      If both segments are one way
+                        (first.getEnd() == second.getEnd() ||                           //          and these two segments merge
+                         first.getStart() == second.getStart());                        //          or separate - end of road.
+            }
+        } else {                                                                        // If at this vertex is intersection - end of road.
+            return true;
+        }
+    }
+
+    /**
+     * If given vertex is not the end of the road, method returns neighbor segment of given segment where both of them connects to this vertex.
+     * @param vertex Id of vertex.
+     * @param currentSegment Segment for which the neighbor segment is requested.
+     * @param protectionVertex Start vertex of aggregation.
+     * @return Index of neighbor segment, see {@link #getSegment(int)}.
+     * {@link #END_OF_ROAD} - if given segment do not have neighbor, have more than one neighbors or road goes in circle.
+     * {@link #NOT_CONNECTED} - if given segment is not connecting to given vertex.
+     */
+    public int findNeighbor(int vertex, Segment currentSegment, int protectionVertex) {
+        if(isEndOfRoad(vertex) || vertex == protectionVertex) {
+            return END_OF_ROAD;
+        }
+        int first = adjacency[adjacencyStarts[vertex]];
+        int second = adjacency[adjacencyStarts[vertex] + 1];
+        if(segments[first] == currentSegment) {         // If first connecting segment is given segment
+            return second;                              //      second segment must be a neighbor
+        } else if(segments[second] != currentSegment) { // If none of connecting segments is given segment
+            return NOT_CONNECTED;
+        } else {
+            return first;                               // If second segment is given segment, first segment must be a neighbor.
+        }
+    }
+
+    /**
+     * If given vertex is not the end of the road, method returns neighbor segment of given segment where both of them connects to this vertex.
+     * @param vertex Id of vertex.
+     * @param currentSegment Segment for which the neighbor segment is requested.
+     * @param protectionVertex Start vertex of aggregation.
+     * @return Neighbor segment of given segment.
+     * @throws EndOfRoadException If given segment do not have neighbor, have more than one neighbors or road goes in circle.
+     * @throws IllegalArgumentException If given segment is not connecting to given vertex.
+     */
+    public Segment getNeighbor(int vertex, Segment currentSegment, int protectionVertex) throws EndOfRoadException, IllegalArgumentException {
+        int neighbor = findNeighbor(vertex, currentSegment, protectionVertex);
+        if(neighbor == END_OF_ROAD) {
+            throw new EndOfRoadException("This point is end of road, given segment do not have neighbor or road goes in circle.");
+        } else if(neighbor == NOT_CONNECTED) {
+            throw new IllegalArgumentException("Given segment is not connected to this point.");
+        } else {
+            return segments[neighbor];
+        }
+    }
+
+    /**
+     * @param index Index of segment in the list given to {@link #buildAdjacency(List)}.
+     * @return Segment.
+     */
+    public Segment getSegment(int index) {
+        return segments[index];
+    }
+
+    /**
+     * @return Number of segments given to {@link #buildAdjacency(List)}.
+     */
+    public int getNumberOfSegments() {
+        return segments.length;
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @return Point object of given vertex. Object is created at first request, later the same object is returned.
+     */
+    public Point getPoint(int vertex) {
+        if(points[vertex] == null) {
+            points[vertex] = new Point(this, vertex);
+        }
+        return points[vertex];
+    }
+
+    /**
+     * @return Distance in meters between given vertices.
+     */
+    public double distance(int vertexA, int vertexB) {
+        return Point.distance(latitudes[vertexA], longitudes[vertexA], latitudes[vertexB], longitudes[vertexB]);
+    }
+
+    /**
+     * @param vertex Id of vertex.
+     * @return String which represents coordinates of given vertex.
+     */
+    public String toString(int vertex) {
+        return new RowEncoder().appendCoordinates(latitudes[vertex], longitudes[vertex]).toString();
+    }
+
+    public double getLatitude(int vertex) {
+        return latitudes[vertex];
+    }
+
+    public double getLongitude(int vertex) {
+        return longitudes[vertex];
+    }
+
+    /**
+     * @return Number of vertices.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Size in bytes of arrays of this store, without Point objects and segments.
+     */
+    public long getMemoryUsage() {
+        return 8L * latitudes.length + 8L * longitudes.length + 4L * points.length
+                + 4L * adjacencyStarts.length + 4L * adjacency.length + 4L * segments.length
+                + index.getMemoryUsage();
+    }
+}
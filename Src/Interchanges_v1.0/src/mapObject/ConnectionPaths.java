@@ -0,0 +1,78 @@
+package mapObject;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connections found by detection of junctions. Connection is kept as sequence of roads with their directions,
+ * see {@link Road#encodeConnection(Road[], int)}, and its polyline is built only when it is written to file.
+ * Identical connections, which are found by several searches, are kept as one array.
+ * Object is thread safe.
+ */
+public class ConnectionPaths {
+
+    private Road[] roads;
+    private ConcurrentHashMap<Key, int[]> connections = new ConcurrentHashMap<>();
+
+    /**
+     * @param roads All roads of the map. Index of every road must be its position in given list, see {@link Road#setIndex(int)}.
+     */
+    public ConnectionPaths(List<Road> roads) {
+        this.roads = roads.toArray(new Road[roads.size()]);
+    }
+
+    /**
+     * @param connection Roads of found connection.
+     * @param size Number of roads of found connection, only the first roads of given array are used.
+     * @return Roads of given connection with their directions. The same array is returned for identical connections.
+     */
+    public int[] add(Road[] connection, int size) {
+        int[] encoded = Road.encodeConnection(connection, size);
+        int[] existing = connections.putIfAbsent(new Key(encoded), encoded);
+        return (existing == null) ? encoded : existing;
+    }
+
+    /**
+     * @param connection Roads of connection, returned by {@link #add(Road[], int)}.
+     * @return Ids of vertices of given connection.
+     */
+    public int[] getPolyline(int[] connection) {
+        return Road.mergeConnection(connection, roads);
+    }
+
+    /**
+     * @return Number of roads of the map.
+     */
+    public int getNumberOfRoads() {
+        return roads.length;
+    }
+
+    /**
+     * @return Number of different connections.
+     */
+    public int size() {
+        return connections.size();
+    }
+
+    private static class Key {
+
+        private int[] connection;
+        private int hash;
+
+        Key(int[] connection) {
+            this.connection = connection;
+            hash = Arrays.hashCode(connection);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(connection, ((Key) o).connection);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package mapObject;
+
+import index.VertexPath;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scratch state of connection search, see {@link Road#detectConnections(Road, CrossingPoint, ConnectionSearch)}.
+ * One object is reused for many crossing points, but it is not thread safe, so every thread needs its own object.
+ * <p>
+ * One search gives results of several detections with different parameters. Connection found with stricter parameters
+ * is also found with looser ones, so roads are searched once with the loosest parameters and every found connection
+ * is added to each detection, whose condition it satisfies, see {@link Detection#isConnection(int, double)}.
+ * Connecting roads are added to a detection only if they lead to its connection, so every detection gets the same
+ * results in the same order as search with its own parameters gives.
+ * <p>
+ * When search of a crossing point expands many roads, lower bounds to reach the target road are computed for roads around it:
+ * length of the roads, which must be passed (bounded reverse Dijkstra from the target), and number of these roads
+ * (bounded breadth first search from the target). Both searches walk relations of all kinds, so bounds are valid
+ * for every direction of the search. Branch is pruned only if, with these bounds, target can not satisfy
+ * the condition of connection, so pruned branch could not find any connection and found connections do not change.
+ * Roads must have indexes, see {@link Road#setIndex(int)}.
+ */
+public class ConnectionSearch {
+
+    private static final int DEFAULT_CAPACITY = 1 << 6;
+    private static final int MIN_EXPANDED_FOR_BOUNDS = 1 << 6;  // Bounds cost more than small searches, so they are computed only for larger searches.
+    private static final double TOLERANCE = 1e-6;      // Meters. Bounds are summed in other order than lengths of the search, rounding may differ.
+    public static final int MAX_DETECTIONS = Long.SIZE;     // Detections of found connection are kept as bits of long.
+
+    private VertexPath path;
+    private Detection[] detections;
+    private ConnectionPaths paths;
+    private Road[] connection = new Road[DEFAULT_CAPACITY];     // Roads of tried connection from start road, preallocated stack.
+    private int depth = 0;          // Number of roads of tried connection.
+    private int epoch = 0;
+    private int[] distanceStamps;   // Distance of road is known only if its stamp is current epoch.
+    private double[] distances;     // Length of roads after given road up to the target, including the target.
+    private int[] hopStamps;        // Number of roads is known only if its stamp is current epoch.
+    private int[] hops;             // Number of roads after given road up to the target, including the target.
+    private Road[] queue = new Road[DEFAULT_CAPACITY];      // Binary heap of Dijkstra search, also FIFO queue of breadth first search.
+    private double[] queueKeys = new double[DEFAULT_CAPACITY];
+    private double maxLength;
+    private int maxDepth;
+    private Road target;
+    private Road boundedTarget;     // Target of computed bounds, null - bounds are not computed. Crossing points of the same road often follow each other, bounds are reused for them.
+    private int expandedOfTarget;   // Number of roads expanded in search of current crossing point, while bounds are not computed.
+    private long expanded = 0;
+    private long pruned = 0;
+
+    /**
+     * @param numberOfVertices Number of vertices of the map, see {@link index.VertexStore#size()}.
+     * @param detections Results of detections, found connections are added to them. All of them must have
+     *                   the same table of connections and there can be at most {@link #MAX_DETECTIONS} of them.
+     */
+    public ConnectionSearch(int numberOfVertices, List<Detection> detections) {
+        if(detections.isEmpty() || detections.size() > MAX_DETECTIONS) {
+            throw new IllegalArgumentException(String.format("Number of detections must be from 1 to %d.", MAX_DETECTIONS));
+        }
+        this.detections = detections.toArray(new Detection[detections.size()]);
+        paths = this.detections[0].getPaths();
+        maxDepth = 0;
+        maxLength = 0D;
+        for(Detection detection : this.detections) {
+            if(detection.getPaths() != paths) {
+                throw new IllegalArgumentException("Detections must have the same table of connections.");
+            }
+            maxDepth = Math.max(maxDepth, detection.getMaxDepth());
+            maxLength = Math.max(maxLength, detection.getMaxLength());
+        }
+        int numberOfRoads = paths.getNumberOfRoads();
+        path = new VertexPath(numberOfVertices);
+        distanceStamps = new int[numberOfRoads];
+        distances = new double[numberOfRoads];
+        hopStamps = new int[numberOfRoads];
+        hops = new int[numberOfRoads];
+    }
+
+    /**
+     * Detects connections of given crossing point and adds them to every detection of this search.
+     * @param crossingPoint Crossing point, whose bottom road is connected to its top road.
+     */
+    public void detect(CrossingPoint crossingPoint) {
+        long found = crossingPoint.getBottomRoad().detectConnections(crossingPoint.getTopRoad(), crossingPoint, this);
+        for(int i=0; found != 0; i++, found >>>= 1) {
+            if((found & 1) != 0) {
+                detections[i].setConnectionExist(crossingPoint);
+                detections[i].addConnectingRoad(crossingPoint, crossingPoint.getBottomRoad());
+            }
+        }
+    }
+
+    /**
+     * Clears scratch state before search of a crossing point.
+     * @param target Road to which connections are searched.
+     */
+    void start(Road target) {
+        path.clear();
+        Arrays.fill(connection, 0, depth, null);
+        depth = 0;
+        expandedOfTarget = 0;
+        if(target != boundedTarget) {
+            boundedTarget = null;
+        }
+        this.target = target;
+    }
+
+    /**
+     * Adds current connection, which reached the target, to every detection, whose condition it satisfies.
+     * @param crossingPoint Crossing point of the search.
+     * @param length Length of the connection without start road.
+     * @return Bits of detections, to which connection was added. Bit i is i-th detection.
+     */
+    long addConnection(CrossingPoint crossingPoint, double length) {
+        long found = 0;
+        for(int i=0; i<detections.length; i++) {
+            if(detections[i].isConnection(depth, length)) {
+                found |= 1L << i;
+            }
+        }
+        if(found != 0) {
+            int[] encoded = paths.add(connection, depth);
+            for(int i=0; i<detections.length; i++) {
+                if((found & (1L << i)) != 0) {
+                    detections[i].addConnectionPath(crossingPoint, encoded);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds road, which leads to connections, to detections of these connections.
+     * @param found Bits of detections, which have connection thru given road, see {@link #addConnection(CrossingPoint, double)}.
+     */
+    void addConnectingRoad(CrossingPoint crossingPoint, Road road, long found) {
+        for(int i=0; found != 0; i++, found >>>= 1) {
+            if((found & 1) != 0) {
+                detections[i].addConnectingRoad(crossingPoint, road);
+            }
+        }
+    }
+
+    /**
+     * Checks, if target can be reached from given road and satisfy the condition of connection
+     * in {@link Road#detectConnections(Road, CrossingPoint, ConnectionSearch)} with the loosest parameters.
+     * Counts the answer as pruned or expanded branch.
+     * @param road Road, which is not the target and satisfies the condition itself.
+     * @param depth Number of roads of connection up to given road, including it.
+     * @param length Length of connection up to given road, including it.
+     * @return True - if branch of given road can not find connection. False - if it has to be expanded.
+     */
+    boolean prune(Road road, int depth, double length) {
+        int index = road.getIndex();
+        if(boundedTarget == null && ++expandedOfTarget > MIN_EXPANDED_FOR_BOUNDS && distanceStamps.length > 0 && target.getIndex() >= 0) {
+            findBounds();
+        }
+        if(boundedTarget != null && index >= 0) {
+            double distance = ((distanceStamps[index] == epoch) ? distances[index] : maxLength) - TOLERANCE;      // Unknown distance is not less than maxLength.
+            boolean isDepthPossible = hopStamps[index] == epoch && depth + hops[index] <= maxDepth;
+            if(length + distance >= maxLength && !(isDepthPossible && length + distance < Road.MAX_DEPTH_LENGTH)) {
+                pruned++;
+                return true;
+            }
+        }
+        expanded++;
+        return false;
+    }
+
+    private void findBounds() {
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(distanceStamps, 0);
+            Arrays.fill(hopStamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+        findDistances(target);
+        if(maxLength < Road.MAX_DEPTH_LENGTH) {         // Otherwise number of roads does not matter.
+            findHops(target);
+        }
+        boundedTarget = target;
+    }
+
+    VertexPath getPath() {
+        return path;
+    }
+
+    /**
+     * Adds road to the end of tried connection.
+     * @return Number of roads of tried connection, including given road.
+     */
+    int pushRoad(Road road) {
+        if(depth == connection.length) {
+            connection = Arrays.copyOf(connection, depth << 1);
+        }
+        connection[depth++] = road;
+        return depth;
+    }
+
+    /**
+     * Removes the last road of tried connection.
+     */
+    void popRoad() {
+        connection[--depth] = null;
+    }
+
+    /**
+     * @return Roads of tried connection, only the first {@link #getDepth()} of them are valid.
+     */
+    Road[] getConnection() {
+        return connection;
+    }
+
+    /**
+     * @return Number of roads of tried connection.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The greatest number of roads at which maxLength exceeding is ignored of all detections of this search.
+     */
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The greatest length of connection of all detections of this search.
+     */
+    double getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * @return Number of roads, whose connecting roads were tried.
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return Number of roads, whose connecting roads were not tried, because the target can not be reached from them.
+     */
+    public long getPruned() {
+        return pruned;
+    }
+
+    /**
+     * Dijkstra search from the target over relations. Only distances less than maxLength are found.
+     */
+    private void findDistances(Road target) {
+        setDistance(target, 0D);
+        int size = offer(0, target, 0D);
+        while(size > 0) {
+            Road road = queue[0];
+            double distance = queueKeys[0];
+            size = poll(size);
+            if(distance > distances[road.getIndex()]) {
+                continue;                                   // Road was reached by shorter path later.
+            }
+            double next = distance + road.getLength();
+            if(next >= maxLength) {
+                continue;
+            }
+            size = relax(size, road.getChildren(), next);
+            size = relax(size, road.getFriends(), next);
+            size = relax(size, road.getSiblings(), next);
+            size = relax(size, road.getParents(), next);
+        }
+    }
+
+    private int relax(int size, List<Road> roads, double distance) {
+        for(Road road : roads) {
+            int index = road.getIndex();
+            if(index >= 0 && (distanceStamps[index] != epoch || distance < distances[index])) {
+                setDistance(road, distance);
+                size = offer(size, road, distance);
+            }
+        }
+        return size;
+    }
+
+    private void setDistance(Road road, double distance) {
+        distanceStamps[road.getIndex()] = epoch;
+        distances[road.getIndex()] = distance;
+    }
+
+    /**
+     * Breadth first search from the target over relations. Only numbers not greater than maxDepth are found.
+     */
+    private void findHops(Road target) {
+        hopStamps[target.getIndex()] = epoch;
+        hops[target.getIndex()] = 0;
+        queue[0] = target;
+        int head = 0;
+        int tail = 1;
+        while(head < tail) {
+            Road road = queue[head++];
+            int next = hops[road.getIndex()] + 1;
+            if(next > maxDepth) {
+                continue;
+            }
+            tail = visit(tail, road.getChildren(), next);
+            tail = visit(tail, road.getFriends(), next);
+            tail = visit(tail, road.getSiblings(), next);
+            tail = visit(tail, road.getParents(), next);
+        }
+    }
+
+    private int visit(int tail, List<Road> roads, int next) {
+        for(Road road : roads) {
+            int index = road.getIndex();
+            if(index >= 0 && hopStamps[index] != epoch) {
+                hopStamps[index] = epoch;
+                hops[index] = next;
+                if(tail == queue.length) {
+                    queue = Arrays.copyOf(queue, tail << 1);
+                    queueKeys = Arrays.copyOf(queueKeys, tail << 1);
+                }
+                queue[tail++] = road;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Adds road to the binary heap.
+     * @return New size of the heap.
+     */
+    private int offer(int size, Road road, double key) {
+        if(size == queue.length) {
+            queue = Arrays.copyOf(queue, size << 1);
+            queueKeys = Arrays.copyOf(queueKeys, size << 1);
+        }
+        int i = size;
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(queueKeys[parent] <= key) {
+                break;
+            }
+            queue[i] = queue[parent];
+            queueKeys[i] = queueKeys[parent];
+            i = parent;
+        }
+        queue[i] = road;
+        queueKeys[i] = key;
+        return size + 1;
+    }
+
+    /**
+     * Removes the first road from the binary heap.
+     * @return New size of the heap.
+     */
+    private int poll(int size) {
+        size--;
+        Road last = queue[size];
+        double key = queueKeys[size];
+        queue[size] = null;
+        int i = 0;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size) {
+                break;
+            }
+            if(child + 1 < size && queueKeys[child + 1] < queueKeys[child]) {
+                child++;
+            }
+            if(key <= queueKeys[child]) {
+                break;
+            }
+            queue[i] = queue[child];
+            queueKeys[i] = queueKeys[child];
+            i = child;
+        }
+        if(size > 0) {
+            queue[i] = last;
+            queueKeys[i] = key;
+        }
+        return size;
+    }
+}
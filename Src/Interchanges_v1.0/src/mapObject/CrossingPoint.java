@@ -1,9 +1,8 @@
 package mapObject;
 
 import application.Map;
+import writer.RowEncoder;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 public class CrossingPoint {
@@ -13,10 +12,7 @@ public class CrossingPoint {
     private Road bottom;
     private double distanceFromTopRoadStart;
     private double distanceFromBottomRoadStart;
-    private List<Road> connectingRoads = new ArrayList<>();
-    private List<LinkedList<Point>> connectionPaths = new ArrayList<>();
-    private boolean isConnectionExist = false;
-    private Junction junction;
+    private int index = -1;     // Position in the list of all crossing points of the map. -1 - not set.
 
     public CrossingPoint(Point crossingPoint, Segment segmentA, Segment segmentB) {
         this.crossingPoint = crossingPoint;
@@ -53,9 +49,27 @@ public class CrossingPoint {
         bottom.addCrossingPoint(this, Boolean.FALSE);
     }
 
-    @Override
-    public String toString() {
-        return String.format("\"POINT (%s)\"%s0%s%d%s%d%s%d%n", crossingPoint, Map.CSV_SPLITTER, Map.CSV_SPLITTER, top.getId(), Map.CSV_SPLITTER, bottom.getId(), Map.CSV_SPLITTER, junction.getId());
+    /**
+     * @param junction Junction of This Crossing Point, see {@link Detection#getJunction(CrossingPoint)}.
+     * @return String which represents This Crossing Point as entry in CSV file of points.
+     */
+    public String toString(Junction junction) {
+        RowEncoder encoder = new RowEncoder();
+        encode(encoder, junction);
+        return encoder.toString();
+    }
+
+    /**
+     * Appends entry of This Crossing Point in CSV file of points, the same as {@link #toString(Junction)} returns.
+     * @param junction Junction of This Crossing Point, see {@link Detection#getJunction(CrossingPoint)}.
+     */
+    public void encode(RowEncoder encoder, Junction junction) {
+        encoder.append("\"POINT (").appendCoordinates(crossingPoint.getLatitude(), crossingPoint.getLongitude()).append(")\"")
+                .append(Map.CSV_SPLITTER).append('0')
+                .append(Map.CSV_SPLITTER).append(top.getId())
+                .append(Map.CSV_SPLITTER).append(bottom.getId())
+                .append(Map.CSV_SPLITTER).append(junction.getId())
+                .endRow();
     }
 
     @Override
@@ -74,7 +88,7 @@ public class CrossingPoint {
         double distance = 0D;
         for(Segment roadSegment : segmentWithCrossingPoint.getRoad().getSegments()) {
             if(segmentWithCrossingPoint == roadSegment) {
-                distance += segmentWithCrossingPoint.getStart().distanceTo(crossingPoint);
+                distance += segmentWithCrossingPoint.getVertices().distance(segmentWithCrossingPoint.getStart(), crossingPoint.getVertex());
                 break;
             } else {
                 distance += roadSegment.getLength();
@@ -83,19 +97,6 @@ public class CrossingPoint {
         return distance;
     }
 
-    public void addConnectingRoad(Road road) {
-        for(Road connectingRoad : connectingRoads) {
-            if(connectingRoad == road) {
-                return;
-            }
-        }
-        connectingRoads.add(road);
-    }
-
-    public void addConnectionPath(LinkedList<Road> connection) {
-        connectionPaths.add(Road.merge(connection));
-    }
-
     public double getDistanceFromBottomRoadStart() {
         return distanceFromBottomRoadStart;
     }
@@ -112,14 +113,6 @@ public class CrossingPoint {
         }
     }
 
-    public boolean isConnectionExist() {
-        return isConnectionExist;
-    }
-
-    public void setConnectionExist(boolean connectionExist) {
-        isConnectionExist = connectionExist;
-    }
-
     public Point getCrossingPoint() {
         return crossingPoint;
     }
@@ -132,27 +125,14 @@ public class CrossingPoint {
         return bottom;
     }
 
-    public boolean isJunctionSet() {
-        if(junction == null) {
-            return false;
-        } else {
-            return true;
-        }
-    }
-
-    public Junction getJunction() {
-        return junction;
+    public int getIndex() {
+        return index;
     }
 
-    public void setJunction(Junction junction) {
-        this.junction = junction;
-    }
-
-    public List<Road> getConnectingRoads() {
-        return connectingRoads;
-    }
-
-    public List<LinkedList<Point>> getConnectionPaths() {
-        return connectionPaths;
+    /**
+     * @param index Position of This Crossing Point in the list of all crossing points of the map, used by {@link Detection}.
+     */
+    public void setIndex(int index) {
+        this.index = index;
     }
 }
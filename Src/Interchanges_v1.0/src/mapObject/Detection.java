@@ -0,0 +1,223 @@
+package mapObject;
+
+import index.Envelope;
+import index.EnvelopeTree;
+import index.JunctionIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of one detection of junctions: connections of every crossing point, junctions and counters of the search.
+ * Detection does not change roads and crossing points of the map, so the loaded map is reused for next detection
+ * with other parameters and every detection has its own results.
+ * Crossing points must have indexes, see {@link CrossingPoint#setIndex(int)}. Results of different crossing points
+ * may be written on different threads, results of one crossing point must be written on one thread.
+ */
+public class Detection {
+
+    private int maxDepth;
+    private double maxLength;
+    private ConnectionPaths paths;
+    private boolean[] isConnectionExist;
+    private List<List<Road>> connectingRoads;       // Roads of any connection of each crossing point. Null - no roads.
+    private List<List<int[]>> connectionPaths;      // Roads of each connection of each crossing point, see ConnectionPaths.
+    private Junction[] junctionOfCrossingPoint;
+    private List<Junction> junctions = new ArrayList<>();
+    private JunctionIndex junctionIndex;            // Created by the first query of junctions output.
+    private EnvelopeTree<Junction> junctionTree;    // Created by the first spatial query of junctions.
+    private long expanded = 0;
+    private long pruned = 0;
+
+    /**
+     * @param numberOfCrossingPoints Number of crossing points of the map.
+     * @param paths Table of connections, see {@link ConnectionPaths}.
+     * @param maxDepth Number of roads at which maxLength exceeding is ignored.
+     * @param maxLength Distance of path which connects two interchanging roads.
+     */
+    public Detection(int numberOfCrossingPoints, ConnectionPaths paths, int maxDepth, double maxLength) {
+        this.paths = paths;
+        this.maxDepth = maxDepth;
+        this.maxLength = maxLength;
+        isConnectionExist = new boolean[numberOfCrossingPoints];
+        connectingRoads = new ArrayList<>(Collections.<List<Road>>nCopies(numberOfCrossingPoints, null));
+        connectionPaths = new ArrayList<>(Collections.<List<int[]>>nCopies(numberOfCrossingPoints, null));
+        junctionOfCrossingPoint = new Junction[numberOfCrossingPoints];
+    }
+
+    public void addConnectingRoad(CrossingPoint crossingPoint, Road road) {
+        List<Road> roads = connectingRoads.get(crossingPoint.getIndex());
+        if(roads == null) {
+            roads = new ArrayList<>();
+            connectingRoads.set(crossingPoint.getIndex(), roads);
+        }
+        for(Road connectingRoad : roads) {
+            if(connectingRoad == road) {
+                return;
+            }
+        }
+        roads.add(road);
+    }
+
+    /**
+     * @param connection Roads of connection, see {@link ConnectionPaths#add(Road[], int)}.
+     */
+    public void addConnectionPath(CrossingPoint crossingPoint, int[] connection) {
+        List<int[]> crossingPointPaths = connectionPaths.get(crossingPoint.getIndex());
+        if(crossingPointPaths == null) {
+            crossingPointPaths = new ArrayList<>();
+            connectionPaths.set(crossingPoint.getIndex(), crossingPointPaths);
+        }
+        crossingPointPaths.add(connection);
+    }
+
+    public boolean isConnectionExist(CrossingPoint crossingPoint) {
+        return isConnectionExist[crossingPoint.getIndex()];
+    }
+
+    public void setConnectionExist(CrossingPoint crossingPoint) {
+        isConnectionExist[crossingPoint.getIndex()] = true;
+    }
+
+    public List<Road> getConnectingRoads(CrossingPoint crossingPoint) {
+        List<Road> roads = connectingRoads.get(crossingPoint.getIndex());
+        return (roads == null) ? Collections.<Road>emptyList() : roads;
+    }
+
+    public List<int[]> getConnectionPaths(CrossingPoint crossingPoint) {
+        List<int[]> crossingPointPaths = connectionPaths.get(crossingPoint.getIndex());
+        return (crossingPointPaths == null) ? Collections.<int[]>emptyList() : crossingPointPaths;
+    }
+
+    public boolean isJunctionSet(CrossingPoint crossingPoint) {
+        return junctionOfCrossingPoint[crossingPoint.getIndex()] != null;
+    }
+
+    public Junction getJunction(CrossingPoint crossingPoint) {
+        return junctionOfCrossingPoint[crossingPoint.getIndex()];
+    }
+
+    public void setJunction(CrossingPoint crossingPoint, Junction junction) {
+        junctionOfCrossingPoint[crossingPoint.getIndex()] = junction;
+    }
+
+    public void addJunction(Junction junction) {
+        junctions.add(junction);
+    }
+
+    public List<Junction> getJunctions() {
+        return junctions;
+    }
+
+    /**
+     * Index is created on the first call, so junctions must be analysed before it. Outputs may call it on different threads.
+     * @return Indexes of junctions by their metrics for output queries.
+     */
+    public synchronized JunctionIndex getJunctionIndex() {
+        if(junctionIndex == null) {
+            junctionIndex = new JunctionIndex(junctions);
+        }
+        return junctionIndex;
+    }
+
+    /**
+     * Tree is created on the first call, after junctions are grouped. Outputs may call it on different threads.
+     * @return R-tree of junctions by envelopes of their roads, see {@link Junction#getEnvelope()}.
+     */
+    public synchronized EnvelopeTree<Junction> getJunctionTree() {
+        if(junctionTree == null) {
+            List<Envelope> envelopes = new ArrayList<>(junctions.size());
+            for(Junction junction : junctions) {
+                envelopes.add(junction.getEnvelope());
+            }
+            junctionTree = new EnvelopeTree<>(junctions, envelopes);
+        }
+        return junctionTree;
+    }
+
+    public int getNumberOfCrossingPoints() {
+        return isConnectionExist.length;
+    }
+
+    public ConnectionPaths getPaths() {
+        return paths;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public double getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Condition of connection, see {@link Road#detectConnections(Road, CrossingPoint, ConnectionSearch)}.
+     * Number of roads and length only grow along the path, so path which satisfies it at the target satisfies it at every road.
+     * @param depth Number of roads of connection.
+     * @param length Length of connection without start road.
+     * @return True - if path with given number of roads and length is connection of this detection.
+     */
+    public boolean isConnection(int depth, double length) {
+        return (depth <= maxDepth && length < Road.MAX_DEPTH_LENGTH) || length < maxLength;
+    }
+
+    /**
+     * @return Parameters of detection for file names, for example "r6_l900".
+     */
+    public String getName() {
+        String length = (maxLength == Math.rint(maxLength)) ? String.valueOf((long) maxLength) : String.valueOf(maxLength);
+        return String.format("r%d_l%s", maxDepth, length);
+    }
+
+    /**
+     * @return Number of crossing points, which have at least one connection.
+     */
+    public int getNumberOfConnectedCrossingPoints() {
+        int number = 0;
+        for(boolean isExist : isConnectionExist) {
+            if(isExist) {
+                number++;
+            }
+        }
+        return number;
+    }
+
+    /**
+     * @return Number of found connections of all crossing points.
+     */
+    public int getNumberOfConnections() {
+        int number = 0;
+        for(List<int[]> crossingPointPaths : connectionPaths) {
+            if(crossingPointPaths != null) {
+                number += crossingPointPaths.size();
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Adds counters of one search, see {@link ConnectionSearch}. Bounds of search are reused for crossing points
+     * of the same road, which follow each other on one thread, so if detection runs on several threads,
+     * counters depend on scheduling of threads and may differ between runs. Found connections do not depend on it.
+     */
+    public void addCounters(long expanded, long pruned) {
+        this.expanded += expanded;
+        this.pruned += pruned;
+    }
+
+    /**
+     * @return Number of roads, whose connecting roads were tried.
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+
+    /**
+     * @return Number of roads, whose connecting roads were not tried, because the target can not be reached from them.
+     */
+    public long getPruned() {
+        return pruned;
+    }
+}
@@ -1,7 +1,14 @@
 package mapObject;
 
+import index.Envelope;
+import writer.RowEncoder;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Junction {
 
@@ -15,36 +22,35 @@ public class Junction {
     private int numberOfLevels = 0;
 
 
-    public Junction(CrossingPoint crossingPoint, int id) {
+    /**
+     * Creates empty junction, its roads and crossing points are added by {@link JunctionGrouping#group(CrossingPoint, int)}.
+     * @param id ID of this junction.
+     */
+    Junction(int id) {
         this.id = id;
-        crossingPoint.setJunction(this);
-        crossingPoints.add(crossingPoint);
-        for(Road road : crossingPoint.getConnectingRoads()) {
-            road.addCrossingPointsToJunction(this);
-        }
     }
 
+    /**
+     * Classifies points of roads of This Junction and counts them. Only This Junction is changed,
+     * so different junctions may be analysed on different threads.
+     * @param isRightHandTraffic True - if right hand traffic. False - if left hand traffic.
+     */
     public void analyse(boolean isRightHandTraffic) {
-        List<Point> setPoints = new ArrayList<>();
-        List<Integer> levels = new ArrayList<>();
+        Set<Road> roadSet = new HashSet<>(roads);
+        Map<Point, Integer> types = new HashMap<>();      // Type of each point in This Junction, see Point#classify(Set, boolean).
+        Set<Integer> levels = new HashSet<>();
         for (Road road : roads) {
-            for (Integer layer : road.getLayers()) {
-                if (!levels.contains(layer)) {
-                    levels.add(layer);
-                }
-            }
-            if (!setPoints.contains(road.getStart())) {
-                road.getStart().setType(roads, isRightHandTraffic);
-                setPoints.add(road.getStart());
+            levels.addAll(road.getLayers());
+            if (!types.containsKey(road.getStart())) {
+                types.put(road.getStart(), road.getStart().classify(roadSet, isRightHandTraffic));
             }
-            if (!setPoints.contains(road.getEnd())) {
-                road.getEnd().setType(roads, isRightHandTraffic);
-                setPoints.add(road.getEnd());
+            if (!types.containsKey(road.getEnd())) {
+                types.put(road.getEnd(), road.getEnd().classify(roadSet, isRightHandTraffic));
             }
         }
         numberOfLevels = levels.size();
-        for(Point point : setPoints) {
-            switch (point.getType()) {
+        for(int type : types.values()) {
+            switch (type) {
                 case Point.INTERSECTION:    numberOfIntersectionPoints++;
                                             break;
                 case Point.START:           numberOfStartPoints++;
@@ -58,22 +64,87 @@ public class Junction {
             }
         }
         for(Road road : roads) {
-            if( (road.getStart().getType() == Point.JOIN && road.getEnd().getType() == Point.SPLIT) || (!road.isBothWay() && road.getStart().getType() == Point.SPLIT_JOIN && road.getEnd().getType() == Point.SPLIT_JOIN) ) {
+            int startType = types.get(road.getStart());
+            int endType = types.get(road.getEnd());
+            if( (startType == Point.JOIN && endType == Point.SPLIT) || (!road.isBothWay() && startType == Point.SPLIT_JOIN && endType == Point.SPLIT_JOIN) ) {
                 numberOfConflictRoads++;
             }
         }
     }
 
-    public void addCrossingPoint(CrossingPoint newCrossingPoint) {
-        if(!crossingPoints.contains(newCrossingPoint)){
-            crossingPoints.add(newCrossingPoint);
+    /**
+     * @param newCrossingPoint Crossing point, which is not in this junction yet.
+     */
+    void addCrossingPoint(CrossingPoint newCrossingPoint) {
+        crossingPoints.add(newCrossingPoint);
+    }
+
+    /**
+     * @param newRoad Road, which is not in this junction yet.
+     */
+    void addRoad(Road newRoad) {
+        roads.add(newRoad);
+    }
+
+    /**
+     * Appends entry of This Junction in index file of junctions archive, see {@link application.Map#toFileJunctionsArchive}.
+     * @param offset Offset of the first row of This Junction in archive in bytes.
+     * @param length Length of rows of This Junction in archive in bytes.
+     */
+    public void encodeIndexRow(RowEncoder encoder, long offset, long length) {
+        String splitter = application.Map.CSV_SPLITTER;
+        encoder.append(id)
+                .append(splitter).append(getNumberOfSides())
+                .append(splitter).append(numberOfLevels)
+                .append(splitter).append(getNumberOfCrossingPoints())
+                .append(splitter).append(numberOfConflictRoads)
+                .append(splitter).append(numberOfIntersectionPoints)
+                .append(splitter).append(offset)
+                .append(splitter).append(length)
+                .endRow();
+    }
+
+    /**
+     * @return String which represent labels in index file of junctions archive.
+     */
+    public static String getIndexLabels() {
+        String splitter = application.Map.CSV_SPLITTER;
+        return String.format("junctionID%ssides%slevels%scrossingPoints%sconflictRoads%sintersections%soffset%slength%n", splitter, splitter, splitter, splitter, splitter, splitter, splitter);
+    }
+
+    /**
+     * @return Roads of This Junction, which are written to output. Copy of a road is left out, if its original road is in This Junction.
+     */
+    public List<Road> getOutputRoads() {
+        Set<Integer> originalIds = new HashSet<>();
+        for(Road road : roads) {
+            if(!road.isCopy()) {
+                originalIds.add(road.getId());
+            }
         }
+        List<Road> outputRoads = new ArrayList<>(roads.size());
+        for(Road road : roads) {
+            if(!road.isCopy() || !originalIds.contains(road.getId())) {
+                outputRoads.add(road);
+            }
+        }
+        return outputRoads;
     }
 
-    public void addRoad(Road newRoad) {
-        if(!roads.contains(newRoad)) {
-            roads.add(newRoad);
+    /**
+     * @return Envelope of all crossing points and roads of This Junction.
+     */
+    public Envelope getEnvelope() {
+        Envelope envelope = null;
+        for(CrossingPoint crossingPoint : crossingPoints) {
+            Point point = crossingPoint.getCrossingPoint();
+            Envelope pointEnvelope = new Envelope(point.getLatitude(), point.getLongitude(), point.getLatitude(), point.getLongitude());
+            envelope = (envelope == null) ? pointEnvelope : envelope.union(pointEnvelope);
+        }
+        for(Road road : roads) {
+            envelope = (envelope == null) ? road.getEnvelope() : envelope.union(road.getEnvelope());
         }
+        return envelope;
     }
 
     public List<Road> getRoads() {
@@ -0,0 +1,103 @@
+package mapObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Groups crossing points with connections to junctions. Junction of a crossing point gets its connecting roads,
+ * crossing points of these roads which have connections and are not in any junction yet, their connecting roads and so on.
+ * Grouping is directed and depends on order of crossing points: connecting road of a crossing point may hold crossing points
+ * of another junction and one road may belong to several junctions, so junctions are not components of roads and crossing points.
+ * <p>
+ * Roads and crossing points are walked with explicit stack in the same order as recursive walk, so junctions get
+ * the same roads and crossing points in the same order, but deep junctions do not overflow the call stack.
+ * Every crossing point of a road, which has connection, is added to a junction on the first walk of that road,
+ * so each road keeps one position in its crossing points for all junctions and is walked only once.
+ * Roads and crossing points must have indexes, see {@link Road#setIndex(int)} and {@link CrossingPoint#setIndex(int)}.
+ */
+public class JunctionGrouping {
+
+    private static final int DEFAULT_CAPACITY = 1 << 6;
+
+    private Detection detection;
+    private List<Iterator<List<Object>>> roadPositions; // Next crossing point of each road. Null - road is not walked yet.
+    private int[] connectingRoadPositions;              // Next connecting road of each crossing point.
+    private int[] roadJunctions;                        // Id of the last junction, to which road was added.
+    private Object[] stack = new Object[DEFAULT_CAPACITY];     // Roads and crossing points, whose walk is not finished.
+
+    /**
+     * @param detection Results of detection, junction of every crossing point is written to them.
+     */
+    public JunctionGrouping(Detection detection) {
+        this.detection = detection;
+        roadPositions = new ArrayList<>(Collections.<Iterator<List<Object>>>nCopies(detection.getPaths().getNumberOfRoads(), null));
+        connectingRoadPositions = new int[detection.getNumberOfCrossingPoints()];
+        roadJunctions = new int[detection.getPaths().getNumberOfRoads()];
+    }
+
+    /**
+     * Creates junction of given crossing point and all crossing points connected to it.
+     * @param crossingPoint Crossing point, which connection exists and which is not in any junction yet.
+     * @param id ID of new junction, it must be positive and greater than IDs of previous junctions of this grouping.
+     * @return New junction.
+     */
+    public Junction group(CrossingPoint crossingPoint, int id) {
+        Junction junction = new Junction(id);
+        addCrossingPoint(junction, crossingPoint);
+        int size = push(0, crossingPoint);
+        while(size > 0) {
+            Object top = stack[size - 1];
+            if(top instanceof CrossingPoint) {
+                CrossingPoint current = (CrossingPoint) top;
+                List<Road> connectingRoads = detection.getConnectingRoads(current);
+                int position = connectingRoadPositions[current.getIndex()]++;
+                if(position >= connectingRoads.size()) {
+                    stack[--size] = null;
+                    continue;
+                }
+                Road road = connectingRoads.get(position);
+                if(roadJunctions[road.getIndex()] != id) {
+                    roadJunctions[road.getIndex()] = id;
+                    junction.addRoad(road);
+                }
+                if(roadPositions.get(road.getIndex()) == null) {
+                    roadPositions.set(road.getIndex(), road.getCrossingPoints().iterator());
+                }
+                if(roadPositions.get(road.getIndex()).hasNext()) {
+                    size = push(size, road);
+                }
+            } else {
+                Iterator<List<Object>> position = roadPositions.get(((Road) top).getIndex());
+                if(!position.hasNext()) {
+                    stack[--size] = null;
+                    continue;
+                }
+                CrossingPoint next = (CrossingPoint) position.next().get(0);
+                if(detection.isConnectionExist(next) && !detection.isJunctionSet(next)) {
+                    addCrossingPoint(junction, next);
+                    size = push(size, next);
+                }
+            }
+        }
+        return junction;
+    }
+
+    private void addCrossingPoint(Junction junction, CrossingPoint crossingPoint) {
+        detection.setJunction(crossingPoint, junction);
+        junction.addCrossingPoint(crossingPoint);
+    }
+
+    /**
+     * @return New size of the stack.
+     */
+    private int push(int size, Object roadOrCrossingPoint) {
+        if(size == stack.length) {
+            stack = Arrays.copyOf(stack, size << 1);
+        }
+        stack[size] = roadOrCrossingPoint;
+        return size + 1;
+    }
+}
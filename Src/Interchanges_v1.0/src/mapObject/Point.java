@@ -1,6 +1,6 @@
 package mapObject;
 
-import exception.EndOfRoadException;
+import index.VertexStore;
 
 import java.util.*;
 
@@ -14,25 +14,20 @@ public class Point {
     public static final int SPLIT_JOIN = 12;
     public static final int INTERSECTION = 14;
 
-    private double latitude;
-    private double longitude;
-    private List<Segment> connectingSegments = new ArrayList<>();
+    private VertexStore vertices;
+    private int vertex;
     private List<Road> incomingRoads = new ArrayList<>();
     private List<Road> outgoingRoads = new ArrayList<>();
-    private int latitudeBucket;
-    private int longitudeBucket;
-    private int type = 0; // 0 - undefined.
 
     /**
-     * Creates Point with given GPS coordinates.
-     * @param latitude Latitude (First number).
-     * @param longitude Longitude (Second number).
+     * Creates Point of given vertex. Points should be requested from {@link VertexStore#getPoint(int)},
+     * so every vertex has only one Point object.
+     * @param vertices Store, which keeps coordinates of the vertex.
+     * @param vertex Id of the vertex.
      */
-    public Point(double latitude, double longitude, int latitudeBucket, int longitudeBucket) {
-        this.latitude = latitude;
-        this.longitude = longitude;
-        this.latitudeBucket = latitudeBucket;
-        this.longitudeBucket = longitudeBucket;
+    public Point(VertexStore vertices, int vertex) {
+        this.vertices = vertices;
+        this.vertex = vertex;
     }
 
     /**
@@ -40,7 +35,7 @@ public class Point {
      */
     @Override
     public String toString() {
-        return String.format(Locale.ROOT,"%f %f", latitude, longitude);
+        return vertices.toString(vertex);
     }
 
     @Override
@@ -63,59 +58,26 @@ public class Point {
     }
 
     /**
-     * @param latitude Latitude coordinate of required Point.
-     * @param longitude Longitude coordinate of required Point.
-     * @param latitudeBuckets List of all created Points.
-     * @return Point object with given coordinates, or new Point if Point with given coordinates does not exist.
+     * Calculate distance between two points specified by latitude and longitude.
+     * Uses Haversine formula.
+     * @param pointB Distance to this object.
+     * @return Distance in meters.
      */
-    public static Point firstOrNew(double latitude, double longitude, HashMap<Integer, HashMap<Integer, LinkedList<Point>>> latitudeBuckets) {
-        int latitudeBucketKey = getBucketKey(latitude);
-        int longitudeBucketKey = getBucketKey(longitude);
-        if(latitudeBuckets.containsKey(latitudeBucketKey)) {
-            HashMap<Integer, LinkedList<Point>> longitudeBuckets = latitudeBuckets.get(latitudeBucketKey);
-            if(longitudeBuckets.containsKey(longitudeBucketKey)) {
-                LinkedList<Point> pointsBucket = longitudeBuckets.get(longitudeBucketKey);
-                for(Point point : pointsBucket) {
-                    if(point.isEqual(latitude, longitude)) {
-                        return point;
-                    }
-                }
-                // Point not found in the correct bucket. New point required.
-                Point newPoint = new Point(latitude, longitude, latitudeBucketKey, longitudeBucketKey);
-                pointsBucket.add(newPoint);
-                return newPoint;
-            } else {
-                // Points with similar longitude does not exist. New point, new points bucket required.
-                Point newPoint = new Point(latitude, longitude, latitudeBucketKey, longitudeBucketKey);
-                LinkedList<Point> pointsBucket = new LinkedList<>();
-                pointsBucket.add(newPoint);
-                longitudeBuckets.put(longitudeBucketKey, pointsBucket);
-                return newPoint;
-            }
-        } else {
-            // Points with similar latitude does not exist. New point, new points bucket, new longitude buckets required.
-            Point newPoint = new Point(latitude, longitude, latitudeBucketKey, longitudeBucketKey);
-            LinkedList<Point> pointsBucket = new LinkedList<>();
-            pointsBucket.add(newPoint);
-            HashMap<Integer, LinkedList<Point>> longitudeBuckets = new HashMap<>();
-            longitudeBuckets.put(longitudeBucketKey, pointsBucket);
-            latitudeBuckets.put(latitudeBucketKey, longitudeBuckets);
-            return newPoint;
-        }
+    public double distanceTo(Point pointB) {
+        return distance(getLatitude(), getLongitude(), pointB.getLatitude(), pointB.getLongitude());
     }
 
     /**
      * Calculate distance between two points specified by latitude and longitude.
      * Uses Haversine formula.
-     * @param pointB Distance to this object.
-     * @return Distance in meters.
+     * @return Distance in meters from point A to point B.
      */
-    public double distanceTo(Point pointB) {
+    public static double distance(double latitudeA, double longitudeA, double latitudeB, double longitudeB) {
         final int R = 6371; // Radius of the earth
-        double latDistance = Math.toRadians(pointB.getLatitude() - latitude);
-        double lonDistance = Math.toRadians(pointB.getLongitude() - longitude);
+        double latDistance = Math.toRadians(latitudeB - latitudeA);
+        double lonDistance = Math.toRadians(longitudeB - longitudeA);
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(pointB.getLatitude()))
+                + Math.cos(Math.toRadians(latitudeA)) * Math.cos(Math.toRadians(latitudeB))
                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         return R * c * 1000;
@@ -123,22 +85,27 @@ public class Point {
 
     /**
      * This Point is axis.
-     * @param pointA
-     * @param pointB
-     * @return Angle between two vectors going thru given points and crossing at This Point.
+     * @param vertexA Id of vertex A.
+     * @param vertexB Id of vertex B.
+     * @return Angle between two vectors going thru given vertices and crossing at This Point.
      */
-    public double getAngle(Point pointA, Point pointB) {
-        if(pointA == pointB) {
+    public double getAngle(int vertexA, int vertexB) {
+        if(vertexA == vertexB) {
             return 0D;
         } else {
-            double dLonA = (pointA.getLongitude() - longitude);
-            double yA = Math.sin(dLonA) * Math.cos(pointA.getLatitude());
-            double xA = Math.cos(latitude) * Math.sin(pointA.getLatitude()) - Math.sin(latitude) * Math.cos(pointA.getLatitude()) * Math.cos(dLonA);
+            double latitude = getLatitude();
+            double longitude = getLongitude();
+            double latitudeA = vertices.getLatitude(vertexA);
+            double latitudeB = vertices.getLatitude(vertexB);
+
+            double dLonA = (vertices.getLongitude(vertexA) - longitude);
+            double yA = Math.sin(dLonA) * Math.cos(latitudeA);
+            double xA = Math.cos(latitude) * Math.sin(latitudeA) - Math.sin(latitude) * Math.cos(latitudeA) * Math.cos(dLonA);
             double bearingA = 360D - ((Math.toDegrees(Math.atan2(yA, xA)) + 360) % 360);
 
-            double dLonB = (pointB.getLongitude() - longitude);
-            double yB = Math.sin(dLonB) * Math.cos(pointB.getLatitude());
-            double xB = Math.cos(latitude) * Math.sin(pointB.getLatitude()) - Math.sin(latitude) * Math.cos(pointB.getLatitude()) * Math.cos(dLonB);
+            double dLonB = (vertices.getLongitude(vertexB) - longitude);
+            double yB = Math.sin(dLonB) * Math.cos(latitudeB);
+            double xB = Math.cos(latitude) * Math.sin(latitudeB) - Math.sin(latitude) * Math.cos(latitudeB) * Math.cos(dLonB);
             double bearingB = 360D - ((Math.toDegrees(Math.atan2(yB, xB)) + 360) % 360);
 
             if (bearingA > bearingB) {
@@ -155,7 +122,7 @@ public class Point {
      * @return True - if this point is equal to given coordinates, false - if this point not equals to given coordinates.
      */
     public boolean isEqual(double latitude, double longitude) {
-        if(this.latitude == latitude && this.longitude == longitude) {
+        if(getLatitude() == latitude && getLongitude() == longitude) {
             return true;
         }
         else {
@@ -164,64 +131,13 @@ public class Point {
     }
 
     /**
-     * Adds given segment to list of segments, which are connecting to this point.
-     * @param segment Segment, which will be added.
-     */
-    public void addConnectingSegment(Segment segment) {
-        connectingSegments.add(segment);
-    }
-
-    /**
-     * Checking is this point is end of road. End of road is an intersection or Point connecting to only one segment.
-     * @return True - if point connects not to 2 segments or 2 connecting segments are opposite directions.
-     * False - if point connects to 2 segments, which are the same direction.
-     */
-    public boolean isEndOfRoad() {
-        if(connectingSegments.size() == 2) {                                                                // If only two segments are connected, there may not be an end of road.
-            if(connectingSegments.get(0).isBothWay() != connectingSegments.get(1).isBothWay()) {            // If one road is one way and another is both way - end of road.
-                return true;
-            } else {                                                                                        // If both segments are one way or both way
-                if ((!connectingSegments.get(0).isBothWay() && !connectingSegments.get(1).isBothWay()) &&   //      If both segments are one way
-                        (connectingSegments.get(0).getEnd() == connectingSegments.get(1).getEnd() ||        //          and these two segments merge
-                         connectingSegments.get(0).getStart() == connectingSegments.get(1).getStart())) {   //          or separate - end of road.
-                    return true;
-                } else {
-                    return false;                                           // If both segments are both way or both one way segments do not merge or separate - no end of road.
-                }
-            }
-        } else {                                                            // If at this point is intersection - end of road.
-            return true;
-        }
-    }
-
-    /**
-     * If this point is not the end of the road, method returns neighbor segment of given segment where both of them connects to this point.
-     * @param currentSegment Segment for which the neighbor segment is requested.
-     * @return Neighbor segment of given segment.
-     * @throws EndOfRoadException If given segment do not have neighbor, have more than one neighbors or road goes in circle.
-     * @throws IllegalArgumentException If given segment is not connecting to this Point.
+     * Classifies This Point as a point of junction. Point is not changed, so points shared by several junctions
+     * may be classified for each of them on different threads.
+     * @param includingOnly Roads of junction.
+     * @param isRightHandTraffic True - if right hand traffic. False - if left hand traffic.
+     * @return Type of This Point in the junction, one of START, END, START_END, SPLIT, JOIN, SPLIT_JOIN, INTERSECTION.
      */
-    public Segment getNeighbor(Segment currentSegment, Point protectionPoint) throws EndOfRoadException, IllegalArgumentException {
-        if(isEndOfRoad()) {
-            throw new EndOfRoadException("This point is end of road. Given segment do not have neighbor or have more than one neighbors.");
-        } else {
-            if(this == protectionPoint) {
-                throw new EndOfRoadException("Road goes in circle, in one direction and without any intersection.");
-            } else {
-                if(connectingSegments.get(0) == currentSegment) {       // If first connecting segment is given segment
-                    return connectingSegments.get(1);                   //      second segment must be a neighbor
-                } else {                                                // if first connecting segment is not given segment, so that first segment should be neighbor.
-                    if(connectingSegments.get(1) != currentSegment) {   //      But maybe second connecting segment is also not given segment, meaning that...
-                        throw new IllegalArgumentException("Given segment is not connected to this point.");
-                    } else {
-                        return connectingSegments.get(0);               // If second segment is given segment, first segment must be a neighbor.
-                    }
-                }
-            }
-        }
-    }
-
-    public void setType(List<Road> includingOnly, boolean isRightHandTraffic) {
+    public int classify(Set<Road> includingOnly, boolean isRightHandTraffic) {
         List<Road> inRoads = new ArrayList<>();
         List<Road> outRoads = new ArrayList<>();
         for(Road inRoad : incomingRoads) {
@@ -234,10 +150,11 @@ public class Point {
                 outRoads.add(outRoad);
             }
         }
-        setType(inRoads, outRoads, isRightHandTraffic);
+        return classify(inRoads, outRoads, isRightHandTraffic);
     }
 
-    private void setType(List<Road> inRoads, List<Road> outRoads, boolean isRightHandTraffic) {
+    private int classify(List<Road> inRoads, List<Road> outRoads, boolean isRightHandTraffic) {
+        int type = 0;
         int inSize = inRoads.size();
         int outSize = outRoads.size();
         if(inSize == 2 && outSize == 2) { // Applied on all points
@@ -245,10 +162,10 @@ public class Point {
             Road rOut1 = outRoads.get(1);
             Road rIn0 = inRoads.get(0);
             Road rIn1 = inRoads.get(1);
-            Point out0 = rOut0.getPolyline().get(1);
-            Point out1 = rOut1.getPolyline().get(1);
-            Point in0 = rIn0.getPolyline().get(rIn0.getPolyline().size()-2);
-            Point in1 = rIn1.getPolyline().get(rIn1.getPolyline().size()-2);
+            int out0 = rOut0.getVertex(1);
+            int out1 = rOut1.getVertex(1);
+            int in0 = rIn0.getVertex(rIn0.getNumberOfPoints()-2);
+            int in1 = rIn1.getVertex(rIn1.getNumberOfPoints()-2);
             double angleOut0Out1 = getAngle(out0, out1);
             double angleOut0In0 = getAngle(out0, in0);
             double angleOut0In1 = getAngle(out0, in1);
@@ -268,10 +185,10 @@ public class Point {
                     // T3. At this point one both way road and two one way roads connects. Check hand and direction
                     if(angleOut0In0 == 0) {
                         // out1 and in1 are free roads
-                        setTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
+                        type = getTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
                     } else {
                         // out1 and in0 are free roads
-                        setTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
+                        type = getTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
                     }
                 }
             } else {                                                                    // If out0 is not both way road or it does not have its twin in road
@@ -279,10 +196,10 @@ public class Point {
                     // T3. At this point one both way road and two one way roads connects. Check hand and direction
                     if(angleOut0Out1 == angleOut0In1) {
                         // out0 and in0 are free roads
-                        setTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
+                        type = getTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
                     } else {
                         // out0 and in1 are free roads
-                        setTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
+                        type = getTypeIfRightHandTraffic(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
                     }
                 } else { // If both out roads is not both way or they do not have twin in roads
                     // T2. All roads are free.
@@ -397,32 +314,32 @@ public class Point {
                                             } else {
                                                 rIn1 = incomingRoads.get(0);
                                             }
-                                            Point out0 = outRoads.get(0).getPolyline().get(1);
-                                            Point out1 = outRoads.get(1).getPolyline().get(1);
-                                            Point in0 = inRoads.get(0).getPolyline().get(inRoads.get(0).getPolyline().size()-2);
-                                            Point in1 = rIn1.getPolyline().get(rIn1.getPolyline().size()-2);
+                                            int out0 = outRoads.get(0).getVertex(1);
+                                            int out1 = outRoads.get(1).getVertex(1);
+                                            int in0 = inRoads.get(0).getVertex(inRoads.get(0).getNumberOfPoints()-2);
+                                            int in1 = rIn1.getVertex(rIn1.getNumberOfPoints()-2);
 
                                             if(inRoads.get(0).getId() == outRoads.get(0).getId()) { // in1 and out1 is free
                                                 //double angleOut0Out1 = getAngle(out0, out1);
                                                 //double angleOut0In1 = getAngle(out0, in1);
-                                                //setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
+                                                //type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
                                                 type = START;
                                             } else {
                                                 if(inRoads.get(0).getId() == outRoads.get(1).getId()) { // in1 and out0 is free
                                                     //double angleOut0Out1 = getAngle(out0, out1);
                                                     //double angleOut0In1 = getAngle(out0, in1);
-                                                    //setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
+                                                    //type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
                                                     type = START;
                                                 } else {
                                                     if(rIn1.getId() == outRoads.get(0).getId()) {    // in0 and out1 is free
                                                         double angleOut0Out1 = getAngle(out0, out1);
                                                         double angleOut0In0 = getAngle(out0, in0);
-                                                        setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
+                                                        type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
                                                     } else {
                                                         if(rIn1.getId() == outRoads.get(1).getId()) { // in0 and out0 is free
                                                             double angleOut0Out1 = getAngle(out0, out1);
                                                             double angleOut0In0 = getAngle(out0, in0);
-                                                            setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
+                                                            type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
                                                         } else {
                                                             type = START;
                                                         }
@@ -457,32 +374,32 @@ public class Point {
                                         } else {
                                             rOut1 = outgoingRoads.get(0);
                                         }
-                                        Point out0 = outRoads.get(0).getPolyline().get(1);
-                                        Point out1 = rOut1.getPolyline().get(1);
-                                        Point in0 = inRoads.get(0).getPolyline().get(inRoads.get(0).getPolyline().size()-2);
-                                        Point in1 = inRoads.get(1).getPolyline().get(inRoads.get(1).getPolyline().size()-2);
+                                        int out0 = outRoads.get(0).getVertex(1);
+                                        int out1 = rOut1.getVertex(1);
+                                        int in0 = inRoads.get(0).getVertex(inRoads.get(0).getNumberOfPoints()-2);
+                                        int in1 = inRoads.get(1).getVertex(inRoads.get(1).getNumberOfPoints()-2);
 
                                         if(inRoads.get(0).getId() == outRoads.get(0).getId()) { // in1 and out1 is free
                                             //double angleOut0Out1 = getAngle(out0, out1);
                                             //double angleOut0In1 = getAngle(out0, in1);
-                                            //setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
+                                            //type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 < angleOut0Out1);
                                             type = END;
                                         } else {
                                             if(inRoads.get(0).getId() == rOut1.getId()) { // in1 and out0 is free
                                                 double angleOut0Out1 = getAngle(out0, out1);
                                                 double angleOut0In1 = getAngle(out0, in1);
-                                                setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
+                                                type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In1 > angleOut0Out1);
                                             } else {
                                                 if(inRoads.get(1).getId() == outRoads.get(0).getId()) {    // in0 and out1 is free
                                                     //double angleOut0Out1 = getAngle(out0, out1);
                                                     //double angleOut0In0 = getAngle(out0, in0);
-                                                    //setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
+                                                    //type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 < angleOut0Out1);
                                                     type = END;
                                                 } else {
                                                     if(inRoads.get(1).getId() == rOut1.getId()) { // in0 and out0 is free
                                                         double angleOut0Out1 = getAngle(out0, out1);
                                                         double angleOut0In0 = getAngle(out0, in0);
-                                                        setTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
+                                                        type = getTypeIfRightHandTrafficSplitJoin(isRightHandTraffic, angleOut0In0 > angleOut0Out1);
                                                     } else {
                                                         type = END;
                                                     }
@@ -499,9 +416,11 @@ public class Point {
                 }
             }
         }
+        return type;
     }
 
-    private void setTypeIfRightHandTrafficSplitJoin(boolean isRightHandTraffic, boolean condition) {
+    private int getTypeIfRightHandTrafficSplitJoin(boolean isRightHandTraffic, boolean condition) {
+        int type;
         if(condition) {
             if(isRightHandTraffic) {
                 type = SPLIT_JOIN;
@@ -515,9 +434,11 @@ public class Point {
                 type = SPLIT_JOIN;
             }
         }
+        return type;
     }
 
-    private void setTypeIfRightHandTraffic(boolean isRightHandTraffic, boolean condition) {
+    private int getTypeIfRightHandTraffic(boolean isRightHandTraffic, boolean condition) {
+        int type;
         if(condition) {
             if(isRightHandTraffic) {
                 type = SPLIT_JOIN;
@@ -555,18 +476,19 @@ public class Point {
                 type = SPLIT_JOIN;
             }
         }
+        return type;
     }
 
-    public int getType() {
-        return type;
+    public int getVertex() {
+        return vertex;
     }
 
     public double getLatitude() {
-        return latitude;
+        return vertices.getLatitude(vertex);
     }
 
     public double getLongitude() {
-        return longitude;
+        return vertices.getLongitude(vertex);
     }
 
     public List<Road> getIncomingRoads() {
@@ -576,12 +498,4 @@ public class Point {
     public List<Road> getOutgoingRoads() {
         return outgoingRoads;
     }
-
-    public int getLatitudeBucket() {
-        return latitudeBucket;
-    }
-
-    public int getLongitudeBucket() {
-        return longitudeBucket;
-    }
 }
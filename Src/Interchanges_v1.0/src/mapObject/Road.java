@@ -3,12 +3,23 @@ package mapObject;
 import application.Map;
 import comparator.CrossedRoadComparator;
 import exception.NoRoadException;
+import index.Envelope;
+import index.VertexPath;
+import index.VertexStore;
+import writer.RowEncoder;
 
 import java.util.*;
 
 public class Road {
 
-    private LinkedList<Point> polyline = new LinkedList<>();
+    public static final double MAX_DEPTH_LENGTH = 10000;  // Connection of not more than maxDepth roads is valid, if it is shorter than this.
+
+    private static final Object START_RELATIONS = new Object();
+    private static final Object END_RELATIONS = new Object();
+
+    private VertexStore vertices;
+    private int[] polyline = new int[4];    // Ids of vertices.
+    private int numberOfPoints = 0;
     private LinkedList<Segment> segments = new LinkedList<>();
     private LinkedList<List<Object>> crossingPoints = new LinkedList<>(); // List with crossing points. Each row has CrossingPoint object and Boolean object, which identifies which .
     private List<Road> children = new ArrayList<>();    // These roads are forward options
@@ -17,9 +28,12 @@ public class Road {
     private List<Road> parents = new ArrayList<>();     // These roads are backward options
     private double length;
     private int id;
+    private int index = -1;     // Position in the list of all roads of the map. -1 - not set.
     private List<Integer> layers = new ArrayList<>();
     private boolean isBothWay;
     private boolean isCopy = false;
+    private List<Object> deferredActions;   // Relations and error messages, which are applied later. Null - they are applied immediately.
+    private boolean isAggregated;
 
     /**
      * Constructor method, which lets to create object ONLY if aggregation was successful.
@@ -28,6 +42,7 @@ public class Road {
      * @throws NoRoadException Throws if aggregation was not successful;
      */
     public Road(Segment notAggregatedSegment, int id) throws NoRoadException {
+        vertices = notAggregatedSegment.getVertices();
         if (notAggregatedSegment.selfAggregate(this)) {
             this.id = id;
             isBothWay = notAggregatedSegment.isBothWay();
@@ -36,6 +51,19 @@ public class Road {
         }
     }
 
+    /**
+     * Aggregates road from given segment, but relations with other roads and error messages are kept
+     * until {@link #applyDeferred(int)} is called. Used when several roads are aggregated at the same time,
+     * so points shared by roads are changed only on one thread and in the same order as by sequential aggregation.
+     * @param notAggregatedSegment Segment from which This Road will be started to aggregate itself.
+     */
+    public Road(Segment notAggregatedSegment) {
+        vertices = notAggregatedSegment.getVertices();
+        deferredActions = new ArrayList<>(2);
+        isAggregated = notAggregatedSegment.selfAggregate(this);
+        isBothWay = isAggregated && notAggregatedSegment.isBothWay();
+    }
+
     /**
      * From one both way road makes two opposite direction one way roads.
      * Configures given <i>bothWayRoad</i> as one way road and creates This Road as reversed version.
@@ -48,8 +76,9 @@ public class Road {
         isBothWay = true;
         isCopy = true;
         layers = new ArrayList<>(bothWayRoad.getLayers());
-        polyline.addAll(bothWayRoad.getPolyline());
-        Collections.reverse(polyline);
+        vertices = bothWayRoad.getVertices();
+        polyline = bothWayRoad.getReversedPolyline();
+        numberOfPoints = polyline.length;
         for(List<Object> appointedCrossingPoint : bothWayRoad.getCrossingPoints()) {
             newCrossingPoints.add(new CrossingPoint(appointedCrossingPoint, this));
         }
@@ -61,7 +90,38 @@ public class Road {
      */
     @Override
     public String toString() {
-        return String.format("\"MULTILINESTRING ((%s))\"%s%d%s%s%s%s%s%s%s%.0f%n", getPolylineString(polyline), Map.CSV_SPLITTER, id, Map.CSV_SPLITTER, ((isBothWay)? "B" : "F"), Map.CSV_SPLITTER, getLayersString(), Map.CSV_SPLITTER, getCrossedRoadsString(), Map.CSV_SPLITTER, length);
+        RowEncoder encoder = new RowEncoder();
+        encode(encoder);
+        return encoder.toString();
+    }
+
+    /**
+     * Appends entry of This Road in CSV file of roads, the same as {@link #toString()} returns.
+     */
+    public void encode(RowEncoder encoder) {
+        encodeFields(encoder);
+        encoder.endRow();
+    }
+
+    /**
+     * Appends entry of This Road in archive of junctions, see {@link #getJunctionLabels()}.
+     * @param junctionID ID of junction, which has This Road.
+     */
+    public void encode(RowEncoder encoder, int junctionID) {
+        encodeFields(encoder);
+        encoder.append(Map.CSV_SPLITTER).append(junctionID)
+                .endRow();
+    }
+
+    private void encodeFields(RowEncoder encoder) {
+        encodePolyline(encoder, polyline, numberOfPoints, vertices);
+        encoder.append(Map.CSV_SPLITTER).append(id)
+                .append(Map.CSV_SPLITTER).append((isBothWay)? 'B' : 'F')
+                .append(Map.CSV_SPLITTER);
+        encodeLayers(encoder);
+        encoder.append(Map.CSV_SPLITTER);
+        encodeCrossedRoads(encoder);
+        encoder.append(Map.CSV_SPLITTER).appendFixed(length, 0);
     }
 
     @Override
@@ -77,92 +137,200 @@ public class Road {
     }
 
     /**
-     * @param polyline Polyline which will be converted into String.
-     * @return String which represents given polyline.
+     * @return String which represent labels in archive of junctions, labels of roads and ID of junction.
+     */
+    public static String getJunctionLabels() {
+        return String.format("%s%sroadID%s%s%s%s%scrossedRoads%slength%sjunctionID%n", Map.COORDINATES, Map.CSV_SPLITTER, Map.CSV_SPLITTER, Map.TRAFFIC_DIRECTION, Map.CSV_SPLITTER, Map.LAYER, Map.CSV_SPLITTER, Map.CSV_SPLITTER, Map.CSV_SPLITTER);
+    }
+
+    /**
+     * Appends polyline of This Road as WKT MULTILINESTRING without quotes.
      */
-    public static String getPolylineString(LinkedList<Point> polyline) {
-        String string = "";
-        try {
-            Point lastPoint = polyline.getLast();
-            polyline.removeLast();
-            for (Point point : polyline) {
-                string += point + ",";
+    public void encodeWkt(RowEncoder encoder) {
+        encodeWkt(encoder, polyline, numberOfPoints, vertices);
+    }
+
+    /**
+     * Appends polyline as quoted WKT MULTILINESTRING.
+     * @param polyline Ids of vertices of polyline.
+     * @param numberOfPoints Number of used ids of <i>polyline</i>.
+     * @param vertices Store of given vertices.
+     */
+    private static void encodePolyline(RowEncoder encoder, int[] polyline, int numberOfPoints, VertexStore vertices) {
+        encoder.append('"');
+        encodeWkt(encoder, polyline, numberOfPoints, vertices);
+        encoder.append('"');
+    }
+
+    private static void encodeWkt(RowEncoder encoder, int[] polyline, int numberOfPoints, VertexStore vertices) {
+        encoder.append("MULTILINESTRING ((");
+        for(int i=0; i<numberOfPoints; i++) {
+            if(i > 0) {
+                encoder.append(',');
             }
-            polyline.add(lastPoint);
-            return string + lastPoint;
-        } catch (NoSuchElementException e) {
-            System.err.println(e+"%n"+polyline);
-            return "";
+            encoder.appendCoordinates(vertices.getLatitude(polyline[i]), vertices.getLongitude(polyline[i]));
         }
+        encoder.append("))");
     }
 
     /**
-     * @param polyline Polyline.
+     * Appends given polyline as entry in CSV file of connections.
+     * @param polyline Ids of vertices of polyline.
+     * @param vertices Store of given vertices.
      * @param roadID
      * @param direction Traffic direction in <i>polyline</i>.
      * @param layer Layer of <i>polyline</i>.
-     * @return String which represents given polyline as entry in CSV file of roads.
+     * @param junctionID ID of junction of <i>polyline</i>.
      */
-    public static String getPolylineStringForCSV(LinkedList<Point> polyline, int roadID, char direction, int layer, int junctionID) {
-        return String.format("\"MULTILINESTRING ((%s))\"%s%d%s%c%s%d%s%s%.0f%s%d%n", getPolylineString(polyline), Map.CSV_SPLITTER, roadID, Map.CSV_SPLITTER, direction, Map.CSV_SPLITTER, layer, Map.CSV_SPLITTER, Map.CSV_SPLITTER, Road.getPathLength(polyline), Map.CSV_SPLITTER, junctionID);
+    public static void encodeConnectionRow(RowEncoder encoder, int[] polyline, VertexStore vertices, int roadID, char direction, int layer, int junctionID) {
+        encodePolyline(encoder, polyline, polyline.length, vertices);
+        encoder.append(Map.CSV_SPLITTER).append(roadID)
+                .append(Map.CSV_SPLITTER).append(direction)
+                .append(Map.CSV_SPLITTER).append(layer)
+                .append(Map.CSV_SPLITTER)
+                .append(Map.CSV_SPLITTER).appendFixed(Road.getPathLength(polyline, vertices), 0)
+                .append(Map.CSV_SPLITTER).append(junctionID)
+                .endRow();
     }
 
-    public LinkedList<Point> getReversedPolyline() {
-        LinkedList<Point> reversedPolyline = new LinkedList<>(polyline);
-        Collections.reverse(reversedPolyline);
+    /**
+     * @return Ids of vertices of This Road polyline in reversed order.
+     */
+    public int[] getReversedPolyline() {
+        int[] reversedPolyline = new int[numberOfPoints];
+        for(int i=0; i<numberOfPoints; i++) {
+            reversedPolyline[i] = polyline[numberOfPoints - 1 - i];
+        }
         return reversedPolyline;
     }
 
     /**
-     * @param roads List of roads, which will be connected into polyline.
-     * @return All given roads connected to one polyline.
+     * Finds direction of every road of connection in the same way, as roads are connected into one polyline.
+     * @param roads Roads of connection, every road must have index, see {@link #setIndex(int)}.
+     * @param size Number of roads of connection, only the first roads of given array are used.
+     * @return Index of every road shifted left by one bit, the lowest bit is set if road is passed in reversed direction.
+     * If two adjacent roads do not have connecting point, roads after them are left out.
      */
-    public static LinkedList<Point> merge(LinkedList<Road> roads) {
-        if(roads.size() > 1) {
-            LinkedList<Point> newRoadPolyline = new LinkedList<>();
-            Road firstRoad = roads.getFirst();
-            roads.removeFirst();
-
-            if (firstRoad.getStart() == roads.getFirst().getStart() || firstRoad.getStart() == roads.getFirst().getEnd()) {
-                newRoadPolyline.addAll(firstRoad.getReversedPolyline());
+    public static int[] encodeConnection(Road[] roads, int size) {
+        Road firstRoad = roads[0];
+        if(size == 1) {
+            return new int[] {firstRoad.index << 1};
+        }
+        int[] connection = new int[size];
+        Road secondRoad = roads[1];
+        boolean isReversed = firstRoad.getStartVertex() == secondRoad.getStartVertex() || firstRoad.getStartVertex() == secondRoad.getEndVertex();
+        connection[0] = (firstRoad.index << 1) | (isReversed ? 1 : 0);
+        int lastVertex = isReversed ? firstRoad.getStartVertex() : firstRoad.getEndVertex();
+        int encoded = 1;
+        for(int i=1; i<size; i++) {
+            Road road = roads[i];
+            if(lastVertex == road.getStartVertex()) {
+                connection[encoded++] = road.index << 1;
+                lastVertex = road.getEndVertex();
+            } else if(lastVertex == road.getEndVertex()) {
+                connection[encoded++] = (road.index << 1) | 1;
+                lastVertex = road.getStartVertex();
             } else {
-                newRoadPolyline.addAll(firstRoad.getPolyline());
+                break; // Two adjacent roads do not have connecting point.
             }
+        }
+        return (encoded == connection.length) ? connection : Arrays.copyOf(connection, encoded);
+    }
 
-            for (Road road : roads) {
-                if (newRoadPolyline.getLast() == road.getStart()) {
-                    newRoadPolyline.removeLast();
-                    newRoadPolyline.addAll(road.getPolyline());
-                } else {
-                    if (newRoadPolyline.getLast() == road.getEnd()) {
-                        newRoadPolyline.removeLast();
-                        newRoadPolyline.addAll(road.getReversedPolyline());
-                    } else {
-                        break; // Two adjacent roads do not have connecting point.
-                    }
-                }
+    /**
+     * @param connection Roads of connection, see {@link #encodeConnection(Road[], int)}.
+     * @param roads All roads of the map by their indexes.
+     * @return Ids of vertices of all roads of given connection connected to one polyline.
+     */
+    public static int[] mergeConnection(int[] connection, Road[] roads) {
+        int length = 1;
+        for(int road : connection) {
+            length += roads[road >>> 1].getNumberOfPoints() - 1;
+        }
+        int[] newRoadPolyline = new int[length];
+        int size = 1;
+        for(int road : connection) {
+            size = roads[road >>> 1].copyPolyline(newRoadPolyline, size - 1, (road & 1) != 0);
+        }
+        return newRoadPolyline;
+    }
+
+    /**
+     * Copies polyline of This Road into given array.
+     * @param target Array for the polyline.
+     * @param offset Index of the target, where the first vertex will be copied.
+     * @param isReversed True - if polyline is copied in reversed order.
+     * @return Index after the last copied vertex.
+     */
+    private int copyPolyline(int[] target, int offset, boolean isReversed) {
+        if(isReversed) {
+            for(int i=numberOfPoints-1; i>=0; i--) {
+                target[offset++] = polyline[i];
             }
-            return newRoadPolyline;
         } else {
-            return roads.getFirst().getPolyline();
+            System.arraycopy(polyline, 0, target, offset, numberOfPoints);
+            offset += numberOfPoints;
         }
+        return offset;
     }
 
-    public static double getPathLength(List<Point> path) {
+    /**
+     * @param path Ids of vertices of the path.
+     * @param vertices Store of given vertices.
+     * @return Length of the path in meters.
+     */
+    public static double getPathLength(int[] path, VertexStore vertices) {
         double distance = 0D;
-        if(path.size()>1) {
-            for (int i = 1; i < path.size(); i++) {
-                distance += path.get(i - 1).distanceTo(path.get(i));
-            }
+        for (int i = 1; i < path.length; i++) {
+            distance += vertices.distance(path[i - 1], path[i]);
         }
         return distance;
     }
 
+    /**
+     * Applies relations and prints error messages, which were kept during aggregation.
+     * @param id ID of this road, it is set only if aggregation was successful.
+     * @return True - if aggregation was successful. False - if failed.
+     */
+    public boolean applyDeferred(int id) {
+        List<Object> actions = deferredActions;
+        deferredActions = null;
+        for(Object action : actions) {
+            if(action == START_RELATIONS) {
+                setStartRelations();
+            } else if(action == END_RELATIONS) {
+                setEndRelations();
+            } else {
+                System.err.println(action);
+            }
+        }
+        if(isAggregated) {
+            this.id = id;
+        }
+        return isAggregated;
+    }
+
+    /**
+     * Prints error message of aggregation, or keeps it if relations are deferred.
+     * @param message Error message.
+     */
+    public void printError(String message) {
+        if(deferredActions != null) {
+            deferredActions.add(message);
+        } else {
+            System.err.println(message);
+        }
+    }
+
     /**
      * Method sets roads which connects to start point, notices those connecting roads
      * and then adds This Road to start point as outgoing road.
      */
     public void setStartRelations() {
+        if(deferredActions != null) {
+            deferredActions.add(START_RELATIONS);
+            return;
+        }
         for(Road outRoad : getStart().getOutgoingRoads()) {
             siblings.add(outRoad);
             outRoad.getSiblings().add(this);
@@ -179,6 +347,10 @@ public class Road {
      * and then adds This Road to end point as incoming road.
      */
     public void setEndRelations() {
+        if(deferredActions != null) {
+            deferredActions.add(END_RELATIONS);
+            return;
+        }
         for(Road outRoad : getEnd().getOutgoingRoads()) {
             children.add(outRoad);
             outRoad.getParents().add(this);
@@ -201,25 +373,26 @@ public class Road {
     /**
      * This Road is first road of given interchange. This method finds all connections from This Road
      * to the target Road, writes them to given interchange and creates plan of given interchange.
+     * Branches, from which target can not be reached, are pruned. Search only reads roads and writes to given interchange,
+     * so different interchanges may be searched on different threads.
      * @param target Another road of given interchange, to which connections will be detected.
      * @param crossingPoint Crossing between This and target Roads.
-     * @param maxLength Distance from crossing point to the farthest valid point of intersection.
-     * @return True - if at least one connection was found. False - if interchanging roads do not have connections.
-     */
-    public boolean detectConnections(Road target, CrossingPoint crossingPoint, int maxDepth, double maxLength) {
-        LinkedList<Point> path = new LinkedList<>();
-        LinkedList<Road> connection = new LinkedList<>();
-        path.add(getStart());
-        path.add(getEnd());
-        boolean isConnectionThruEnd = tryAllRoads(target, crossingPoint, path, connection, true, 2, 0D, maxLength, maxDepth);
+     * @param search Scratch state of the search with detections, to which connections are written, one thread may reuse it for many crossing points.
+     * @return Bits of detections, which have at least one connection, see {@link ConnectionSearch#addConnection(CrossingPoint, double)}.
+     *         Zero - if interchanging roads do not have connections.
+     */
+    long detectConnections(Road target, CrossingPoint crossingPoint, ConnectionSearch search) {
+        int maxDepth = search.getMaxDepth();
+        double maxLength = search.getMaxLength();
+        search.start(target);
+        VertexPath path = search.getPath();
+        path.push(getStartVertex());
+        path.push(getEndVertex());
+        long connectionsThruEnd = tryAllRoads(target, crossingPoint, search, true, 2, 0D, maxLength, maxDepth);
         path.clear();
-        path.add(getEnd());
-        path.add(getStart());
-        if(tryAllRoads(target, crossingPoint, path, connection, false, 2, 0D, maxLength, maxDepth)) {
-            return true;
-        } else {
-            return isConnectionThruEnd;
-        }
+        path.push(getEndVertex());
+        path.push(getStartVertex());
+        return tryAllRoads(target, crossingPoint, search, false, 2, 0D, maxLength, maxDepth) | connectionsThruEnd;
     }
 
     /**
@@ -228,148 +401,204 @@ public class Road {
      * Roads, which are connections are added to the given <i>interchange</i>.
      * @param target Road of given interchange, which intersects start road.
      * @param crossingPoint Crossing between This and target Roads.
-     * @param path List of roads, which indicates tried path from start road to this road.
-     * @param connection
+     * @param search Scratch state of the search with vertices of tried path and roads of tried connection from start road to this road.
      * @param isForward
      * @param directionChange
      * @param length
      * @param maxLength
      * @param maxDepth
-     * @return True - if at least one connection with target was found. False - if interchanging roads do not have connections.
+     * @return Bits of detections, which have at least one connection with target thru this road. Zero - if there are no connections.
      */
-    private boolean tryAllRoads(Road target, CrossingPoint crossingPoint, LinkedList<Point> path, LinkedList<Road> connection, boolean isForward, int directionChange, double length, double maxLength, int maxDepth) {
-        connection.add(this);
-        if( (connection.size() <= maxDepth && length < 10000) || length < maxLength) {
+    private long tryAllRoads(Road target, CrossingPoint crossingPoint, ConnectionSearch search, boolean isForward, int directionChange, double length, double maxLength, int maxDepth) {
+        VertexPath path = search.getPath();
+        int depth = search.pushRoad(this);
+        if( (depth <= maxDepth && length < MAX_DEPTH_LENGTH) || length < maxLength) {
             if(target == this) {
-                crossingPoint.addConnectionPath(new LinkedList<>(connection));                      //      add copy of sequence to interchange and return true.
-                connection.removeLast();
-                return true;
+                long found = search.addConnection(crossingPoint, length);                          //      add sequence to interchange and return its detections.
+                search.popRoad();
+                return found;
+            } else if(search.prune(this, depth, length)) {                             // When target can not be reached from this road,
+                search.popRoad();                                                            //      no connection can be found.
+                return 0;
             } else {                                                                                // When this road is not the target road,
-                boolean isConnectionExist = false;
+                long connections = 0;
                 if(isForward) {     // if going forward - child or friend roads are valid. If Friend road is used, isForward set to false and directionChange decreased by one.
                     for (Road road : children) {                         //          go to each road connecting with This Road thru given point, except all roads at which already been,
-                        if(!isLoop(path, road.getEnd())) {
-                            path.add(road.getEnd());
-                            if (road.tryAllRoads(target, crossingPoint, path, connection, true, directionChange, length+road.getLength(), maxLength, maxDepth)) {  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
-                                isConnectionExist = true;                                               //                  and check that connection from This Road exists.
-                                crossingPoint.addConnectingRoad(road);
+                        if(!path.contains(road.getEndVertex())) {
+                            path.push(road.getEndVertex());
+                            long found = road.tryAllRoads(target, crossingPoint, search, true, directionChange, length+road.getLength(), maxLength, maxDepth);  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
+                            if (found != 0) {
+                                connections |= found;                                                   //                  and check that connection from This Road exists.
+                                search.addConnectingRoad(crossingPoint, road, found);
                             }
-                            path.removeLast();
+                            path.pop();
                         }
                     }
                     if(directionChange != 0) {
                         for (Road road : friends) {                         //          go to each road connecting with This Road thru given point, except all roads at which already been,
-                            if(!isLoop(path, road.getStart())) {
-                                path.add(road.getStart());
-                                if (road.tryAllRoads(target, crossingPoint, path, connection, false, directionChange-1, length+road.getLength(), maxLength, maxDepth)) {  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
-                                    isConnectionExist = true;                                               //                  and check that connection from This Road exists.
-                                    crossingPoint.addConnectingRoad(road);
+                            if(!path.contains(road.getStartVertex())) {
+                                path.push(road.getStartVertex());
+                                long found = road.tryAllRoads(target, crossingPoint, search, false, directionChange-1, length+road.getLength(), maxLength, maxDepth);  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
+                                if (found != 0) {
+                                    connections |= found;                                                   //                  and check that connection from This Road exists.
+                                    search.addConnectingRoad(crossingPoint, road, found);
                                 }
-                                path.removeLast();
+                                path.pop();
                             }
                         }
                     }
                 } else {     // if going backward - parent or sibling roads are valid. If Sibling road is used, isForward set to true and directionChange decreased by one.
                     for (Road road : parents) {                         //          go to each road connecting with This Road thru given point, except all roads at which already been,
-                        if(!isLoop(path, road.getStart())) {
-                            path.add(road.getStart());
-                            if (road.tryAllRoads(target, crossingPoint, path, connection, false, directionChange, length+road.getLength(), maxLength, maxDepth)) {  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
-                                isConnectionExist = true;                                               //                  and check that connection from This Road exists.
-                                crossingPoint.addConnectingRoad(road);
+                        if(!path.contains(road.getStartVertex())) {
+                            path.push(road.getStartVertex());
+                            long found = road.tryAllRoads(target, crossingPoint, search, false, directionChange, length+road.getLength(), maxLength, maxDepth);  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
+                            if (found != 0) {
+                                connections |= found;                                                   //                  and check that connection from This Road exists.
+                                search.addConnectingRoad(crossingPoint, road, found);
                             }
-                            path.removeLast();
+                            path.pop();
                         }
                     }
                     if(directionChange != 0) {
                         for (Road road : siblings) {                         //          go to each road connecting with This Road thru given point, except all roads at which already been,
-                            if(!isLoop(path, road.getEnd())) {
-                                path.add(road.getEnd());
-                                if (road.tryAllRoads(target, crossingPoint, path, connection, true, directionChange-1, length+road.getLength(), maxLength, maxDepth)) {  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
-                                    isConnectionExist = true;                                               //                  and check that connection from This Road exists.
-                                    crossingPoint.addConnectingRoad(road);
+                            if(!path.contains(road.getEndVertex())) {
+                                path.push(road.getEndVertex());
+                                long found = road.tryAllRoads(target, crossingPoint, search, true, directionChange-1, length+road.getLength(), maxLength, maxDepth);  // and try all roads of that connecting road. <-- Recursion axis. Come backs after check
+                                if (found != 0) {
+                                    connections |= found;                                                   //                  and check that connection from This Road exists.
+                                    search.addConnectingRoad(crossingPoint, road, found);
                                 }
-                                path.removeLast();
+                                path.pop();
                             }
                         }
                     }
                 }
-                connection.removeLast();
-                return isConnectionExist;                                                       //          Return true, if This Road is part of any connection. False, if not.
+                search.popRoad();
+                return connections;                                                             //          Return detections, in which This Road is part of any connection. Zero, if none.
             }
         } else {
-            connection.removeLast();
-            return false;                                                                   // Path length is exceeded.
+            search.popRoad();
+            return 0;                                                                       // Path length is exceeded.
         }
     }
 
-    private boolean isLoop(List<Point> path, Point checkPoint) {
-        for(Point pathPoint : path) {
-            if (checkPoint == pathPoint) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Method fixes given segment direction if needed and adds it to This Road.
      * Also length of this road is calculating and crossings are added.
      * @param segment Segment which will be added to This Road.
      */
     public void addSegment(Segment segment) {
-        if(segment.isBothWay() && polyline.getLast() != segment.getStart()) {   // If both way segment is given and start point of that segment does not match last point.
+        int lastPoint = polyline[numberOfPoints - 1];
+        if(segment.isBothWay() && lastPoint != segment.getStart()) {            // If both way segment is given and start point of that segment does not match last point.
             segment.setEnd(segment.getStart());                                 // Correcting direction of segment
-            segment.setStart(polyline.getLast());
+            segment.setStart(lastPoint);
         }
         segments.add(segment);
-        polyline.add(segment.getEnd());                     // Adding new point to the polyline of This Road.
+        addPoint(segment.getEnd());                         // Adding new point to the polyline of This Road.
         length += segment.getLength();                      // Calculating length of this road.
         if(!layers.contains(segment.getLayer())) {                    // Road layer value equals segment with highest layer value.
             layers.add(segment.getLayer());
         }
     }
 
-    public String getCrossedRoadsString() {
-        String result = "";
+    /**
+     * @return Bounding box of polyline of This Road.
+     */
+    public Envelope getEnvelope() {
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for(int i=0; i<numberOfPoints; i++) {
+            minLatitude = Math.min(minLatitude, vertices.getLatitude(polyline[i]));
+            minLongitude = Math.min(minLongitude, vertices.getLongitude(polyline[i]));
+            maxLatitude = Math.max(maxLatitude, vertices.getLatitude(polyline[i]));
+            maxLongitude = Math.max(maxLongitude, vertices.getLongitude(polyline[i]));
+        }
+        return new Envelope(minLatitude, minLongitude, maxLatitude, maxLongitude);
+    }
+
+    /**
+     * @return Roads crossed by This Road, in the same order as {@link #getCrossingPoints()}.
+     */
+    public List<Road> getCrossedRoads() {
+        List<Road> crossedRoads = new ArrayList<>();
+        for(List<Object> appointedCrossingPoint : crossingPoints) {
+            CrossingPoint crossingPoint = (CrossingPoint) appointedCrossingPoint.get(0);
+            Boolean isThisRoadTop = (Boolean) appointedCrossingPoint.get(1);
+            crossedRoads.add((isThisRoadTop) ? crossingPoint.getBottomRoad() : crossingPoint.getTopRoad());
+        }
+        return crossedRoads;
+    }
+
+    /**
+     * Appends ids of roads crossed by This Road separated by ';'.
+     */
+    private void encodeCrossedRoads(RowEncoder encoder) {
+        boolean isFirst = true;
         for(List<Object> appointedCrossingPoint : crossingPoints) {
             CrossingPoint crossingPoint = (CrossingPoint) appointedCrossingPoint.get(0);
             Boolean isThisRoadTop = (Boolean) appointedCrossingPoint.get(1);
+            if(!isFirst) {
+                encoder.append(';');
+            }
+            isFirst = false;
             if(isThisRoadTop) {
-                result += crossingPoint.getBottomRoad().getId() + ";";
+                encoder.append(crossingPoint.getBottomRoad().getId());
             } else {
-                result += crossingPoint.getTopRoad().getId() + ";";
+                encoder.append(crossingPoint.getTopRoad().getId());
             }
         }
-        if(result.length() > 0) {
-            result = result.substring(0,result.length()-1);
-        }
-        return result;
-    }
-
-    public void addCrossingPointsToJunction(Junction junction) {
-        junction.addRoad(this);
-        for(List<Object> crossingPointList : getCrossingPoints()) {
-            CrossingPoint crossingPoint = (CrossingPoint) crossingPointList.get(0);
-            if(crossingPoint.isConnectionExist() && !crossingPoint.isJunctionSet()) {
-                junction.addCrossingPoint(crossingPoint);
-                crossingPoint.setJunction(junction);
-                for (Road road : crossingPoint.getConnectingRoads()) {
-                    road.addCrossingPointsToJunction(junction);
-                }
-            }
+    }
+
+    /**
+     * Adds vertex to the end of This Road polyline.
+     * @param vertex Id of vertex.
+     */
+    public void addPoint(int vertex) {
+        if(numberOfPoints == polyline.length) {
+            polyline = Arrays.copyOf(polyline, numberOfPoints * 2);
         }
+        polyline[numberOfPoints++] = vertex;
     }
 
     public Point getStart() {
-        return polyline.getFirst();
+        return vertices.getPoint(polyline[0]);
     }
 
     public Point getEnd() {
-        return polyline.getLast();
+        return vertices.getPoint(polyline[numberOfPoints - 1]);
+    }
+
+    public int getStartVertex() {
+        return polyline[0];
     }
 
-    public LinkedList<Point> getPolyline() {
-        return polyline;
+    public int getEndVertex() {
+        return polyline[numberOfPoints - 1];
+    }
+
+    /**
+     * @param index Index of point in the polyline.
+     * @return Id of vertex.
+     */
+    public int getVertex(int index) {
+        return polyline[index];
+    }
+
+    public int getNumberOfPoints() {
+        return numberOfPoints;
+    }
+
+    /**
+     * @return Copy of ids of vertices of This Road polyline.
+     */
+    public int[] getPolyline() {
+        return Arrays.copyOf(polyline, numberOfPoints);
+    }
+
+    public VertexStore getVertices() {
+        return vertices;
     }
 
     public double getLength() {
@@ -415,18 +644,33 @@ public class Road {
         return layers;
     }
 
-    public String getLayersString() {
-        String string = "";
-        for(Integer layer : layers) {
-            string += layer.toString()+";";
+    /**
+     * Appends layers of This Road separated by ';'.
+     */
+    private void encodeLayers(RowEncoder encoder) {
+        for(int i=0; i<layers.size(); i++) {
+            if(i > 0) {
+                encoder.append(';');
+            }
+            encoder.append(layers.get(i));
         }
-        return string.substring(0,string.length()-1);
     }
 
     public int getId() {
         return id;
     }
 
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @param index Position of This Road in the list of all roads of the map, used by {@link ConnectionSearch}.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public boolean isCopy() {
         return isCopy;
     }
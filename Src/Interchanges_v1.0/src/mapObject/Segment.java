@@ -1,16 +1,22 @@
 package mapObject;
 
 import application.Map;
-import exception.EndOfRoadException;
 import exception.NoCrossingException;
+import index.VertexStore;
+import writer.RowEncoder;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Segment {
 
-    private Point start;
-    private Point end;
+    public static final double NO_CROSSING = -1D;   // Returned by intersect(Segment) if segments do not cross.
+    private static final String NOT_CONNECTED_MESSAGE = "Given segment is not connected to this point.";
+
+    private VertexStore vertices;
+    private int start;      // Id of start vertex.
+    private int end;        // Id of end vertex.
     private boolean isBothWay;
     private int layer;
     private double length;
@@ -18,17 +24,23 @@ public class Segment {
     private boolean isCorrupted = false;
     private Road road;
 
-    public Segment(Point start, Point end, boolean isBothWay, int layer) {
+    public Segment(VertexStore vertices, int start, int end, boolean isBothWay, int layer) {
+        this.vertices = vertices;
         this.start = start;
         this.end = end;
         this.isBothWay = isBothWay;
         this.layer = layer;
-        length = start.distanceTo(end);
+        length = vertices.distance(start, end);
     }
 
     @Override
     public String toString() {
-        return String.format("\"MULTILINESTRING ((%s,%s))\"%s%s%s%d%n", start.toString(), end.toString(), Map.CSV_SPLITTER, ((isBothWay)? "B" : "F"), Map.CSV_SPLITTER, layer);
+        return new RowEncoder()
+                .append("\"MULTILINESTRING ((").appendCoordinates(vertices.getLatitude(start), vertices.getLongitude(start))
+                .append(',').appendCoordinates(vertices.getLatitude(end), vertices.getLongitude(end)).append("))\"")
+                .append(Map.CSV_SPLITTER).append((isBothWay)? 'B' : 'F')
+                .append(Map.CSV_SPLITTER).append(layer)
+                .endRow().toString();
     }
 
     @Override
@@ -37,21 +49,47 @@ public class Segment {
     }
 
     /**
-     * Calculates is crossing between This Segment and given segmentB exist. If exist, creates Crossing and adds it to lists of crossings.
+     * Calculates is crossing between This Segment and given segmentB exist. If exist, returns Point of the crossing.
+     * Both segments must be in the same vertex store.
+     * @param segmentB
+     */
+    public Point findCrossing(Segment segmentB) throws NoCrossingException {
+        double t = findCrossingParameter(segmentB);
+        return vertices.getPoint(vertices.firstOrNew(getLatitudeAt(t), getLongitudeAt(t)));
+    }
+
+    /**
+     * Calculates is crossing between This Segment and given segmentB exist. Vertex of the crossing is not created,
+     * so method can be used by several threads at the same time.
      * @param segmentB
-     * @param points
+     * @return Position of the crossing on This Segment, from 0 (start) to 1 (end).
+     * @throws NoCrossingException If segments do not cross.
      */
-    public Point findCrossing(Segment segmentB, HashMap<Integer, HashMap<Integer, LinkedList<Point>>> points) throws NoCrossingException {
-        double sA_sX = start.getLatitude();
-        double sA_sY = start.getLongitude();
-        double sB_sX = segmentB.getStart().getLatitude();
-        double sB_sY = segmentB.getStart().getLongitude();
+    public double findCrossingParameter(Segment segmentB) throws NoCrossingException {
+        double t = intersect(segmentB);
+        if(t == NO_CROSSING) {
+            throw new NoCrossingException();
+        }
+        return t;
+    }
+
+    /**
+     * Calculates is crossing between This Segment and given segmentB exist. Method does not throw exceptions
+     * and does not create objects, so it is used when most of the pairs do not cross.
+     * @param segmentB
+     * @return Position of the crossing on This Segment, from 0 (start) to 1 (end), or {@link #NO_CROSSING}.
+     */
+    public double intersect(Segment segmentB) {
+        double sA_sX = vertices.getLatitude(start);
+        double sA_sY = vertices.getLongitude(start);
+        double sB_sX = vertices.getLatitude(segmentB.getStart());
+        double sB_sY = vertices.getLongitude(segmentB.getStart());
 
         double sA_x, sA_y, sB_x, sB_y;
-        sA_x = end.getLatitude() - sA_sX;
-        sA_y = end.getLongitude() - sA_sY;
-        sB_x = segmentB.getEnd().getLatitude() - sB_sX;
-        sB_y = segmentB.getEnd().getLongitude() - sB_sY;
+        sA_x = vertices.getLatitude(end) - sA_sX;
+        sA_y = vertices.getLongitude(end) - sA_sY;
+        sB_x = vertices.getLatitude(segmentB.getEnd()) - sB_sX;
+        sB_y = vertices.getLongitude(segmentB.getEnd()) - sB_sY;
 
         double s, t, d;
         if ((d = (-sB_x * sA_y + sA_x * sB_y)) != 0) {
@@ -59,20 +97,38 @@ public class Segment {
             t = (sB_x * (sA_sY - sB_sY) - sB_y * (sA_sX - sB_sX)) / d;
 
             if (s >= 0 && s <= 1 && t >= 0 && t <= 1 && start != segmentB.getStart() && start != segmentB.getEnd() && end != segmentB.getStart() && end != segmentB.getEnd()) {
-                return Point.firstOrNew(sA_sX + (t * sA_x), sA_sY + (t * sA_y), points);
+                return t;
             }
         }
-        throw new NoCrossingException();
+        return NO_CROSSING;
+    }
+
+    /**
+     * @param t Position on This Segment, from 0 (start) to 1 (end).
+     * @return Latitude of the point at given position.
+     */
+    public double getLatitudeAt(double t) {
+        double startLatitude = vertices.getLatitude(start);
+        return startLatitude + (t * (vertices.getLatitude(end) - startLatitude));
+    }
+
+    /**
+     * @param t Position on This Segment, from 0 (start) to 1 (end).
+     * @return Longitude of the point at given position.
+     */
+    public double getLongitudeAt(double t) {
+        double startLongitude = vertices.getLongitude(start);
+        return startLongitude + (t * (vertices.getLongitude(end) - startLongitude));
     }
 
     /**
      * If traffic on this segments is valid to both ways, start and end points does not matter, next point will be opposite to previous point.
      * If traffic is valid to only one way, next point will be given default point.
-     * @param prevPoint Previous point.
-     * @param defaultPoint Default point, which is used if traffic is one way.
-     * @return Default Point or Point opposite to previous, depending to traffic direction.
+     * @param prevPoint Previous vertex.
+     * @param defaultPoint Default vertex, which is used if traffic is one way.
+     * @return Default vertex or vertex opposite to previous, depending to traffic direction.
      */
-    private Point getNextPoint(Point prevPoint, Point defaultPoint) {
+    private int getNextPoint(int prevPoint, int defaultPoint) {
         if(isBothWay) {
             if (end != prevPoint) {
                 return end;
@@ -86,6 +142,7 @@ public class Segment {
 
     /**
      * Method starts aggregating from this segment into given road. Also method sets traffic direction of given road.
+     * Road is walked by loops, not by recursion, so length of the road is not limited by size of the stack.
      * @param road Pointer to road to which segments will be aggregated.
      * @return True - if aggregated successfully. False - if failed.
      */
@@ -94,54 +151,83 @@ public class Segment {
     }
 
     /**
-     *
+     * Walks backward from this segment until start of the road is found, then walks the road to the end.
+     * If walking to the end fails, previous segment of the path becomes start of the road and walking to the end is repeated.
      * @param road
      * @param prevPoint
      * @param protectionPoint Start point of aggregation. If this point is reached - path of the road goes in circle.
      * @return True - if aggregated successfully. False - if failed.
      */
-    private boolean goToStart(Road road, Point prevPoint, Point protectionPoint) {
-        Point nextPoint = getNextPoint(prevPoint, start);           // Next point for aggregation will be start point of this segment or opposite to previous point.
-        try {                                                                       // Trying to get neighboring segment thru next point,
-            if(nextPoint.getNeighbor(this, protectionPoint).goToStart(road, nextPoint, protectionPoint)) {  //    and proceed this method on that neighboring segment.
-                return true;
-            } else {
-                throw new EndOfRoadException();                                     // Aggregation at neighbor segment failed, so this segment will be end of road.
+    private boolean goToStart(Road road, int prevPoint, int protectionPoint) {
+        List<Segment> pathSegments = new ArrayList<>();
+        int[] pathPoints = new int[16];
+        Segment segment = this;
+        boolean isAggregated;
+        for(;;) {
+            int nextPoint = segment.getNextPoint(prevPoint, segment.getStart());   // Next point for aggregation will be start point of this segment or opposite to previous point.
+            int neighbor = vertices.findNeighbor(nextPoint, segment, protectionPoint);
+            if(neighbor == VertexStore.END_OF_ROAD) {                       // If next point is the end of the road and no valid neighbors exist,
+                isAggregated = segment.startRoad(road, nextPoint);          //      that segment is first in the path.
+                break;
+            } else if(neighbor == VertexStore.NOT_CONNECTED) {              // If nextPoint is not connecting to the segment, that segment and road is corrupted.
+                segment.isCorrupted = true;                                 // Setting segment as corrupted to ignore it later.
+                road.printError(String.format("Method: goToStart(Road, Point, Point)%nSegment: %s%nPoint: %s%n%s", segment.toString(), vertices.toString(nextPoint), NOT_CONNECTED_MESSAGE));
+                isAggregated = false;
+                break;
             }
-        } catch (EndOfRoadException e) {                                            // If next point is the end of the road and no valid neighbors exist,
-            road.getPolyline().add(nextPoint);                                      //      set that next point as start of the road and
-            road.setStartRelations();
-            return goToEnd(road, nextPoint);                                        //      Because this segment is first in the path (start), so now go to the end.
-        } catch (IllegalArgumentException e) {                                      // If nextPoint is not connecting to given This segment, this segment and road is corrupted.
-            isCorrupted = true;                                                     // Setting this segment as aggregated to ignore it later.
-            System.err.println(String.format("Method: goToStart(Road, Point, Point)%nSegment: %s%nPoint: %s%n%s", toString(), nextPoint.toString(), e));
-            return false;
+            if(pathSegments.size() == pathPoints.length) {
+                pathPoints = Arrays.copyOf(pathPoints, pathPoints.length * 2);
+            }
+            pathPoints[pathSegments.size()] = nextPoint;
+            pathSegments.add(segment);                                      // Proceed on neighboring segment.
+            segment = vertices.getSegment(neighbor);
+            prevPoint = nextPoint;
+        }
+        for(int i=pathSegments.size()-1; i>=0 && !isAggregated; i--) {     // Aggregation at neighbor segment failed, so previous segment will be start of road.
+            isAggregated = pathSegments.get(i).startRoad(road, pathPoints[i]);
         }
+        return isAggregated;
     }
 
     /**
-     *
+     * Sets given point as start of the road and walks the road from this segment to the end.
+     * @param road
+     * @param startPoint Start of the road.
+     * @return True - if aggregated successfully. False - if failed.
+     */
+    private boolean startRoad(Road road, int startPoint) {
+        road.addPoint(startPoint);
+        road.setStartRelations();
+        return goToEnd(road, startPoint);
+    }
+
+    /**
+     * Adds this segment and following segments to the road, until end of the road is found.
      * @param road
      * @param protectionPoint
-     * @return
+     * @return True - if aggregated successfully. False - if this segment is not connected to its end point.
      */
-    private boolean goToEnd(Road road, Point protectionPoint) {
-        this.road = road;                                           // This segment is part of given road.
-        isAggregated = true;                                        // This segment is aggregated.
-        road.addSegment(this);                                      // Adding this segment to road path.
-        try {
-            if(end.getNeighbor(this, protectionPoint).goToEnd(road, protectionPoint)) {
+    private boolean goToEnd(Road road, int protectionPoint) {
+        Segment segment = this;
+        for(;;) {
+            segment.road = road;                                    // Segment is part of given road.
+            segment.isAggregated = true;                            // Segment is aggregated.
+            road.addSegment(segment);                               // Adding segment to road path.
+            int neighbor = vertices.findNeighbor(segment.getEnd(), segment, protectionPoint);
+            if(neighbor == VertexStore.END_OF_ROAD) {
+                road.setEndRelations();
                 return true;
-            } else {
-                throw new EndOfRoadException();                     // Aggregation at neighbor segment failed, so this segment will be end of road.
+            } else if(neighbor == VertexStore.NOT_CONNECTED) {
+                segment.isCorrupted = true;                         // Setting segment as corrupted to ignore it later.
+                road.printError(String.format("Method: goToStart(Road, Point, Point)%nSegment: %s%nPoint: %s%n%s", segment.toString(), vertices.toString(segment.getEnd()), NOT_CONNECTED_MESSAGE));
+                if(segment == this) {
+                    return false;
+                } else {                                            // Previous segment will be end of road.
+                    road.setEndRelations();
+                    return true;
+                }
             }
-        } catch (EndOfRoadException e) {
-            road.setEndRelations();
-            return true;
-        } catch (IllegalArgumentException e) {
-            isCorrupted = true;                                                    // Setting this segment as aggregated to ignore it later.
-            System.err.println(String.format("Method: goToStart(Road, Point, Point)%nSegment: %s%nPoint: %s%n%s", toString(), end, e));
-            return false;
+            segment = vertices.getSegment(neighbor);
         }
     }
 
@@ -149,19 +235,29 @@ public class Segment {
         return road;
     }
 
-    public Point getStart() {
+    public VertexStore getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @return Id of start vertex.
+     */
+    public int getStart() {
         return start;
     }
 
-    public void setStart(Point start) {
+    public void setStart(int start) {
         this.start = start;
     }
 
-    public Point getEnd() {
+    /**
+     * @return Id of end vertex.
+     */
+    public int getEnd() {
         return end;
     }
 
-    public void setEnd(Point end) {
+    public void setEnd(int end) {
         this.end = end;
     }
 
@@ -0,0 +1,62 @@
+package parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Character view of the bytes of one line in the buffer. Every byte is seen as one character,
+ * which is enough for CSV delimiters, WKT and ASCII values. Text is decoded with the charset
+ * of the file only when String is requested.
+ */
+public class ByteSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private Charset charset;
+    private int offset;
+    private int length;
+
+    public ByteSequence(ByteBuffer buffer, Charset charset) {
+        this.buffer = buffer;
+        this.charset = charset;
+    }
+
+    private ByteSequence(ByteBuffer buffer, Charset charset, int offset, int length) {
+        this(buffer, charset);
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Moves this view to other part of the buffer.
+     * @param offset Index of the first byte.
+     * @param length Number of bytes.
+     */
+    public void set(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteSequence(buffer, charset, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        for(int i=0; i<length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, charset);
+    }
+}
@@ -0,0 +1,105 @@
+package parser;
+
+public class CsvRow {
+
+    private long lineNumber;
+    private double[] coordinates;   // Latitude and longitude pairs. Null if row was rejected.
+    private int[] partEnds;         // Accumulated number of points in each part. Null if geometry has one part.
+    private char way;
+    private int layer;
+    private String line;            // Kept only for rows which report errors.
+    private String error;
+
+    /**
+     * Creates row which is ready to be added to the map.
+     * @param lineNumber Line of the source file.
+     * @param coordinates Latitude and longitude pairs of the polyline.
+     * @param partEnds Accumulated number of points in each part of multi-part polyline. Null if polyline has one part.
+     * @param way Traffic direction value.
+     * @param layer Layer of the road.
+     */
+    public CsvRow(long lineNumber, double[] coordinates, int[] partEnds, char way, int layer) {
+        this.lineNumber = lineNumber;
+        this.coordinates = coordinates;
+        this.partEnds = partEnds;
+        this.way = way;
+        this.layer = layer;
+    }
+
+    /**
+     * Creates row which could not be parsed. Only error message will be reported for this row.
+     * @param lineNumber Line of the source file.
+     * @param line Content of the line or null if it should not be printed.
+     * @param error Description of the error.
+     */
+    public CsvRow(long lineNumber, String line, String error) {
+        this.lineNumber = lineNumber;
+        this.line = line;
+        this.error = error;
+    }
+
+    /**
+     * @param fileName Name of the source file.
+     * @return Message which describes error of this row.
+     */
+    public String getMessage(String fileName) {
+        if(line == null) {
+            return String.format("At %s, line %d:%n%s", fileName, lineNumber, error);
+        } else {
+            return String.format("%s%nAt %s, line %d:%n%s", line, fileName, lineNumber, error);
+        }
+    }
+
+    public boolean isRejected() {
+        return coordinates == null;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public double[] getCoordinates() {
+        return coordinates;
+    }
+
+    public int getNumberOfPoints() {
+        return coordinates.length / 2;
+    }
+
+    public int getNumberOfParts() {
+        return (partEnds == null) ? 1 : partEnds.length;
+    }
+
+    /**
+     * @param part Index of the part.
+     * @return Index of the first point of given part.
+     */
+    public int getPartStart(int part) {
+        return (part == 0) ? 0 : partEnds[part - 1];
+    }
+
+    /**
+     * @param part Index of the part.
+     * @return Index after the last point of given part.
+     */
+    public int getPartEnd(int part) {
+        return (partEnds == null) ? getNumberOfPoints() : partEnds[part];
+    }
+
+    public char getWay() {
+        return way;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    public void setError(String line, String error) {
+        this.line = line;
+        this.error = error;
+    }
+}
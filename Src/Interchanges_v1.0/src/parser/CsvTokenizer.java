@@ -0,0 +1,157 @@
+package parser;
+
+/**
+ * Splits CSV line into fields in one pass and remembers positions of projected columns only.
+ * Commas inside quoted text do not split fields. Tokenizing stops as soon as all projected
+ * columns are found, so the rest of the line is not scanned.
+ * Object is not thread safe, each thread must use its own tokenizer.
+ */
+public class CsvTokenizer {
+
+    private String[] names;
+    private int[] slotOfColumn;
+    private int[] starts;
+    private int[] ends;
+    private int[] rawEnds;
+    private boolean[] isQuoted;
+    private int numberOfSlots = 0;
+    private String error;
+
+    /**
+     * @param columns Indexes of projected columns. Negative index means that slot is not used.
+     * @param names Names of projected columns, used in error messages.
+     */
+    public CsvTokenizer(int[] columns, String[] names) {
+        this.names = names;
+        int maxColumn = -1;
+        for(int column : columns) {
+            maxColumn = Math.max(maxColumn, column);
+        }
+        slotOfColumn = new int[maxColumn + 1];
+        for(int i=0; i<slotOfColumn.length; i++) {
+            slotOfColumn[i] = -1;
+        }
+        for(int slot=0; slot<columns.length; slot++) {
+            if(columns[slot] >= 0) {
+                slotOfColumn[columns[slot]] = slot;
+                numberOfSlots++;
+            }
+        }
+        starts = new int[columns.length];
+        ends = new int[columns.length];
+        rawEnds = new int[columns.length];
+        isQuoted = new boolean[columns.length];
+    }
+
+    /**
+     * Finds projected fields of given line.
+     * @param line Line of CSV file.
+     * @return True - if all projected fields were found. False - if line is malformed, see {@link #getError()}.
+     */
+    public boolean tokenize(CharSequence line) {
+        error = null;
+        int length = line.length();
+        int column = 0;
+        int found = 0;
+        int position = 0;
+        for(;;) {
+            int fieldStart = position;
+            int quoteStart = -1;
+            while(position < length) {
+                char c = line.charAt(position);
+                if(c == '"') {
+                    quoteStart = (quoteStart < 0) ? position : -1;
+                } else if(c == ',' && quoteStart < 0) {
+                    break;
+                }
+                position++;
+            }
+            if(quoteStart >= 0) {
+                error = String.format("Malformed line: quote opened in field %d at position %d is not closed.", column + 1, quoteStart + 1);
+                return false;
+            }
+            if(column < slotOfColumn.length && slotOfColumn[column] >= 0) {
+                int slot = slotOfColumn[column];
+                int start = fieldStart;
+                int end = position;
+                rawEnds[slot] = end;
+                isQuoted[slot] = end - start >= 2 && line.charAt(start) == '"' && line.charAt(end - 1) == '"';
+                if(isQuoted[slot]) {
+                    start++;
+                    end--;
+                }
+                starts[slot] = start;
+                ends[slot] = end;
+                if(++found == numberOfSlots) {
+                    return true;
+                }
+            }
+            if(position >= length) {
+                break;
+            }
+            position++;
+            column++;
+        }
+        for(int missingColumn=column+1; missingColumn<slotOfColumn.length; missingColumn++) {
+            if(slotOfColumn[missingColumn] >= 0) {
+                error = String.format("Malformed line: field %d (\"%s\") is missing, line has %d fields and ends at position %d.", missingColumn + 1, names[slotOfColumn[missingColumn]], column + 1, length);
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param slot Projected column.
+     * @return Index of the first character of the field, without quotes.
+     */
+    public int getStart(int slot) {
+        return starts[slot];
+    }
+
+    /**
+     * @param slot Projected column.
+     * @return Index after the last character of the field, without quotes.
+     */
+    public int getEnd(int slot) {
+        return ends[slot];
+    }
+
+    /**
+     * @param slot Projected column.
+     * @return Index of the comma after the field, or length of the line if field is last.
+     */
+    public int getRawEnd(int slot) {
+        return rawEnds[slot];
+    }
+
+    public boolean isQuoted(int slot) {
+        return isQuoted[slot];
+    }
+
+    /**
+     * @param text Text with the field.
+     * @param slot Projected column.
+     * @param value Value for comparison.
+     * @return True - if field is equal to given value.
+     */
+    public boolean isEqual(CharSequence text, int slot, String value) {
+        int start = starts[slot];
+        if(ends[slot] - start != value.length()) {
+            return false;
+        }
+        for(int i=0; i<value.length(); i++) {
+            if(text.charAt(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Description of the last malformed line with position of the field.
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,213 @@
+package parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads CSV file by memory-mapping it. File is split into chunks on line boundaries
+ * and chunks are parsed on several threads. Chunks are returned in file order,
+ * so rows can be added to the map in the same order as reading line by line.
+ */
+public class MappedCsvReader implements Closeable {
+
+    public static final long MAX_CHUNK_SIZE = 64L * 1024L * 1024L;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long size;
+    private long dataStart = 0;
+    private int threads;
+    private Charset charset = Charset.defaultCharset();
+
+    public MappedCsvReader(String fileName, int threads) throws IOException {
+        this.threads = threads;
+        file = new RandomAccessFile(fileName, "r");
+        channel = file.getChannel();
+        size = channel.size();
+    }
+
+    /**
+     * Reads first line of the file. Parsing of rows starts after this line.
+     * @return Labels line or null if file is empty.
+     */
+    public String readHeader() throws IOException {
+        if(size == 0) {
+            return null;
+        }
+        dataStart = nextLineStart(0);
+        ByteBuffer buffer = ByteBuffer.allocate((int) dataStart);
+        channel.read(buffer, 0);
+        return decode(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * Splits data part of the file into chunks and starts parsing them. Only {@link #CHUNKS_IN_FLIGHT_PER_THREAD} chunks
+     * per thread are mapped and parsed ahead of the caller, next chunk is started when the caller takes one,
+     * so memory holds rows of these chunks only and not of the whole file.
+     * @param parser Parser of the rows.
+     * @return Parsing results in the same order as chunks are in the file.
+     */
+    public Chunks parse(RowParser parser, ExecutorService executor) {
+        long dataSize = size - dataStart;
+        long numberOfChunks = Math.max((long) threads * CHUNKS_PER_THREAD, (dataSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long chunkSize = Math.max(1L, (dataSize + numberOfChunks - 1) / numberOfChunks);
+        return new Chunks(parser, executor, chunkSize);
+    }
+
+    private Chunk parseChunk(MappedByteBuffer buffer, RowParser sharedParser) {
+        RowParser parser = new RowParser(sharedParser);
+        ByteSequence line = new ByteSequence(buffer, charset);
+        Chunk chunk = new Chunk();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for(int i=0; i<limit; i++) {
+            if(buffer.get(i) == '\n') {
+                setLine(line, buffer, lineStart, i);
+                chunk.addLine(parser, line);
+                lineStart = i + 1;
+            }
+        }
+        if(lineStart < limit) {
+            setLine(line, buffer, lineStart, limit);
+            chunk.addLine(parser, line);
+        }
+        return chunk;
+    }
+
+    private void setLine(ByteSequence line, ByteBuffer buffer, int start, int end) {
+        if(end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        line.set(start, end - start);
+    }
+
+    private String decode(byte[] bytes, int offset, int length) {
+        if(length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        if(length > 0 && bytes[offset + length - 1] == '\n') {
+            length--;
+        }
+        return new String(bytes, offset, length, charset);
+    }
+
+    /**
+     * @param position Position in the file from which new line is searched.
+     * @return Position of the first byte after the end of line, or size of the file if no more lines exist.
+     */
+    private long nextLineStart(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while(position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if(read <= 0) {
+                return size;
+            }
+            for(int i=0; i<read; i++) {
+                if(buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Parsing results of chunks, taken one by one in file order. Object is used by one thread.
+     */
+    public class Chunks {
+
+        private RowParser parser;
+        private ExecutorService executor;
+        private long chunkSize;
+        private long start = dataStart;        // Start of the next chunk, which is not submitted yet.
+        private ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+        private Chunks(RowParser parser, ExecutorService executor, long chunkSize) {
+            this.parser = parser;
+            this.executor = executor;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Waits for parsing of the next chunk and starts parsing of another one. Returned chunk is not kept by this object.
+         * @return Rows of the next chunk. Null - if all chunks are taken.
+         * @throws IOException If chunk can not be mapped or parsed.
+         */
+        public Chunk next() throws IOException {
+            while(start < size && inFlight.size() < threads * CHUNKS_IN_FLIGHT_PER_THREAD) {
+                submit();
+            }
+            Future<Chunk> future = inFlight.poll();
+            return (future == null) ? null : getChunk(future);
+        }
+
+        private void submit() throws IOException {
+            long end = (start + chunkSize >= size) ? size : nextLineStart(start + chunkSize);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            inFlight.add(executor.submit(new Callable<Chunk>() {
+                @Override
+                public Chunk call() {
+                    return parseChunk(buffer, parser);
+                }
+            }));
+            start = end;
+        }
+
+        private Chunk getChunk(Future<Chunk> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Reading of source file was interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Source file chunk could not be parsed.", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Rows of one chunk and number of lines which were read in it.
+     */
+    public static class Chunk {
+
+        private List<CsvRow> rows = new ArrayList<>();
+        private long lines = 0;
+
+        private void addLine(RowParser parser, CharSequence line) {
+            CsvRow row = parser.parse(line, ++lines);
+            if(row != null) {
+                rows.add(row);
+            }
+        }
+
+        public List<CsvRow> getRows() {
+            return rows;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package parser;
+
+import application.Map;
+
+import java.util.NoSuchElementException;
+
+public class RowParser {
+
+    public static final String[] ROAD_CLASSES = {"motorway", "motorway_link", "primary", "primary_link", "secondary", "secondary_link", "tertiary", "tertiary_link", "trunk", "trunk_link", "unclassified", "unknown", ""};
+
+    private static final int COORDINATES_FIELD = 0;
+    private static final int DIRECTION_FIELD = 1;
+    private static final int LAYER_FIELD = 2;
+    private static final int CLASS_FIELD = 3;
+
+    private int[] columns = new int[4];
+    private boolean filter = false;
+    private CsvTokenizer tokenizer;
+    private WktParser wktParser = new WktParser();
+
+    /**
+     * Creates parser for rows of the CSV file with given labels line.
+     * Indexes of used columns are resolved once, from the labels.
+     * @param header First line of the CSV file.
+     * @throws NoSuchElementException If required label is missing or coordinates column is not first.
+     */
+    public RowParser(String header) throws NoSuchElementException {
+        String[] labels = header.split(Map.CSV_SPLITTER);
+        columns[COORDINATES_FIELD] = searchLabel(labels, Map.COORDINATES);
+        if(columns[COORDINATES_FIELD] != 0) {
+            throw new NoSuchElementException(Map.COORDINATES + " column must be first!");
+        }
+        columns[DIRECTION_FIELD] = searchLabel(labels, Map.TRAFFIC_DIRECTION);
+        columns[LAYER_FIELD] = searchLabel(labels, Map.LAYER);
+        columns[CLASS_FIELD] = -1;
+        try {
+            columns[CLASS_FIELD] = searchLabel(labels, Map.CLASS);
+            filter = true;
+        } catch (NoSuchElementException e) {
+
+        }
+        tokenizer = createTokenizer();
+    }
+
+    /**
+     * Creates parser for the same columns as given parser. Each thread must use its own parser.
+     * @param parser Parser which columns are copied.
+     */
+    public RowParser(RowParser parser) {
+        columns = parser.columns.clone();
+        filter = parser.filter;
+        tokenizer = createTokenizer();
+    }
+
+    private CsvTokenizer createTokenizer() {
+        return new CsvTokenizer(columns, new String[] {Map.COORDINATES, Map.TRAFFIC_DIRECTION, Map.LAYER, Map.CLASS});
+    }
+
+    /**
+     * Parses one line of the CSV file. Only coordinates, traffic direction, layer and class fields are read.
+     * @param line Line of the CSV file.
+     * @param lineNumber Number of the line, used in error messages.
+     * @return Parsed row, rejected row with error message or null if road class is filtered out.
+     */
+    public CsvRow parse(CharSequence line, long lineNumber) {
+        if(!tokenizer.tokenize(line)) {
+            return new CsvRow(lineNumber, line.toString(), tokenizer.getError());
+        }
+
+        if(filter && !isRoadClass(line)) {
+            return null;
+        }
+
+        int layer;
+        try {
+            layer = parseLayer(line);
+        } catch (NumberFormatException e) {
+            return new CsvRow(lineNumber, null, e.toString());
+        }
+
+        try {
+            wktParser.parse(line, tokenizer.getStart(COORDINATES_FIELD), tokenizer.getEnd(COORDINATES_FIELD));
+        } catch (NumberFormatException e) {
+            return new CsvRow(lineNumber, describe(line), e.toString());
+        }
+        char way = ' ';
+        if(tokenizer.getEnd(DIRECTION_FIELD) > tokenizer.getStart(DIRECTION_FIELD)) {
+            way = line.charAt(tokenizer.getStart(DIRECTION_FIELD));
+            if(way == ',' && tokenizer.isQuoted(DIRECTION_FIELD)) {
+                way = '.';
+            }
+        }
+        CsvRow row = new CsvRow(lineNumber, wktParser.getCoordinates(), wktParser.getPartEnds(), way, layer);
+        if(way != 'F' && way != 'T' && way != 'B') {
+            row.setError(describe(line), String.format("Traffic direction value \"%c\" is unrecognizable.", way));
+        }
+        return row;
+    }
+
+    private boolean isRoadClass(CharSequence line) {
+        for(String validClass : ROAD_CLASSES) {
+            if(tokenizer.isEqual(line, CLASS_FIELD, validClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses layer field without creating String. Values which are not simple decimal numbers
+     * are given to Integer.parseInt, so accepted values and error messages stay the same.
+     * @param line Line of the CSV file.
+     * @return Layer value.
+     * @throws NumberFormatException If layer is not an integer.
+     */
+    private int parseLayer(CharSequence line) throws NumberFormatException {
+        int start = tokenizer.getStart(LAYER_FIELD);
+        int end = tokenizer.getEnd(LAYER_FIELD);
+        int i = start;
+        boolean isNegative = false;
+        if(i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            isNegative = (line.charAt(i) == '-');
+            i++;
+        }
+        long value = 0;
+        boolean isValid = i < end && end - i < 10;
+        for(; isValid && i<end; i++) {
+            char c = line.charAt(i);
+            if(c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else {
+                isValid = false;
+            }
+        }
+        if(isValid) {
+            return (int) ((isNegative) ? -value : value);
+        }
+        String layer = line.subSequence(start, end).toString();
+        if(tokenizer.isQuoted(LAYER_FIELD)) {
+            layer = layer.replace(',', '.');
+        }
+        return Integer.parseInt(layer);
+    }
+
+    /**
+     * Creates text of the line which is printed with error messages. It is the part after coordinates,
+     * where quotes are removed and commas inside quotes are replaced by dots.
+     * @param line Line of the CSV file.
+     * @return Text for error message.
+     */
+    private String describe(CharSequence line) {
+        String text = line.subSequence(tokenizer.getRawEnd(COORDINATES_FIELD), line.length()).toString();
+        StringBuilder builder = new StringBuilder(text.length());
+        boolean isInQuotes = false;
+        for(int i=0; i<text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '"') {
+                isInQuotes = !isInQuotes;
+            } else if(c == ',' && isInQuotes) {
+                builder.append('.');
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Search for given label in array of strings.
+     * @param labels Array of labels.
+     * @param label Method is looking for this label.
+     * @return Label column id or NoSuchElementException if not found.
+     */
+    private int searchLabel(String[] labels, String label) {
+        for(int i=0; i<labels.length; i++) {
+            if (labels[i].equals(label)) {
+                return i;
+            }
+        }
+        throw new NoSuchElementException(String.format("Label \"%s\" was not found.", label));
+    }
+}
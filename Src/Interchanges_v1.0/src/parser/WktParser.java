@@ -0,0 +1,236 @@
+package parser;
+
+/**
+ * Parses WKT LINESTRING and MULTILINESTRING geometries directly from given text, without creating
+ * intermediate String objects. Coordinates are collected into reusable buffer as latitude and
+ * longitude pairs. Every line string of multi-part geometry is kept as separate part.
+ * Object is not thread safe, each thread must use its own parser.
+ */
+public class WktParser {
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private CharSequence text;
+    private int position;
+    private int end;
+    private int offset;
+    private double[] coordinates = new double[256];
+    private int numberOfValues;
+    private int[] partEnds = new int[4];
+    private int numberOfParts;
+
+    /**
+     * Parses geometry which is between <i>start</i> and <i>end</i> positions of given text.
+     * @param text Text containing geometry.
+     * @param start Index of the first character of geometry.
+     * @param end Index after the last character of geometry.
+     * @throws NumberFormatException If geometry is not valid. Message contains position of the error in the geometry.
+     */
+    public void parse(CharSequence text, int start, int end) throws NumberFormatException {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+        this.offset = start;
+        numberOfValues = 0;
+        numberOfParts = 0;
+        skipWhitespace();
+        int keywordStart = position;
+        while(position < end && Character.isLetter(text.charAt(position))) {
+            position++;
+        }
+        boolean isMulti = isKeyword(keywordStart, "MULTILINESTRING");
+        if(!isMulti && !isKeyword(keywordStart, "LINESTRING")) {
+            throw error("MULTILINESTRING or LINESTRING expected");
+        }
+        skipWhitespace();
+        if(isMulti) {
+            expect('(');
+            parseLineString();
+            while(next() == ',') {
+                position++;
+                parseLineString();
+            }
+            expect(')');
+        } else {
+            parseLineString();
+        }
+        skipWhitespace();
+        if(position != end) {
+            throw error("end of geometry expected");
+        }
+        this.text = null;
+    }
+
+    /**
+     * @return Copy of parsed latitude and longitude pairs.
+     */
+    public double[] getCoordinates() {
+        double[] copy = new double[numberOfValues];
+        System.arraycopy(coordinates, 0, copy, 0, numberOfValues);
+        return copy;
+    }
+
+    /**
+     * @return Number of points in each part, accumulated. Null if geometry has only one part.
+     */
+    public int[] getPartEnds() {
+        if(numberOfParts <= 1) {
+            return null;
+        }
+        int[] copy = new int[numberOfParts];
+        System.arraycopy(partEnds, 0, copy, 0, numberOfParts);
+        return copy;
+    }
+
+    public int getNumberOfPoints() {
+        return numberOfValues / 2;
+    }
+
+    public int getNumberOfParts() {
+        return numberOfParts;
+    }
+
+    private void parseLineString() {
+        expect('(');
+        parsePoint();
+        while(next() == ',') {
+            position++;
+            parsePoint();
+        }
+        expect(')');
+        if(numberOfParts == partEnds.length) {
+            int[] longer = new int[partEnds.length * 2];
+            System.arraycopy(partEnds, 0, longer, 0, numberOfParts);
+            partEnds = longer;
+        }
+        partEnds[numberOfParts++] = numberOfValues / 2;
+    }
+
+    private void parsePoint() {
+        double latitude = parseNumber();
+        double longitude = parseNumber();
+        skipWhitespace();
+        while(position < end && text.charAt(position) != ',' && text.charAt(position) != ')') {    // Z and M values are ignored.
+            parseNumber();
+            skipWhitespace();
+        }
+        if(numberOfValues + 2 > coordinates.length) {
+            double[] longer = new double[coordinates.length * 2];
+            System.arraycopy(coordinates, 0, longer, 0, numberOfValues);
+            coordinates = longer;
+        }
+        coordinates[numberOfValues++] = latitude;
+        coordinates[numberOfValues++] = longitude;
+    }
+
+    /**
+     * Parses decimal number. If digits of the number fit into 53 bits and there are not more than 22 decimal places,
+     * number is calculated by one exact division. Other numbers are given to Double.parseDouble, so result is always the same.
+     * @return Parsed number.
+     */
+    private double parseNumber() {
+        skipWhitespace();
+        int start = position;
+        while(position < end && !isDelimiter(text.charAt(position))) {
+            position++;
+        }
+        if(start == position) {
+            throw error("number expected");
+        }
+        int i = start;
+        boolean isNegative = false;
+        char c = text.charAt(i);
+        if(c == '-' || c == '+') {
+            isNegative = (c == '-');
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean isFraction = false;
+        boolean isValid = false;
+        for(; i<position; i++) {
+            c = text.charAt(i);
+            if(c >= '0' && c <= '9') {
+                isValid = true;
+                if(mantissa != 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if(isFraction) {
+                    scale++;
+                }
+                if(digits > MAX_MANTISSA_DIGITS) {
+                    isValid = false;
+                    break;
+                }
+            } else if(c == '.' && !isFraction) {
+                isFraction = true;
+            } else {
+                isValid = false;
+                break;
+            }
+        }
+        if(isValid && digits <= MAX_MANTISSA_DIGITS && mantissa < MAX_EXACT_MANTISSA && scale < POWERS_OF_TEN.length) {
+            double value = (double) mantissa / POWERS_OF_TEN[scale];
+            return (isNegative) ? -value : value;
+        }
+        try {
+            return Double.parseDouble(text.subSequence(start, position).toString());
+        } catch (NumberFormatException e) {
+            throw error(String.format("number expected, found \"%s\"", text.subSequence(start, position)), start);
+        }
+    }
+
+    private boolean isDelimiter(char c) {
+        return c == ' ' || c == ',' || c == ')' || c == '(' || c == '\t';
+    }
+
+    private boolean isKeyword(int start, String keyword) {
+        if(position - start != keyword.length()) {
+            return false;
+        }
+        for(int i=0; i<keyword.length(); i++) {
+            if(Character.toUpperCase(text.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(char expected) {
+        if(next() != expected) {
+            throw error(String.format("'%c' expected", expected));
+        }
+        position++;
+    }
+
+    /**
+     * @return Next not white space character or 0 if geometry has ended.
+     */
+    private char next() {
+        skipWhitespace();
+        if(position < end) {
+            return text.charAt(position);
+        } else {
+            return 0;
+        }
+    }
+
+    private void skipWhitespace() {
+        while(position < end && (text.charAt(position) == ' ' || text.charAt(position) == '\t')) {
+            position++;
+        }
+    }
+
+    private NumberFormatException error(String message) {
+        return error(message, position);
+    }
+
+    private NumberFormatException error(String message, int at) {
+        return new NumberFormatException(String.format("Invalid geometry at position %d: %s.", at - offset + 1, message));
+    }
+}
@@ -0,0 +1,614 @@
+package server;
+
+import application.Map;
+import application.Settings;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import engine.BruteForceEngine;
+import engine.SweepEngine;
+import exception.CmdException;
+import exception.QueryException;
+import index.Envelope;
+import index.EnvelopeTree;
+import index.JunctionFilter;
+import mapObject.ConnectionSearch;
+import mapObject.CrossingPoint;
+import mapObject.Detection;
+import mapObject.Junction;
+import mapObject.Road;
+import writer.RowEncoder;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Local HTTP server, which keeps loaded maps and results of their detections between requests.
+ * All requests are GET requests with URL encoded parameters, results are streamed as CSV (default) or JSON ("format=json"):
+ * <ul>
+ * <li>/load?map=[name]&amp;input=[path_to_file]&amp;traffic=[r/l]&amp;engine=[b/s] - loads map, map with the same name is replaced.</li>
+ * <li>/unload?map=[name] - removes map.</li>
+ * <li>/maps - names of loaded maps and their detections.</li>
+ * <li>/detect?map=[name]&amp;roads=[number_of_roads]&amp;length=[max_length] - detects junctions, several comma separated values can be given.</li>
+ * <li>/junctions?map=[name]&amp;detection=[r6_l900]&amp;x=..&amp;s=..&amp;l=..&amp;c=..&amp;i=.. - ids and metrics of junctions, see {@link JunctionFilter}.</li>
+ * <li>/roads?map=[name]&amp;detection=[r6_l900]&amp;junction=[id] - all roads of the map or roads of one junction.</li>
+ * <li>/crossing-points?map=[name]&amp;detection=[r6_l900] - crossing points with connections.</li>
+ * </ul>
+ * Junctions, all roads and crossing points can be restricted to area: "bbox=[x1],[y1],[x2],[y2]" - envelope of object intersects the box,
+ * "near=[x],[y],[radius_in_meters]" - envelope of object is not farther than radius, see {@link EnvelopeTree}.
+ * Progress of loading and detection is not printed to the console, their time is returned in "milliseconds" column instead.
+ * Detection of a map waits for queries of that map and blocks them until it is finished, see {@link ResidentMap}. Listing of maps is not blocked.
+ * Queries of completed detections and requests to different maps run at once on threads of the server.
+ */
+public class MapServer {
+
+    private static final String CSV = "csv";
+    private static final String JSON = "json";
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private int threads;
+    private int crossingThreads;
+    private ConcurrentHashMap<String, ResidentMap> maps = new ConcurrentHashMap<>();
+    private CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * Creates server listening on loopback address only.
+     * @param port Port of the server. 0 - any free port, see {@link #getPort()}.
+     * @param threads Number of threads used to load maps and to detect junctions, see {@link Settings#getThreads()}.
+     *                Requests are answered on separate threads, new thread is created when all threads are busy.
+     * @param crossingThreads Number of threads used to search crossings of loaded maps, see {@link Settings#getCrossingThreads()}.
+     * @throws IOException If port can not be used.
+     */
+    public MapServer(int port, int threads, int crossingThreads) throws IOException {
+        this.threads = threads;
+        this.crossingThreads = crossingThreads;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/load", new LoadHandler());
+        server.createContext("/unload", new UnloadHandler());
+        server.createContext("/maps", new MapsHandler());
+        server.createContext("/detect", new DetectHandler());
+        server.createContext("/junctions", new JunctionsHandler());
+        server.createContext("/roads", new RoadsHandler());
+        server.createContext("/crossing-points", new CrossingPointsHandler());
+    }
+
+    public void start() {
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stops server, requests which are being answered are finished.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        stopped.countDown();
+    }
+
+    /**
+     * Waits until server is stopped.
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers request of one path. Result is streamed by {@link #respond(Query, Response)},
+     * errors are sent as plain text with status of {@link QueryException}.
+     */
+    private abstract class QueryHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if(!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                    throw new QueryException(404, String.format("Path '%s' does not exist.", exchange.getRequestURI().getPath()));
+                }
+                Query query = new Query(exchange.getRequestURI().getRawQuery());
+                String format = (query.get("format") == null) ? CSV : query.get("format");
+                if(!format.equals(CSV) && !format.equals(JSON)) {
+                    throw new QueryException(400, String.format("Parameter 'format' argument '%s' does not exist.", format));
+                }
+                respond(query, new Response(exchange, format.equals(JSON)));
+            } catch (QueryException e) {
+                sendError(exchange, e.getStatus(), e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+            }
+        }
+
+        /**
+         * Checks parameters and writes result. Response is started only when result is ready, so errors can still be sent.
+         */
+        abstract void respond(Query query, Response response) throws QueryException, IOException;
+
+        private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+            if(exchange.getResponseCode() != -1) {
+                return;                                     // Response is started, it is closed unfinished.
+            }
+            byte[] bytes = (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    private class LoadHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            String name = query.getRequired("map");
+            String input = query.getRequired("input");
+            boolean isRightHandTraffic;
+            switch (query.getRequired("traffic")) {
+                case "r":   isRightHandTraffic = true;
+                            break;
+                case "l":   isRightHandTraffic = false;
+                            break;
+                default:    throw new QueryException(400, String.format("Parameter 'traffic' argument '%s' does not exist.", query.get("traffic")));
+            }
+            Settings settings = new Settings();
+            settings.setQuiet(true);                        // Progress of requests to different maps would be mixed in the console.
+            settings.setThreads(threads);
+            settings.setCrossingThreads(crossingThreads);
+            if(query.get("engine") != null) {
+                switch (query.get("engine")) {
+                    case "b":   settings.setCrossingEngine(new BruteForceEngine());
+                                break;
+                    case "s":   settings.setCrossingEngine(new SweepEngine());
+                                break;
+                    default:    throw new QueryException(400, String.format("Parameter 'engine' argument '%s' does not exist.", query.get("engine")));
+                }
+            }
+            Map map;
+            long start = System.currentTimeMillis();
+            try {
+                map = new Map(input, isRightHandTraffic, settings);
+            } catch (IOException | CmdException e) {
+                throw new QueryException(400, e.getMessage());
+            }
+            maps.put(name, new ResidentMap(map));
+            int numberOfRoads = 0;
+            for(Road road : map.getRoads()) {
+                if(!road.isCopy()) {
+                    numberOfRoads++;
+                }
+            }
+            long elapsedTime = System.currentTimeMillis() - start;
+            response.start("map", "roads", "crossingPoints", "milliseconds");
+            response.beginRow().string(name).number(numberOfRoads).number(map.getCrossingPoints().size()).number(elapsedTime).endRow();
+            response.finish();
+        }
+    }
+
+    private class UnloadHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            String name = query.getRequired("map");
+            if(maps.remove(name) == null) {
+                throw new QueryException(404, String.format("Map '%s' is not loaded.", name));
+            }
+            response.start("map");
+            response.beginRow().string(name).endRow();
+            response.finish();
+        }
+    }
+
+    private class MapsHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws IOException {
+            response.start("map", "detection");
+            for(java.util.Map.Entry<String, ResidentMap> entry : maps.entrySet()) {
+                List<String> names = entry.getValue().getDetectionNames();      // Detection of the map does not block listing.
+                if(names.isEmpty()) {
+                    response.beginRow().string(entry.getKey()).string("").endRow();
+                }
+                for(String detectionName : names) {
+                    response.beginRow().string(entry.getKey()).string(detectionName).endRow();
+                }
+            }
+            response.finish();
+        }
+    }
+
+    private class DetectHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            ResidentMap resident = getMap(query);
+            int[] numbersOfRoads = query.getUnsignedInts("roads");
+            double[] lengths = query.getUnsignedDoubles("length");
+            if(numbersOfRoads.length * lengths.length > ConnectionSearch.MAX_DETECTIONS) {
+                throw new QueryException(400, String.format("Too many pairs of 'roads' and 'length' arguments! Maximum is %d.", ConnectionSearch.MAX_DETECTIONS));
+            }
+            List<Detection> detections;
+            long elapsedTime;
+            Lock lock = resident.writeLock();
+            lock.lock();
+            try {
+                long start = System.currentTimeMillis();          // Waiting for the lock is not counted.
+                detections = resident.getMap().findConnections(numbersOfRoads, lengths);
+                elapsedTime = System.currentTimeMillis() - start;
+                resident.addDetections(detections);
+            } finally {
+                lock.unlock();
+            }
+            response.start("detection", "junctions", "crossingPointsWithConnections", "connections", "expanded", "pruned", "milliseconds");
+            for(Detection detection : detections) {
+                response.beginRow().string(detection.getName()).number(detection.getJunctions().size())
+                        .number(detection.getNumberOfConnectedCrossingPoints()).number(detection.getNumberOfConnections())
+                        .number(detection.getExpanded()).number(detection.getPruned()).number(elapsedTime).endRow();
+            }
+            response.finish();
+        }
+    }
+
+    private class JunctionsHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            ResidentMap resident = getMap(query);
+            JunctionFilter filter = new JunctionFilter(query.get("x"), query.get("s"), query.get("l"), query.get("c"), query.get("i"));
+            Lock lock = resident.readLock();
+            lock.lock();
+            try {
+                Detection detection = getDetection(resident, query);
+                List<Junction> junctions = detection.getJunctionIndex().find(filter);
+                List<Junction> inArea = findInArea(detection.getJunctionTree(), query);
+                if(inArea != null) {
+                    Set<Junction> inAreaSet = new HashSet<>(inArea);
+                    List<Junction> found = new ArrayList<>();
+                    for(Junction junction : junctions) {
+                        if(inAreaSet.contains(junction)) {
+                            found.add(junction);
+                        }
+                    }
+                    junctions = found;
+                }
+                response.start("junctionID", "sides", "levels", "crossingPoints", "conflictRoads", "intersections");
+                for(Junction junction : junctions) {
+                    response.beginRow().number(junction.getId()).number(junction.getNumberOfSides()).number(junction.getNumberOfLevels())
+                            .number(junction.getNumberOfCrossingPoints()).number(junction.getNumberOfConflictRoads())
+                            .number(junction.getNumberOfIntersectionPoints()).endRow();
+                }
+                response.finish();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class RoadsHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            ResidentMap resident = getMap(query);
+            Lock lock = resident.readLock();
+            lock.lock();
+            try {
+                if(query.get("junction") == null) {
+                    List<Road> roads = findInArea(resident.getMap().getRoadTree(), query);
+                    if(roads == null) {
+                        roads = new ArrayList<>();
+                        for(Road road : resident.getMap().getRoads()) {
+                            if(!road.isCopy()) {
+                                roads.add(road);
+                            }
+                        }
+                    }
+                    writeRoads(response, roads, null);
+                } else {
+                    Detection detection = getDetection(resident, query);
+                    int junctionID = query.getUnsignedInt("junction");
+                    Junction found = null;
+                    for(Junction junction : detection.getJunctions()) {
+                        if(junction.getId() == junctionID) {
+                            found = junction;
+                            break;
+                        }
+                    }
+                    if(found == null) {
+                        throw new QueryException(404, String.format("Junction %d does not exist.", junctionID));
+                    }
+                    writeRoads(response, found.getOutputRoads(), found);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * CSV rows are the same as rows of roads file or junctions archive, see {@link Map#toFileJunctionsArchive}.
+         * @param junction Junction of roads. Null - roads are not of a junction.
+         */
+        private void writeRoads(Response response, List<Road> roads, Junction junction) throws IOException {
+            if(!response.isJson()) {
+                RowEncoder encoder = response.start();
+                encoder.append((junction == null) ? Road.getLabels() : Road.getJunctionLabels());
+                for(Road road : roads) {
+                    if(junction == null) {
+                        road.encode(encoder);
+                    } else {
+                        road.encode(encoder, junction.getId());
+                    }
+                    encoder.flushIfFull();
+                }
+                response.finish();
+                return;
+            }
+            RowEncoder encoder = response.start();
+            encoder.append('[');
+            boolean isFirst = true;
+            for(Road road : roads) {
+                encoder.append((isFirst) ? "" : ",").endRow();
+                isFirst = false;
+                encoder.append("{\"roadID\":").append(road.getId())
+                        .append(",\"oneway\":\"").append((road.isBothWay()) ? 'B' : 'F')
+                        .append("\",\"layers\":[");
+                for(int i=0; i<road.getLayers().size(); i++) {
+                    encoder.append((i > 0) ? "," : "").append(road.getLayers().get(i));
+                }
+                encoder.append("],\"crossedRoads\":[");
+                List<Road> crossedRoads = road.getCrossedRoads();
+                for(int i=0; i<crossedRoads.size(); i++) {
+                    encoder.append((i > 0) ? "," : "").append(crossedRoads.get(i).getId());
+                }
+                encoder.append("],\"length\":").appendFixed(road.getLength(), 0);
+                if(junction != null) {
+                    encoder.append(",\"junctionID\":").append(junction.getId());
+                }
+                encoder.append(",\"wkt\":\"");
+                road.encodeWkt(encoder);
+                encoder.append("\"}");
+                encoder.flushIfFull();
+            }
+            encoder.endRow().append(']').endRow();
+            response.finish();
+        }
+    }
+
+    private class CrossingPointsHandler extends QueryHandler {
+
+        @Override
+        void respond(Query query, Response response) throws QueryException, IOException {
+            ResidentMap resident = getMap(query);
+            Lock lock = resident.readLock();
+            lock.lock();
+            try {
+                Detection detection = getDetection(resident, query);
+                List<CrossingPoint> crossingPoints = findInArea(resident.getMap().getCrossingPointTree(), query);
+                if(crossingPoints == null) {
+                    crossingPoints = resident.getMap().getCrossingPoints();
+                }
+                if(!response.isJson()) {
+                    RowEncoder encoder = response.start();
+                    encoder.append(CrossingPoint.getLabels());
+                    for(CrossingPoint crossingPoint : crossingPoints) {
+                        if(detection.isConnectionExist(crossingPoint)) {
+                            crossingPoint.encode(encoder, detection.getJunction(crossingPoint));
+                            encoder.flushIfFull();
+                        }
+                    }
+                    response.finish();
+                    return;
+                }
+                response.start("topRoad", "bottomRoad", "junction", "wkt");
+                for(CrossingPoint crossingPoint : crossingPoints) {
+                    if(detection.isConnectionExist(crossingPoint)) {
+                        RowEncoder encoder = response.beginRow().number(crossingPoint.getTopRoad().getId()).number(crossingPoint.getBottomRoad().getId())
+                                .number(detection.getJunction(crossingPoint).getId()).field();
+                        encoder.append("\"POINT (").appendCoordinates(crossingPoint.getCrossingPoint().getLatitude(), crossingPoint.getCrossingPoint().getLongitude()).append(")\"");
+                        response.endRow();
+                    }
+                }
+                response.finish();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return Objects of given tree in area of parameter 'bbox' or 'near'. Null - area is not given.
+     */
+    private static <T> List<T> findInArea(EnvelopeTree<T> tree, Query query) throws QueryException {
+        if(query.get("bbox") != null && query.get("near") != null) {
+            throw new QueryException(400, "Parameters 'bbox' and 'near' can not be used together!");
+        }
+        if(query.get("bbox") != null) {
+            try {
+                return tree.find(Envelope.parse(query.get("bbox")));
+            } catch (NumberFormatException e) {
+                throw new QueryException(400, e.getMessage());
+            }
+        }
+        if(query.get("near") != null) {
+            String[] values = query.get("near").split(",");
+            if(values.length != 3) {
+                throw new QueryException(400, "Parameter 'near' must have 3 comma separated numbers: [x],[y],[radius_in_meters]!");
+            }
+            double[] numbers = new double[3];
+            for(int i=0; i<3; i++) {
+                try {
+                    numbers[i] = Double.parseDouble(values[i]);
+                } catch (NumberFormatException e) {
+                    throw new QueryException(400, String.format("Parameter 'near' argument '%s' is not number!", values[i]));
+                }
+            }
+            if(!(numbers[2] >= 0)) {
+                throw new QueryException(400, String.format("Parameter 'near' radius '%s' is negative!", values[2]));
+            }
+            return tree.findNear(numbers[0], numbers[1], numbers[2]);
+        }
+        return null;
+    }
+
+    private ResidentMap getMap(Query query) throws QueryException {
+        String name = query.getRequired("map");
+        ResidentMap resident = maps.get(name);
+        if(resident == null) {
+            throw new QueryException(404, String.format("Map '%s' is not loaded.", name));
+        }
+        return resident;
+    }
+
+    /**
+     * Read lock of the map must be held.
+     */
+    private static Detection getDetection(ResidentMap resident, Query query) throws QueryException {
+        Detection detection = resident.getDetection(query.get("detection"));
+        if(detection == null) {
+            if(query.get("detection") == null) {
+                throw new QueryException(404, "Junctions are not detected yet!");
+            }
+            throw new QueryException(404, String.format("Detection '%s' does not exist.", query.get("detection")));
+        }
+        return detection;
+    }
+
+    /**
+     * Streamed body of response. Rows of labelled fields are written as CSV rows or as JSON array of objects.
+     * Object is used by one request only.
+     */
+    private static class Response {
+
+        private HttpExchange exchange;
+        private boolean isJson;
+        private Writer writer;
+        private RowEncoder encoder;
+        private String[] labels;
+        private int field;
+        private boolean isFirstRow = true;
+
+        Response(HttpExchange exchange, boolean isJson) {
+            this.exchange = exchange;
+            this.isJson = isJson;
+        }
+
+        boolean isJson() {
+            return isJson;
+        }
+
+        /**
+         * Sends headers and starts body, length of body is not known.
+         * @param labels Labels of fields, CSV header is written. No labels - rows are written directly to returned encoder.
+         * @return Encoder of body.
+         */
+        RowEncoder start(String... labels) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", (isJson) ? "application/json; charset=utf-8" : "text/csv; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+            encoder = new RowEncoder(writer);
+            this.labels = labels;
+            if(labels.length > 0) {
+                if(isJson) {
+                    encoder.append('[');
+                } else {
+                    for(int i=0; i<labels.length; i++) {
+                        encoder.append((i > 0) ? Map.CSV_SPLITTER : "").append(labels[i]);
+                    }
+                    encoder.endRow();
+                }
+            }
+            return encoder;
+        }
+
+        Response beginRow() {
+            if(isJson) {
+                encoder.append((isFirstRow) ? "" : ",").endRow().append('{');
+            }
+            isFirstRow = false;
+            field = 0;
+            return this;
+        }
+
+        /**
+         * Starts next field of row.
+         * @return Encoder, where value of field is appended.
+         */
+        RowEncoder field() {
+            if(isJson) {
+                encoder.append((field > 0) ? "," : "").append('"').append(labels[field]).append("\":");
+            } else if(field > 0) {
+                encoder.append(Map.CSV_SPLITTER);
+            }
+            field++;
+            return encoder;
+        }
+
+        Response number(long value) {
+            field().append(value);
+            return this;
+        }
+
+        /**
+         * Value is escaped: JSON string escapes, CSV value with splitter, quote or line break is quoted.
+         */
+        Response string(String value) {
+            RowEncoder encoder = field();
+            if(isJson) {
+                encoder.append('"');
+                for(int i=0; i<value.length(); i++) {
+                    char character = value.charAt(i);
+                    if(character == '"' || character == '\\') {
+                        encoder.append('\\').append(character);
+                    } else if(character < ' ') {
+                        encoder.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        encoder.append(character);
+                    }
+                }
+                encoder.append('"');
+            } else if(value.contains(Map.CSV_SPLITTER) || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                encoder.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                encoder.append(value);
+            }
+            return this;
+        }
+
+        void endRow() throws IOException {
+            if(isJson) {
+                encoder.append('}');
+            } else {
+                encoder.endRow();
+            }
+            encoder.flushIfFull();
+        }
+
+        /**
+         * Ends body and writes the rest of it.
+         */
+        void finish() throws IOException {
+            if(isJson && labels.length > 0) {
+                encoder.endRow().append(']').endRow();
+            }
+            encoder.flush();
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package server;
+
+import exception.QueryException;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+
+/**
+ * Parameters of request to the server, decoded from the query part of URI, for example "?map=lt&amp;roads=4,6&amp;length=900".
+ * Values must be URL encoded, so junction requirements are written as, for example, "x=%3E3" for "&gt;3".
+ */
+public class Query {
+
+    private HashMap<String, String> parameters = new HashMap<>();
+
+    /**
+     * @param rawQuery Not decoded query part of URI. Null - no parameters.
+     * @throws QueryException If parameter can not be decoded.
+     */
+    public Query(String rawQuery) throws QueryException {
+        if(rawQuery == null || rawQuery.isEmpty()) {
+            return;
+        }
+        for(String parameter : rawQuery.split("&")) {
+            int split = parameter.indexOf('=');
+            try {
+                if(split < 0) {
+                    parameters.put(URLDecoder.decode(parameter, "UTF-8"), "");
+                } else {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, split), "UTF-8"), URLDecoder.decode(parameter.substring(split + 1), "UTF-8"));
+                }
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                throw new QueryException(400, String.format("Parameter '%s' can not be decoded.", parameter));
+            }
+        }
+    }
+
+    /**
+     * @return Value of parameter. Null - if parameter is not given.
+     */
+    public String get(String name) {
+        return parameters.get(name);
+    }
+
+    /**
+     * @return Value of parameter.
+     * @throws QueryException If parameter is not given.
+     */
+    public String getRequired(String name) throws QueryException {
+        String value = parameters.get(name);
+        if(value == null || value.isEmpty()) {
+            throw new QueryException(400, String.format("Parameter '%s' is missing!", name));
+        }
+        return value;
+    }
+
+    /**
+     * @return Value of parameter, which is unsigned integer.
+     * @throws QueryException If parameter is not given or value is not one unsigned integer.
+     */
+    public int getUnsignedInt(String name) throws QueryException {
+        int[] numbers = getUnsignedInts(name);
+        if(numbers.length != 1) {
+            throw new QueryException(400, String.format("Parameter '%s' must have one argument!", name));
+        }
+        return numbers[0];
+    }
+
+    /**
+     * @return Comma separated values of parameter, which are unsigned integers.
+     * @throws QueryException If parameter is not given or value is not unsigned integer.
+     */
+    public int[] getUnsignedInts(String name) throws QueryException {
+        String[] values = getRequired(name).split(",", -1);
+        int[] numbers = new int[values.length];
+        for(int i=0; i<values.length; i++) {
+            try {
+                numbers[i] = Integer.parseInt(values[i]);
+            } catch (NumberFormatException e) {
+                throw new QueryException(400, String.format("Parameter '%s' argument '%s' is not integer!", name, values[i]));
+            }
+            if(numbers[i] < 0) {
+                throw new QueryException(400, String.format("Parameter '%s' argument '%s' is negative!", name, values[i]));
+            }
+        }
+        return numbers;
+    }
+
+    /**
+     * @return Comma separated values of parameter, which are unsigned numbers.
+     * @throws QueryException If parameter is not given or value is not unsigned number.
+     */
+    public double[] getUnsignedDoubles(String name) throws QueryException {
+        String[] values = getRequired(name).split(",", -1);
+        double[] numbers = new double[values.length];
+        for(int i=0; i<values.length; i++) {
+            try {
+                numbers[i] = Double.parseDouble(values[i]);
+            } catch (NumberFormatException e) {
+                throw new QueryException(400, String.format("Parameter '%s' argument '%s' is not number!", name, values[i]));
+            }
+            if(!(numbers[i] >= 0)) {
+                throw new QueryException(400, String.format("Parameter '%s' argument '%s' is negative!", name, values[i]));
+            }
+        }
+        return numbers;
+    }
+}
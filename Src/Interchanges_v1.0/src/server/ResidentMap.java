@@ -0,0 +1,76 @@
+package server;
+
+import application.Map;
+import mapObject.Detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Map kept loaded by the server and results of its detections. Detection of junctions changes the map and its list of results,
+ * so it takes write lock. Queries only read completed results, they take read lock and run at once.
+ * Names of detections are also kept as a copy, which is replaced by every detection, so they are listed without waiting for detection.
+ */
+public class ResidentMap {
+
+    private Map map;
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LinkedHashMap<String, Detection> detections = new LinkedHashMap<>();      // Results by name of detection, see Detection#getName().
+    private Detection lastDetection;
+    private volatile List<String> detectionNames = Collections.emptyList();     // Copy of names, it is never changed.
+
+    public ResidentMap(Map map) {
+        this.map = map;
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    /**
+     * @return Lock which is held while results are read.
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * @return Lock which is held while junctions are detected.
+     */
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Keeps results of detection, results with the same name are replaced. Write lock must be held.
+     */
+    public void addDetections(List<Detection> results) {
+        for(Detection detection : results) {
+            detections.put(detection.getName(), detection);
+            lastDetection = detection;
+        }
+        detectionNames = Collections.unmodifiableList(new ArrayList<>(detections.keySet()));
+    }
+
+    /**
+     * Read lock must be held.
+     * @param name Name of detection, see {@link Detection#getName()}. Null - the last detection.
+     * @return Results of detection. Null - if detection with given name does not exist.
+     */
+    public Detection getDetection(String name) {
+        return (name == null) ? lastDetection : detections.get(name);
+    }
+
+    /**
+     * Lock is not needed, names of detection which is running are not included.
+     * @return Names of all completed detections in order they were made.
+     */
+    public List<String> getDetectionNames() {
+        return detectionNames;
+    }
+}
@@ -0,0 +1,161 @@
+package writer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes characters to file in UTF-8, the same bytes as OutputStreamWriter with "utf-8" charset writes.
+ * Characters are encoded into large direct buffer, which is written to FileChannel only when it is full.
+ * Buffers are reused: closed writer gives them to the next writer opened on the same thread,
+ * so writing many small files, as junctions output does, does not allocate new buffers for each file.
+ * Object is not thread safe, every thread writes its own files.
+ */
+public class ChannelWriter extends Writer {
+
+    private static final int BYTE_BUFFER_SIZE = 1 << 20;
+    private static final int CHAR_BUFFER_SIZE = 1 << 16;
+    private static final ThreadLocal<Buffers> FREE_BUFFERS = new ThreadLocal<>();      // Buffers of closed writer of each thread.
+
+    private FileChannel channel;
+    private Buffers buffers;
+
+    /**
+     * Creates new file or truncates existing one.
+     * @param fileName Path to the file.
+     * @throws IOException If file can not be created, for example, if its folder does not exist.
+     */
+    public ChannelWriter(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffers = FREE_BUFFERS.get();
+        if(buffers == null) {
+            buffers = new Buffers();
+        } else {
+            FREE_BUFFERS.set(null);             // Writer opened before this one is closed gets its own buffers.
+        }
+    }
+
+    @Override
+    public void write(char[] characters, int offset, int length) throws IOException {
+        CharBuffer chars = buffers.chars;
+        while(length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(characters, offset, count);
+            offset += count;
+            length -= count;
+            if(!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        CharBuffer chars = buffers.chars;
+        while(length > 0) {
+            int count = Math.min(length, chars.remaining());
+            chars.put(string, offset, offset + count);
+            offset += count;
+            length -= count;
+            if(!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(int character) throws IOException {
+        buffers.chars.put((char) character);
+        if(!buffers.chars.hasRemaining()) {
+            encode(false);
+        }
+    }
+
+    /**
+     * @return Number of bytes of written characters, the same as position of the next character in the file.
+     * Characters of not finished surrogate pair are not counted.
+     */
+    public long getPosition() throws IOException {
+        encode(false);
+        return channel.position() + buffers.bytes.position();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encode(false);
+        writeBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(channel == null) {
+            return;
+        }
+        try {
+            encode(true);
+            while(buffers.encoder.flush(buffers.bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } finally {
+            channel.close();
+            channel = null;
+            buffers.clear();
+            FREE_BUFFERS.set(buffers);
+            buffers = null;
+        }
+    }
+
+    /**
+     * Moves characters to bytes buffer. Not finished surrogate pair is kept until its second character is written.
+     * @param isEndOfInput True - if no more characters will be written.
+     */
+    private void encode(boolean isEndOfInput) throws IOException {
+        CharBuffer chars = buffers.chars;
+        chars.flip();
+        while(true) {
+            CoderResult result = buffers.encoder.encode(chars, buffers.bytes, isEndOfInput);
+            if(result.isOverflow()) {
+                writeBytes();
+            } else {
+                if(result.isError()) {
+                    result.throwException();
+                }
+                break;
+            }
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        ByteBuffer bytes = buffers.bytes;
+        bytes.flip();
+        while(bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private static class Buffers {
+
+        private CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        private ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+        private CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        void clear() {
+            chars.clear();
+            bytes.clear();
+            encoder.reset();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package writer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes several output files at once. Every added output writes its own files and only reads the map,
+ * so outputs run on separate threads and total time is close to the time of the largest output instead of the sum of all.
+ * Results are returned in order outputs were added, so messages can be printed in the same order as sequential output prints them.
+ */
+public class OutputPipeline {
+
+    private int threads;
+    private List<Callable<Integer>> outputs = new ArrayList<>();
+
+    /**
+     * @param threads Maximum number of outputs written at once. 1 - outputs are written one after another on the calling thread.
+     */
+    public OutputPipeline(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param output Writes files and returns its result, for example number of written files or -1 if files were not written.
+     */
+    public void add(Callable<Integer> output) {
+        outputs.add(output);
+    }
+
+    /**
+     * Writes all added outputs and waits until they are finished.
+     * @return Result of each output in order they were added.
+     */
+    public List<Integer> write() {
+        List<Integer> results = new ArrayList<>();
+        if(threads <= 1 || outputs.size() <= 1) {
+            for(Callable<Integer> output : outputs) {
+                results.add(call(output));
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, outputs.size()));
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for(Callable<Integer> output : outputs) {
+                futures.add(executor.submit(output));
+            }
+            for(Future<Integer> future : futures) {
+                results.add(get(future));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static Integer call(Callable<Integer> output) {
+        try {
+            return output.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Output failed.", e);
+        }
+    }
+
+    private static Integer get(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Output was interrupted.", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Output failed.", e.getCause());
+        }
+    }
+}
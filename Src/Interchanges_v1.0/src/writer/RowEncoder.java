@@ -0,0 +1,182 @@
+package writer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Builds rows of CSV output files in one reusable array of characters instead of creating Strings for every field and row.
+ * Numbers are written directly as digits. Fixed precision numbers are written the same as String.format with "%.[decimals]f" writes them:
+ * digits are rounded half up, negative numbers, which are rounded to zero, keep minus sign. Numbers whose rounding can not be decided
+ * exactly from double arithmetic (close to half of the last digit), very large numbers, NaN and infinity are formatted by String.format.
+ * Object is not thread safe, every thread encodes its own rows.
+ */
+public class RowEncoder {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int FLUSH_SIZE = 1 << 14;                  // Rows are moved to the writer, when buffer has more characters.
+    private static final String LINE_SEPARATOR = System.lineSeparator();     // The same as %n of String.format.
+    private static final int MAX_DECIMALS = 9;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DECIMALS + 1];
+    private static final double MAX_SCALED = 1e15;                  // Scaled numbers below this limit keep enough precision of the fraction.
+    private static final double TIE_TOLERANCE = 1e-14;              // Relative error of scaling, greater than error of double arithmetic.
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i=1; i<POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+        }
+    }
+
+    private Writer writer;
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Creates encoder which only collects rows, see {@link #toString()}.
+     */
+    public RowEncoder() {
+    }
+
+    /**
+     * @param writer Writer, where encoded rows are moved by {@link #flushIfFull()} and {@link #flush()}.
+     */
+    public RowEncoder(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Changes writer, so the same buffer is used for the next file. Rows of the previous writer must be flushed before.
+     */
+    public void setWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public RowEncoder append(char character) {
+        ensureCapacity(1);
+        buffer[size++] = character;
+        return this;
+    }
+
+    public RowEncoder append(String string) {
+        int length = string.length();
+        ensureCapacity(length);
+        string.getChars(0, length, buffer, size);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Appends number in the same way as %d of String.format.
+     */
+    public RowEncoder append(long number) {
+        if(number == Long.MIN_VALUE) {
+            return append(Long.toString(number));
+        }
+        ensureCapacity(20);
+        if(number < 0) {
+            buffer[size++] = '-';
+            number = -number;
+        }
+        appendDigits(number, 1);
+        return this;
+    }
+
+    /**
+     * Appends number in the same way as String.format(Locale.ROOT, "%.[decimals]f", number).
+     * @param decimals Number of digits after decimal point, from 0 to 9.
+     */
+    public RowEncoder appendFixed(double number, int decimals) {
+        double absolute = Math.abs(number);
+        double scaled = absolute * POWERS_OF_TEN[decimals];
+        if(!(scaled < MAX_SCALED)) {                                // NaN, infinity and large numbers.
+            return appendFormatted(number, decimals);
+        }
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        if(Math.abs(fraction - 0.5) <= TIE_TOLERANCE * (scaled + 1)) {
+            return appendFormatted(number, decimals);               // Rounding of decimal value of the number is not known exactly.
+        }
+        if(fraction > 0.5) {
+            whole++;
+        }
+        ensureCapacity(32);
+        if(Double.doubleToRawLongBits(number) < 0) {                // Also -0.0 and small negative numbers, which are rounded to zero.
+            buffer[size++] = '-';
+        }
+        appendDigits(whole / POWERS_OF_TEN[decimals], 1);
+        if(decimals > 0) {
+            buffer[size++] = '.';
+            appendDigits(whole % POWERS_OF_TEN[decimals], decimals);
+        }
+        return this;
+    }
+
+    /**
+     * Appends coordinates of vertex in the same way as String.format(Locale.ROOT,"%f %f", latitude, longitude).
+     */
+    public RowEncoder appendCoordinates(double latitude, double longitude) {
+        appendFixed(latitude, 6);
+        append(' ');
+        return appendFixed(longitude, 6);
+    }
+
+    /**
+     * Appends line separator, the same as %n of String.format.
+     */
+    public RowEncoder endRow() {
+        return append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Moves encoded rows to the writer, if buffer has many characters.
+     */
+    public void flushIfFull() throws IOException {
+        if(size >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Moves all encoded rows to the writer.
+     */
+    public void flush() throws IOException {
+        writer.write(buffer, 0, size);
+        size = 0;
+    }
+
+    /**
+     * @return Encoded characters, which were not moved to the writer.
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size);
+    }
+
+    private RowEncoder appendFormatted(double number, int decimals) {
+        return append(String.format(Locale.ROOT, "%." + decimals + "f", number));
+    }
+
+    /**
+     * Appends not negative number with at least given number of digits, missing digits are leading zeros.
+     */
+    private void appendDigits(long number, int minDigits) {
+        int digits = 1;
+        for(long rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        for(int i=size + digits - 1; i>=size; i--) {
+            buffer[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        size += digits;
+    }
+
+    private void ensureCapacity(int length) {
+        if(size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+        }
+    }
+}
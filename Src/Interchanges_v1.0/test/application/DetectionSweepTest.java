@@ -0,0 +1,110 @@
+package application;
+
+import mapObject.CrossingPoint;
+import mapObject.Detection;
+import mapObject.Junction;
+import testing.TestCase;
+import testing.TestMaps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Detection with several numbers of roads and lengths (-R a,b -L x,y) must give the same results
+ * as separate detections with each pair of them, see {@link Map#findConnections(int[], double[])}.
+ * Maps are generated, see {@link TestMaps}.
+ */
+public class DetectionSweepTest extends TestCase {
+
+    private static final int[] NUMBERS_OF_ROADS = {2, 3, 6};
+    private static final double[] LENGTHS = {100D, 300D, 900D};
+
+    public void testSequentialSweep() throws Exception {
+        assertSweepAsSingleRuns(1);
+    }
+
+    public void testParallelSweep() throws Exception {
+        assertSweepAsSingleRuns(3);
+    }
+
+    private void assertSweepAsSingleRuns(int threads) throws Exception {
+        File folder = Files.createTempDirectory("sweep").toFile();
+        int connections = 0;
+        try {
+            for(long seed=1; seed<=3; seed++) {
+                String fileName = new File(folder, "map" + seed + ".csv").getPath();
+                TestMaps.write(fileName, new Random(seed));
+                Settings settings = new Settings();
+                settings.setQuiet(true);
+                settings.setThreads(threads);
+                Map map = new Map(fileName, true, settings);
+                List<Detection> sweep = map.findConnections(NUMBERS_OF_ROADS, LENGTHS);
+                assertEquals("detections", NUMBERS_OF_ROADS.length * LENGTHS.length, sweep.size());
+                int i = 0;
+                for(int numberOfRoads : NUMBERS_OF_ROADS) {
+                    for(double length : LENGTHS) {
+                        Detection single = map.findConnections(new int[] {numberOfRoads}, new double[] {length}).get(0);
+                        String name = "map " + seed + ", " + single.getName();
+                        assertSameDetection(name, map, single, sweep.get(i++), folder);
+                        connections += single.getNumberOfConnections();
+                    }
+                }
+            }
+        } finally {
+            for(File file : folder.listFiles()) {
+                file.delete();
+            }
+            folder.delete();
+        }
+        assertTrue("connections are found", connections > 0);
+    }
+
+    private static void assertSameDetection(String name, Map map, Detection expected, Detection actual, File folder) throws IOException {
+        assertEquals(name + ", parameters", expected.getName(), actual.getName());
+        assertEquals(name + ", junctions", expected.getJunctions().size(), actual.getJunctions().size());
+        assertEquals(name + ", connected crossing points", expected.getNumberOfConnectedCrossingPoints(), actual.getNumberOfConnectedCrossingPoints());
+        assertEquals(name + ", connections", expected.getNumberOfConnections(), actual.getNumberOfConnections());
+        for(CrossingPoint crossingPoint : map.getCrossingPoints()) {
+            List<int[]> expectedPaths = expected.getConnectionPaths(crossingPoint);
+            List<int[]> actualPaths = actual.getConnectionPaths(crossingPoint);
+            assertEquals(name + ", connections of crossing point", expectedPaths.size(), actualPaths.size());
+            for(int i=0; i<expectedPaths.size(); i++) {
+                assertArrayEquals(name + ", roads of connection", expectedPaths.get(i), actualPaths.get(i));
+            }
+            assertEquals(name + ", connecting roads", expected.getConnectingRoads(crossingPoint), actual.getConnectingRoads(crossingPoint));
+        }
+        for(int i=0; i<expected.getJunctions().size(); i++) {
+            Junction a = expected.getJunctions().get(i);
+            Junction b = actual.getJunctions().get(i);
+            String junction = name + ", junction " + a.getId();
+            assertEquals(junction + " id", a.getId(), b.getId());
+            assertEquals(junction + " crossing points", a.getNumberOfCrossingPoints(), b.getNumberOfCrossingPoints());
+            assertEquals(junction + " sides", a.getNumberOfSides(), b.getNumberOfSides());
+            assertEquals(junction + " levels", a.getNumberOfLevels(), b.getNumberOfLevels());
+            assertEquals(junction + " conflict roads", a.getNumberOfConflictRoads(), b.getNumberOfConflictRoads());
+            assertEquals(junction + " intersections", a.getNumberOfIntersectionPoints(), b.getNumberOfIntersectionPoints());
+        }
+        File expectedFile = new File(folder, "expected.csv");
+        File actualFile = new File(folder, "actual.csv");
+        map.toFileConnections(expectedFile.getPath(), expected, null);
+        map.toFileConnections(actualFile.getPath(), actual, null);
+        assertSameFiles(name + ", connections output", expectedFile, actualFile);
+        map.toFileCrossingPoints(expectedFile.getPath(), expected, null);
+        map.toFileCrossingPoints(actualFile.getPath(), actual, null);
+        assertSameFiles(name + ", crossing points output", expectedFile, actualFile);
+        File expectedIndex = new File(folder, "expected_index.csv");
+        File actualIndex = new File(folder, "actual_index.csv");
+        map.toFileJunctionsArchive(expectedFile.getPath(), expectedIndex.getPath(), expected, null, null, null, null, null, null);
+        map.toFileJunctionsArchive(actualFile.getPath(), actualIndex.getPath(), actual, null, null, null, null, null, null);
+        assertSameFiles(name + ", junctions output", expectedFile, actualFile);
+        assertSameFiles(name + ", junctions index", expectedIndex, actualIndex);
+    }
+
+    private static void assertSameFiles(String message, File expected, File actual) throws IOException {
+        assertTrue(message + " is written", Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath())));
+    }
+}
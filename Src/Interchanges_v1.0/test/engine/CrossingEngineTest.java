@@ -0,0 +1,105 @@
+package engine;
+
+import index.VertexStore;
+import mapObject.Segment;
+import testing.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sweep engine must find the same crossings in the same order as brute force, see {@link CrossingEngine}.
+ */
+public class CrossingEngineTest extends TestCase {
+
+    private VertexStore vertices = new VertexStore();
+
+    private Segment segment(double startLatitude, double startLongitude, double endLatitude, double endLongitude, int layer) {
+        return new Segment(vertices, vertices.firstOrNew(startLatitude, startLongitude), vertices.firstOrNew(endLatitude, endLongitude), false, layer);
+    }
+
+    /**
+     * @return Random segments up to given size in each coordinate, inside 0.01 x 0.01 degree square, of layers from 0 to layers - 1.
+     */
+    private List<Segment> randomCell(Random random, int numberOfSegments, double maxSize, int layers) {
+        List<Segment> cell = new ArrayList<>(numberOfSegments);
+        for(int i=0; i<numberOfSegments; i++) {
+            double latitude = 54D + random.nextDouble() * 0.01D;
+            double longitude = 25D + random.nextDouble() * 0.01D;
+            cell.add(segment(latitude, longitude, latitude + (random.nextDouble() * 2 - 1) * maxSize,
+                    longitude + (random.nextDouble() * 2 - 1) * maxSize, random.nextInt(layers)));
+        }
+        return cell;
+    }
+
+    private static void assertSameCrossings(String message, List<Crossing> expected, List<Crossing> actual) {
+        assertEquals(message + ", number of crossings", expected.size(), actual.size());
+        for(int i=0; i<expected.size(); i++) {
+            Crossing a = expected.get(i);
+            Crossing b = actual.get(i);
+            assertTrue(message + ", segments of crossing " + i, a.getSegmentA() == b.getSegmentA() && a.getSegmentB() == b.getSegmentB());
+            assertEquals(message + ", latitude of crossing " + i, a.getLatitude(), b.getLatitude());
+            assertEquals(message + ", longitude of crossing " + i, a.getLongitude(), b.getLongitude());
+        }
+    }
+
+    private static void assertSameCrossings(String message, List<Segment> cell) {
+        assertSameCrossings(message, new BruteForceEngine().findCrossings(cell), new SweepEngine().findCrossings(cell));
+    }
+
+    public void testRandomCells() {
+        Random random = new Random(1);
+        int found = 0;
+        for(int round=0; round<50; round++) {
+            List<Segment> cell = randomCell(random, 1 + random.nextInt(300), 0.002D, 1 + random.nextInt(3));
+            assertSameCrossings("cell " + round, cell);
+            found += new BruteForceEngine().findCrossings(cell).size();
+        }
+        assertTrue("crossings are found", found > 0);
+    }
+
+    public void testGrid() {
+        List<Segment> cell = new ArrayList<>();
+        for(int i=0; i<10; i++) {
+            cell.add(segment(54D + i * 0.001D, 25D, 54D + i * 0.001D, 25.01D, 0));       // Parallel to latitude.
+            cell.add(segment(54D, 25.0005D + i * 0.001D, 54.01D, 25.0005D + i * 0.001D, 1));
+        }
+        assertEquals("crossings", 100, new BruteForceEngine().findCrossings(cell).size());
+        assertSameCrossings("grid", cell);
+    }
+
+    public void testTouchingAndSharedVertices() {
+        List<Segment> cell = new ArrayList<>();
+        cell.add(segment(54D, 25D, 54D, 25.002D, 0));
+        cell.add(segment(54D, 25.001D, 54.001D, 25.001D, 1));          // Ends on the first segment.
+        cell.add(segment(54D, 25.002D, 54.001D, 25.003D, 1));          // Shares vertex with the first segment.
+        cell.add(segment(54D, 25D, 54D, 25.002D, 1));                  // The same as the first segment.
+        cell.add(segment(54D, 25.0015D, 54D, 25.0025D, 2));            // Overlaps the first segment.
+        cell.add(segment(54.0005D, 25.0005D, 54.0005D, 25.0005D, 2));  // Single point.
+        assertSameCrossings("touching", cell);
+    }
+
+    public void testEmptyAndSingleSegmentCells() {
+        assertSameCrossings("empty", new ArrayList<Segment>());
+        List<Segment> cell = new ArrayList<>();
+        cell.add(segment(54D, 25D, 54.001D, 25.001D, 0));
+        assertSameCrossings("single", cell);
+    }
+
+    public void testSearchOnSeveralThreads() {
+        Random random = new Random(2);
+        List<List<Segment>> cells = new ArrayList<>();
+        for(int i=0; i<64; i++) {
+            cells.add(randomCell(random, random.nextInt(200), 0.001D, 2));
+        }
+        List<List<Crossing>> expected = new CrossingSearch(1, new BruteForceEngine()).search(cells);
+        for(int threads=1; threads<=4; threads++) {
+            List<List<Crossing>> actual = new CrossingSearch(threads, new SweepEngine()).search(cells);
+            assertEquals("cells", expected.size(), actual.size());
+            for(int i=0; i<cells.size(); i++) {
+                assertSameCrossings(threads + " threads, cell " + i, expected.get(i), actual.get(i));
+            }
+        }
+    }
+}
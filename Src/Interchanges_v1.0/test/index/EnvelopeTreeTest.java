@@ -0,0 +1,121 @@
+package index;
+
+import testing.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Queries of the tree must find the same objects in the same order as linear scan of all envelopes.
+ */
+public class EnvelopeTreeTest extends TestCase {
+
+    private Random random = new Random(1);
+
+    /**
+     * @return Random envelopes of given area, up to given size. Every tenth envelope is a point.
+     */
+    private List<Envelope> randomEnvelopes(int number, double areaSize, double maxSize) {
+        List<Envelope> envelopes = new ArrayList<>(number);
+        for(int i=0; i<number; i++) {
+            double latitude = 54D + random.nextDouble() * areaSize;
+            double longitude = 25D + random.nextDouble() * areaSize;
+            double size = (i % 10 == 0) ? 0D : random.nextDouble() * maxSize;
+            envelopes.add(new Envelope(latitude, longitude, latitude + size, longitude + size * random.nextDouble()));
+        }
+        return envelopes;
+    }
+
+    private static List<Integer> positions(int number) {
+        List<Integer> items = new ArrayList<>(number);
+        for(int i=0; i<number; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private static List<Integer> scan(List<Envelope> envelopes, Envelope area) {
+        List<Integer> found = new ArrayList<>();
+        for(int i=0; i<envelopes.size(); i++) {
+            if(envelopes.get(i).intersects(area)) {
+                found.add(i);
+            }
+        }
+        return found;
+    }
+
+    private static List<Integer> scanNear(List<Envelope> envelopes, double latitude, double longitude, double radius) {
+        List<Integer> found = new ArrayList<>();
+        for(int i=0; i<envelopes.size(); i++) {
+            if(envelopes.get(i).distanceTo(latitude, longitude) <= radius) {
+                found.add(i);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Compares random queries of tree of given envelopes with linear scan.
+     */
+    private void assertAsScan(String message, List<Envelope> envelopes, int queries) {
+        EnvelopeTree<Integer> tree = new EnvelopeTree<>(positions(envelopes.size()), envelopes);
+        for(int query=0; query<queries; query++) {
+            double latitude = 54D - 0.01D + random.nextDouble() * 0.12D;
+            double longitude = 25D - 0.01D + random.nextDouble() * 0.12D;
+            double size = random.nextDouble() * random.nextDouble() * 0.05D;
+            Envelope area = new Envelope(latitude, longitude, latitude + size, longitude + size);
+            assertEquals(message + ", find " + query, scan(envelopes, area), tree.find(area));
+            double radius = random.nextDouble() * random.nextDouble() * 3000D;
+            assertEquals(message + ", find near " + query, scanNear(envelopes, latitude, longitude, radius), tree.findNear(latitude, longitude, radius));
+        }
+    }
+
+    public void testRandomEnvelopes() {
+        int[] sizes = {1, 2, 15, 255, 256, 257, 3000};
+        for(int size : sizes) {
+            assertAsScan(size + " envelopes", randomEnvelopes(size, 0.1D, 0.005D), 300);
+        }
+    }
+
+    public void testLargeEnvelopes() {
+        assertAsScan("large envelopes", randomEnvelopes(2000, 0.1D, 0.05D), 300);
+    }
+
+    public void testEmptyTree() {
+        EnvelopeTree<Integer> tree = new EnvelopeTree<>(new ArrayList<Integer>(), new ArrayList<Envelope>());
+        assertEquals("find", Collections.<Integer>emptyList(), tree.find(new Envelope(-90D, -180D, 90D, 180D)));
+        assertEquals("find near", Collections.<Integer>emptyList(), tree.findNear(54D, 25D, 1e6D));
+    }
+
+    public void testNodeCapacity() {
+        assertAsScan("one full node", randomEnvelopes(EnvelopeTree.NODE_CAPACITY, 0.1D, 0.005D), 300);
+        assertAsScan("one node more", randomEnvelopes(EnvelopeTree.NODE_CAPACITY + 1, 0.1D, 0.005D), 300);
+        List<Envelope> envelopes = randomEnvelopes(EnvelopeTree.NODE_CAPACITY + 1, 0.1D, 0.005D);
+        EnvelopeTree<Integer> tree = new EnvelopeTree<>(positions(envelopes.size()), envelopes);
+        assertEquals("all", positions(envelopes.size()), tree.find(new Envelope(53D, 24D, 55D, 26D)));
+    }
+
+    public void testTouchingAndEqualEnvelopes() {
+        List<Envelope> envelopes = new ArrayList<>();
+        for(int i=0; i<40; i++) {
+            envelopes.add(new Envelope(54D, 25D, 54.001D, 25.001D));       // The same envelope many times.
+            envelopes.add(new Envelope(54.001D, 25.001D, 54.002D, 25.002D));
+        }
+        EnvelopeTree<Integer> tree = new EnvelopeTree<>(positions(envelopes.size()), envelopes);
+        Envelope corner = new Envelope(54.001D, 25.001D, 54.001D, 25.001D);
+        assertEquals("shared corner", positions(envelopes.size()), tree.find(corner));
+        Envelope edge = new Envelope(54.002D, 25.0015D, 54.003D, 25.0015D);
+        assertEquals("touching edge", scan(envelopes, edge), tree.find(edge));
+        assertEquals("point on corner", positions(envelopes.size()), tree.findNear(54.001D, 25.001D, 0D));
+    }
+
+    public void testItemsAreCopied() {
+        List<Integer> items = positions(3);
+        List<Envelope> envelopes = randomEnvelopes(3, 0.1D, 0.005D);
+        EnvelopeTree<Integer> tree = new EnvelopeTree<>(items, envelopes);
+        items.clear();
+        assertEquals("items", positions(3), tree.find(new Envelope(53D, 24D, 55D, 26D)));
+    }
+}
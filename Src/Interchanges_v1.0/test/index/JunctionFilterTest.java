@@ -0,0 +1,170 @@
+package index;
+
+import application.Map;
+import application.Settings;
+import mapObject.Detection;
+import mapObject.Junction;
+import testing.TestCase;
+import testing.TestMaps;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compiled requirements must allow the same values as requirement strings allowed before they were compiled,
+ * see {@link #isMeetRequirement(int, String)}, and index must find the same junctions as scan of all junctions.
+ */
+public class JunctionFilterTest extends TestCase {
+
+    private static final String[] REQUIREMENTS = {null, "=0", "=1", "=3", ">0", ">2", "<1", "<3", "<0", "=-1", ">-1", "<-2147483648",
+            ">2147483647", "=2147483647", ">2147483646", "1-3", "0-0", "2-2", "3-1", "5-2", "0-2147483647", "2-", "-3", "-5", "1-2-3",
+            "a-b", "1-x", "abc", ">x", "=", "3", "13", "x3", ">3.5", " >1", ">1 ", ">2147483648", "2147483648-2147483649"};
+    private static final String[] UNPARSABLE = {"2-", "-3", "-5", "1-2-3", "a-b", "1-x", "abc", ">x", "=", "3", "13", "x3", ">3.5",
+            " >1", ">1 ", ">2147483648", "2147483648-2147483649", "", "=-1", ">-1", "<-2147483648"};      // Minus sign after operator is taken as range.
+    private static final int[] VALUES = {Integer.MIN_VALUE, -2, -1, 0, 1, 2, 3, 4, 5, 10, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+    /**
+     * Check of requirement, as Map did it for every junction before requirements were compiled.
+     * [</>/=][unsigned_integer] OR [unsigned_integer_from]-[unsigned_integer_to], requirement which can not be parsed allows all values.
+     */
+    private static boolean isMeetRequirement(int value, String requirement) {
+        if(requirement == null) {
+            return true;
+        }
+        if(requirement.indexOf('-') > 0) {
+            String[] range = requirement.split("-");
+            if(range.length != 2) {
+                return true;
+            }
+            int from;
+            int to;
+            try {
+                from = Integer.parseInt(range[0]);
+                to = Integer.parseInt(range[1]);
+            } catch (NumberFormatException e) {
+                return true;
+            }
+            return from <= value && value <= to;
+        }
+        int conditionValue;
+        try {
+            conditionValue = Integer.parseInt(requirement.substring(1));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+        switch (requirement.substring(0,1)) {
+            case "=":   return value == conditionValue;
+            case ">":   return value > conditionValue;
+            case "<":   return value < conditionValue;
+            default:    return true;
+        }
+    }
+
+    private static boolean isAllowed(JunctionFilter filter, int metric, int value) {
+        return !filter.isRestricted(metric) || (filter.getFrom(metric) <= value && value <= filter.getTo(metric));
+    }
+
+    private static boolean isMeetRequirements(Junction junction, String[] requirements) {
+        for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+            if(!isMeetRequirement(JunctionFilter.getValue(junction, metric), requirements[metric])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JunctionFilter compile(String[] requirements) {
+        return new JunctionFilter(requirements[0], requirements[1], requirements[2], requirements[3], requirements[4]);
+    }
+
+    public void testRequirementsAsBefore() {
+        for(String requirement : REQUIREMENTS) {
+            for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+                String[] requirements = new String[JunctionFilter.NUMBER_OF_METRICS];
+                requirements[metric] = requirement;
+                JunctionFilter filter = compile(requirements);
+                for(int value : VALUES) {
+                    assertEquals(String.format("\"%s\" of metric %d, value %d", requirement, metric, value),
+                            isMeetRequirement(value, requirement), isAllowed(filter, metric, value));
+                }
+            }
+        }
+    }
+
+    public void testUnparsableAllowsAll() {
+        for(String requirement : UNPARSABLE) {
+            JunctionFilter filter = new JunctionFilter(requirement, requirement, requirement, requirement, requirement);
+            for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+                assertTrue(String.format("\"%s\" of metric %d is not restricted", requirement, metric), !filter.isRestricted(metric));
+            }
+        }
+    }
+
+    public void testEmptyRanges() {
+        String[] empty = {"<0", ">2147483647", "3-1", "5-2"};
+        for(String requirement : empty) {
+            JunctionFilter filter = new JunctionFilter(null, requirement, null, null, null);
+            assertTrue("\"" + requirement + "\" is restricted", filter.isRestricted(JunctionFilter.SIDES));
+            assertTrue("\"" + requirement + "\" allows no count", Math.max(filter.getFrom(JunctionFilter.SIDES), 0L) > filter.getTo(JunctionFilter.SIDES));
+        }
+    }
+
+    public void testIndexAsScan() throws Exception {
+        List<Junction> junctions = detectJunctions();
+        assertTrue("junctions are detected", junctions.size() > 50);
+        JunctionIndex index = new JunctionIndex(junctions);
+        Random random = new Random(1);
+        for(int query=0; query<3000; query++) {
+            String[] requirements = new String[JunctionFilter.NUMBER_OF_METRICS];
+            for(int metric=0; metric<JunctionFilter.NUMBER_OF_METRICS; metric++) {
+                if(random.nextInt(3) == 0) {
+                    requirements[metric] = REQUIREMENTS[random.nextInt(REQUIREMENTS.length)];
+                }
+            }
+            JunctionFilter filter = compile(requirements);
+            List<Junction> scanned = new ArrayList<>();
+            List<Junction> before = new ArrayList<>();
+            for(Junction junction : junctions) {
+                if(filter.isMet(junction)) {
+                    scanned.add(junction);
+                }
+                if(isMeetRequirements(junction, requirements)) {
+                    before.add(junction);
+                }
+            }
+            String message = String.format("-x %s -s %s -l %s -c %s -i %s", requirements[0], requirements[1], requirements[2], requirements[3], requirements[4]);
+            assertEquals(message + ", scan", before, scanned);
+            assertEquals(message + ", index", scanned, index.find(filter));
+        }
+    }
+
+    public void testEmptyIndex() {
+        JunctionIndex index = new JunctionIndex(new ArrayList<Junction>());
+        assertEquals("all", 0, index.find(new JunctionFilter(null, null, null, null, null)).size());
+        assertEquals("restricted", 0, index.find(new JunctionFilter(">1", null, "0-3", null, null)).size());
+    }
+
+    /**
+     * @return Junctions of several detections of generated maps, see {@link TestMaps}.
+     */
+    private static List<Junction> detectJunctions() throws Exception {
+        List<Junction> junctions = new ArrayList<>();
+        File file = File.createTempFile("junctions", ".csv");
+        try {
+            for(long seed=1; seed<=3; seed++) {
+                TestMaps.write(file.getPath(), new Random(seed));
+                Settings settings = new Settings();
+                settings.setQuiet(true);
+                Map map = new Map(file.getPath(), true, settings);
+                for(Detection detection : map.findConnections(new int[] {2, 3, 6}, new double[] {100D, 900D})) {
+                    junctions.addAll(detection.getJunctions());
+                }
+            }
+        } finally {
+            file.delete();
+        }
+        return junctions;
+    }
+}
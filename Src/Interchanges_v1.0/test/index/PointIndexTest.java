@@ -0,0 +1,69 @@
+package index;
+
+import testing.TestCase;
+
+import java.util.Random;
+
+public class PointIndexTest extends TestCase {
+
+    private VertexStore vertices = new VertexStore();
+    private PointIndex index = new PointIndex(vertices);
+
+    public void testGrowthPastInitialCapacity() {
+        int numberOfPoints = 5000;      // Table of 1024 slots grows 4 times.
+        Random random = new Random(1);
+        double[] latitudes = new double[numberOfPoints];
+        double[] longitudes = new double[numberOfPoints];
+        for(int i=0; i<numberOfPoints; i++) {
+            latitudes[i] = Math.round((54D + random.nextDouble()) * 1e7) / 1e7;
+            longitudes[i] = Math.round((25D + random.nextDouble()) * 1e7) / 1e7;
+            assertEquals("new vertex", i, index.firstOrNew(latitudes[i], longitudes[i]));
+            if(Integer.bitCount(i) == 1) {          // Every point is found again after each resize.
+                for(int j=0; j<=i; j++) {
+                    assertEquals("vertex after " + (i + 1) + " points", j, index.firstOrNew(latitudes[j], longitudes[j]));
+                }
+            }
+        }
+        for(int i=numberOfPoints-1; i>=0; i--) {
+            assertEquals("repeated vertex", i, index.firstOrNew(latitudes[i], longitudes[i]));
+        }
+        assertEquals("vertices", numberOfPoints, vertices.size());
+        assertEquals("latitude", latitudes[4321], vertices.getLatitude(4321));
+        assertEquals("longitude", longitudes[4321], vertices.getLongitude(4321));
+        assertTrue("table is at most half full", index.getMemoryUsage() / 4 >= 2L * numberOfPoints);
+    }
+
+    public void testClusteredCoordinates() {
+        int numberOfPoints = 3000;      // Points of one line, close keys must not be mixed up.
+        for(int i=0; i<numberOfPoints; i++) {
+            assertEquals("new vertex", 2 * i, index.firstOrNew(54.6872, 25.2797 + i * 1e-7));
+            assertEquals("new vertex", 2 * i + 1, index.firstOrNew(Math.nextUp(54.6872), 25.2797 + i * 1e-7));
+        }
+        for(int i=0; i<numberOfPoints; i++) {
+            assertEquals("repeated vertex", 2 * i, index.firstOrNew(54.6872, 25.2797 + i * 1e-7));
+            assertEquals("repeated vertex", 2 * i + 1, index.firstOrNew(Math.nextUp(54.6872), 25.2797 + i * 1e-7));
+        }
+        assertEquals("vertices", 2 * numberOfPoints, vertices.size());
+    }
+
+    public void testNegativeZero() {
+        int vertex = index.firstOrNew(0D, 25D);
+        assertEquals("negative zero", vertex, index.firstOrNew(-0D, 25D));
+        assertEquals("vertices", 1, vertices.size());
+    }
+
+    public void testNaNIsNotShared() {
+        int vertex = index.firstOrNew(Double.NaN, 25D);
+        assertTrue("NaN vertex is new", vertex != index.firstOrNew(Double.NaN, 25D));
+        assertEquals("vertices", 2, vertices.size());
+    }
+
+    public void testVertexStoreLookup() {
+        VertexStore store = new VertexStore();
+        for(int i=0; i<2000; i++) {
+            assertEquals("new vertex", i, store.firstOrNew(i, -i));
+        }
+        assertEquals("repeated vertex", 1234, store.firstOrNew(1234, -1234));
+        assertEquals("vertices", 2000, store.size());
+    }
+}
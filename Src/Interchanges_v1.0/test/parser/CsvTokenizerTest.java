@@ -0,0 +1,79 @@
+package parser;
+
+import testing.TestCase;
+
+public class CsvTokenizerTest extends TestCase {
+
+    private static final String[] NAMES = {"first", "second", "third"};
+
+    private static String field(CsvTokenizer tokenizer, String line, int slot) {
+        return line.substring(tokenizer.getStart(slot), tokenizer.getEnd(slot));
+    }
+
+    public void testPlainFields() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {0, 2}, NAMES);
+        String line = "a,bb,ccc,d";
+        assertTrue("tokenized", tokenizer.tokenize(line));
+        assertEquals("first", "a", field(tokenizer, line, 0));
+        assertEquals("second", "ccc", field(tokenizer, line, 1));
+        assertEquals("raw end", 8, tokenizer.getRawEnd(1));
+        assertTrue("not quoted", !tokenizer.isQuoted(0));
+    }
+
+    public void testQuotedCommas() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {0, 2, 3}, NAMES);
+        String line = "\"MULTILINESTRING ((1 2,3 4),(5 6,7 8))\",\"\u0104\u017euol\u0173, gatv\u0117\",F,\"1,5\"";
+        assertTrue("tokenized", tokenizer.tokenize(line));
+        assertEquals("geometry", "MULTILINESTRING ((1 2,3 4),(5 6,7 8))", field(tokenizer, line, 0));
+        assertTrue("geometry is quoted", tokenizer.isQuoted(0));
+        assertEquals("raw end is after quote", line.indexOf("\",") + 1, tokenizer.getRawEnd(0));
+        assertEquals("field after quoted comma", "F", field(tokenizer, line, 1));
+        assertEquals("quoted number", "1,5", field(tokenizer, line, 2));
+        assertTrue("number is quoted", tokenizer.isQuoted(2));
+    }
+
+    public void testColumnsInAnyOrder() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {3, -1, 1}, NAMES);
+        String line = "a,b,c,d,e";
+        assertTrue("tokenized", tokenizer.tokenize(line));
+        assertEquals("first slot", "d", field(tokenizer, line, 0));
+        assertEquals("third slot", "b", field(tokenizer, line, 2));
+    }
+
+    public void testEmptyFields() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {1, 2}, NAMES);
+        String line = "a,,";
+        assertTrue("tokenized", tokenizer.tokenize(line));
+        assertEquals("empty field", tokenizer.getStart(0), tokenizer.getEnd(0));
+        assertEquals("empty last field", line.length(), tokenizer.getStart(1));
+        assertEquals("empty last field", line.length(), tokenizer.getEnd(1));
+    }
+
+    public void testRestOfLineIsNotScanned() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {1}, NAMES);
+        assertTrue("line with unclosed quote after projected columns", tokenizer.tokenize("a,b,\"c"));
+    }
+
+    public void testUnclosedQuote() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {0, 2}, NAMES);
+        assertTrue("malformed line", !tokenizer.tokenize("a,\"b,c"));
+        assertEquals("error", "Malformed line: quote opened in field 2 at position 3 is not closed.", tokenizer.getError());
+    }
+
+    public void testMissingField() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {0, 4}, NAMES);
+        assertTrue("malformed line", !tokenizer.tokenize("a,b,c"));
+        assertEquals("error", "Malformed line: field 5 (\"second\") is missing, line has 3 fields and ends at position 5.", tokenizer.getError());
+        assertTrue("next line", tokenizer.tokenize("a,b,c,d,e"));
+        assertTrue("error is cleared", tokenizer.getError() == null);
+    }
+
+    public void testIsEqual() {
+        CsvTokenizer tokenizer = new CsvTokenizer(new int[] {1}, NAMES);
+        String line = "x,\"motorway\",y";
+        assertTrue("tokenized", tokenizer.tokenize(line));
+        assertTrue("equal", tokenizer.isEqual(line, 0, "motorway"));
+        assertTrue("prefix", !tokenizer.isEqual(line, 0, "motor"));
+        assertTrue("longer", !tokenizer.isEqual(line, 0, "motorway_link"));
+    }
+}
@@ -0,0 +1,78 @@
+package parser;
+
+import testing.TestCase;
+
+import java.util.NoSuchElementException;
+
+public class RowParserTest extends TestCase {
+
+    private static final String HEADER = "WKT,osm_id,code,fclass,name,ref,oneway,maxspeed,layer,bridge,tunnel";
+
+    private RowParser parser = new RowParser(HEADER);
+
+    public void testQuotedCommaInName() {
+        CsvRow row = parser.parse("\"MULTILINESTRING ((24.995 54.0,24.996681 54.0))\",0,5111,motorway,\"\u0104\u017euol\u0173, gatv\u0117\",A0,B,0,1,F,F", 2);
+        assertTrue("not rejected", !row.isRejected());
+        assertArrayEquals("coordinates", new double[] {24.995, 54.0, 24.996681, 54.0}, row.getCoordinates());
+        assertEquals("way", 'B', row.getWay());
+        assertEquals("layer", 1, row.getLayer());
+    }
+
+    public void testMultiPartGeometry() {
+        CsvRow row = parser.parse("\"MULTILINESTRING ((1 2,3 4),(5 6,7 8,9 10))\",0,5111,primary,,,F,0,-1,T,F", 2);
+        assertEquals("parts", 2, row.getNumberOfParts());
+        assertEquals("second part start", 2, row.getPartStart(1));
+        assertEquals("second part end", 5, row.getPartEnd(1));
+        assertEquals("layer", -1, row.getLayer());
+    }
+
+    public void testFilteredClass() {
+        assertTrue("footway", parser.parse("\"LINESTRING (1 2,3 4)\",0,5141,footway,,,B,0,0,F,F", 2) == null);
+    }
+
+    public void testMalformedGeometry() {
+        CsvRow row = parser.parse("\"LINESTRING (1 2,3 x)\",0,5111,motorway,,,B,0,0,F,F", 7);
+        assertTrue("rejected", row.isRejected());
+        assertContains("message", "line 7", row.getMessage("map.csv"));
+        assertContains("message", "Invalid geometry at position 19", row.getMessage("map.csv"));
+    }
+
+    public void testMalformedLayer() {
+        CsvRow row = parser.parse("\"LINESTRING (1 2,3 4)\",0,5111,motorway,,,B,0,high,F,F", 3);
+        assertTrue("rejected", row.isRejected());
+        assertContains("message", "NumberFormatException", row.getMessage("map.csv"));
+    }
+
+    public void testUnclosedQuote() {
+        CsvRow row = parser.parse("\"LINESTRING (1 2,3 4)\",0,5111,motorway,\"Vilniaus g.,,B,0,0,F,F", 4);
+        assertTrue("rejected", row.isRejected());
+        assertContains("message", "quote opened in field 5", row.getMessage("map.csv"));
+    }
+
+    public void testMissingFields() {
+        CsvRow row = parser.parse("\"LINESTRING (1 2,3 4)\",0,5111,motorway,,,B", 5);
+        assertTrue("rejected", row.isRejected());
+        assertContains("message", "field 9 (\"layer\") is missing", row.getMessage("map.csv"));
+    }
+
+    public void testUnrecognizableDirection() {
+        CsvRow row = parser.parse("\"LINESTRING (1 2,3 4)\",0,5111,motorway,,,X,0,0,F,F", 6);
+        assertTrue("row is kept", !row.isRejected());
+        assertContains("message", "Traffic direction value \"X\" is unrecognizable.", row.getMessage("map.csv"));
+    }
+
+    public void testHeaderWithoutCoordinatesFirst() {
+        try {
+            new RowParser("osm_id,WKT,oneway,layer");
+            fail("Header is accepted");
+        } catch (NoSuchElementException e) {
+            assertContains("message", "must be first", e.getMessage());
+        }
+        try {
+            new RowParser("WKT,oneway");
+            fail("Header is accepted");
+        } catch (NoSuchElementException e) {
+            assertContains("message", "\"layer\"", e.getMessage());
+        }
+    }
+}
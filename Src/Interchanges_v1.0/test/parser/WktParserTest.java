@@ -0,0 +1,119 @@
+package parser;
+
+import testing.TestCase;
+
+public class WktParserTest extends TestCase {
+
+    private WktParser parser = new WktParser();
+
+    private void parse(String text) {
+        parser.parse(text, 0, text.length());
+    }
+
+    /**
+     * @return Message of exception thrown by parsing of given text.
+     */
+    private String parseInvalid(String text) {
+        try {
+            parse(text);
+        } catch (NumberFormatException e) {
+            return e.getMessage();
+        }
+        fail("Geometry is parsed: " + text);
+        return null;
+    }
+
+    public void testLineString() {
+        parse("LINESTRING (25.1 54.2, 25.3 54.4)");
+        assertArrayEquals("coordinates", new double[] {25.1, 54.2, 25.3, 54.4}, parser.getCoordinates());
+        assertEquals("points", 2, parser.getNumberOfPoints());
+        assertEquals("parts", 1, parser.getNumberOfParts());
+        assertTrue("single part has no ends", parser.getPartEnds() == null);
+    }
+
+    public void testMultiLineStringParts() {
+        parse("MULTILINESTRING ((1 2,3 4),(5 6,7 8,9 10))");
+        assertArrayEquals("coordinates", new double[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, parser.getCoordinates());
+        assertEquals("parts", 2, parser.getNumberOfParts());
+        assertArrayEquals("part ends", new int[] {2, 5}, parser.getPartEnds());
+    }
+
+    public void testSinglePartMultiLineString() {
+        parse("MULTILINESTRING ((24.995 54.0,24.996681 54.0))");
+        assertArrayEquals("coordinates", new double[] {24.995, 54.0, 24.996681, 54.0}, parser.getCoordinates());
+        assertTrue("single part has no ends", parser.getPartEnds() == null);
+    }
+
+    public void testKeywordCaseAndWhitespace() {
+        parse(" multilinestring\t( ( 1 2 ,\t3 4 ) ) ");
+        assertArrayEquals("coordinates", new double[] {1, 2, 3, 4}, parser.getCoordinates());
+    }
+
+    public void testZAndMValuesIgnored() {
+        parse("LINESTRING (1 2 3, 4 5 6)");
+        assertArrayEquals("Z", new double[] {1, 2, 4, 5}, parser.getCoordinates());
+        parse("LINESTRING (1 2 3 4, 5 6 7 8)");
+        assertArrayEquals("ZM", new double[] {1, 2, 5, 6}, parser.getCoordinates());
+    }
+
+    public void testNumbersAsParseDouble() {
+        String[] numbers = {"0", "-0.5", "+1.25", "24.9950001", "54.123456789012345678", "-180.0000000", "1e3", "2.5E-2", "12345678901234567890.5"};
+        for(String number : numbers) {
+            parse("LINESTRING (" + number + " 1)");
+            assertEquals(number, Double.parseDouble(number), parser.getCoordinates()[0]);
+        }
+    }
+
+    public void testRangeOfText() {
+        String text = "\"LINESTRING (1 2,3 4)\",5";
+        parser.parse(text, 1, text.indexOf('"', 1));
+        assertArrayEquals("coordinates", new double[] {1, 2, 3, 4}, parser.getCoordinates());
+    }
+
+    public void testBuffersGrowAndReset() {
+        StringBuilder text = new StringBuilder("MULTILINESTRING (");
+        for(int part=0; part<10; part++) {
+            text.append((part == 0) ? "(" : ",(");
+            for(int point=0; point<100; point++) {
+                text.append((point == 0) ? "" : ",").append(part).append(' ').append(point);
+            }
+            text.append(')');
+        }
+        parse(text.append(')').toString());
+        assertEquals("points", 1000, parser.getNumberOfPoints());
+        assertEquals("parts", 10, parser.getNumberOfParts());
+        assertEquals("last part end", 1000, parser.getPartEnds()[9]);
+        assertEquals("last latitude", 9D, parser.getCoordinates()[1998]);
+        parse("LINESTRING (7 8,9 10)");
+        assertArrayEquals("next geometry", new double[] {7, 8, 9, 10}, parser.getCoordinates());
+        assertTrue("next geometry has no ends", parser.getPartEnds() == null);
+    }
+
+    public void testUnknownGeometry() {
+        assertContains("point", "Invalid geometry at position 6: MULTILINESTRING or LINESTRING expected", parseInvalid("POINT (1 2)"));
+    }
+
+    public void testMalformedNumber() {
+        String message = parseInvalid("LINESTRING (1 2,3 x)");
+        assertContains("message", "Invalid geometry at position 19", message);
+        assertContains("message", "\"x\"", message);
+    }
+
+    public void testMissingCoordinate() {
+        assertContains("message", "Invalid geometry", parseInvalid("LINESTRING (1 2,3)"));
+    }
+
+    public void testUnclosedGeometry() {
+        assertContains("message", "Invalid geometry", parseInvalid("MULTILINESTRING ((1 2,3 4)"));
+        assertContains("message", "Invalid geometry", parseInvalid("LINESTRING (1 2,3 4"));
+    }
+
+    public void testTextAfterGeometry() {
+        assertContains("message", "Invalid geometry at position 22", parseInvalid("LINESTRING (1 2,3 4) x"));
+    }
+
+    public void testEmptyGeometry() {
+        parseInvalid("");
+        parseInvalid("LINESTRING ()");
+    }
+}
@@ -0,0 +1,33 @@
+package testing;
+
+import application.DetectionSweepTest;
+import engine.CrossingEngineTest;
+import index.EnvelopeTreeTest;
+import index.JunctionFilterTest;
+import index.PointIndexTest;
+import parser.CsvTokenizerTest;
+import parser.RowParserTest;
+import parser.WktParserTest;
+import writer.RowEncoderTest;
+
+/**
+ * Runs all tests of the application, exit code is 1 if any test failed.
+ * <p>
+ * Usage: java -cp [classes] testing.AllTests
+ */
+public class AllTests {
+
+    public static void main(String[] args) {
+        int failed = TestCase.run(
+                WktParserTest.class,
+                CsvTokenizerTest.class,
+                RowParserTest.class,
+                PointIndexTest.class,
+                EnvelopeTreeTest.class,
+                JunctionFilterTest.class,
+                CrossingEngineTest.class,
+                DetectionSweepTest.class,
+                RowEncoderTest.class);
+        System.exit((failed == 0) ? 0 : 1);
+    }
+}
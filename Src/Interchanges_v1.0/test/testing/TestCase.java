@@ -0,0 +1,112 @@
+package testing;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Base of tests. Every public method without parameters, whose name starts with "test", is a test.
+ * Each test runs on new object of its class, test fails if it throws any exception, see {@link #run(Class[])}.
+ * Tests are plain Java and do not need any library, see {@link AllTests}.
+ */
+public abstract class TestCase {
+
+    /**
+     * Runs tests of given classes in order of their names and prints result of every test.
+     * @return Number of failed tests.
+     */
+    public static int run(Class<?>... classes) {
+        int passed = 0;
+        int failed = 0;
+        for(Class<?> testClass : classes) {
+            for(Method method : getTests(testClass)) {
+                String name = testClass.getName() + "." + method.getName();
+                try {
+                    method.invoke(testClass.getDeclaredConstructor().newInstance());
+                    passed++;
+                } catch (InvocationTargetException e) {
+                    failed++;
+                    System.out.println(String.format("FAIL %s: %s", name, e.getCause()));
+                } catch (ReflectiveOperationException e) {
+                    failed++;
+                    System.out.println(String.format("FAIL %s: test can not be run. %s", name, e));
+                }
+            }
+        }
+        System.out.println(String.format("%d tests passed, %d failed.", passed, failed));
+        return failed;
+    }
+
+    private static List<Method> getTests(Class<?> testClass) {
+        List<Method> tests = new ArrayList<>();
+        for(Method method : testClass.getDeclaredMethods()) {
+            if(method.getName().startsWith("test") && method.getParameterTypes().length == 0 && Modifier.isPublic(method.getModifiers())) {
+                tests.add(method);
+            }
+        }
+        Collections.sort(tests, new Comparator<Method>() {
+            @Override
+            public int compare(Method a, Method b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        return tests;
+    }
+
+    protected static void fail(String message) {
+        throw new AssertionError(message);
+    }
+
+    protected static void assertTrue(String message, boolean condition) {
+        if(!condition) {
+            fail(message);
+        }
+    }
+
+    protected static void assertEquals(String message, Object expected, Object actual) {
+        if(expected == null ? actual != null : !expected.equals(actual)) {
+            fail(String.format("%s: expected <%s>, but was <%s>", message, expected, actual));
+        }
+    }
+
+    protected static void assertEquals(String message, long expected, long actual) {
+        if(expected != actual) {
+            fail(String.format("%s: expected <%d>, but was <%d>", message, expected, actual));
+        }
+    }
+
+    /**
+     * Numbers are equal only if they are the same double value, -0.0 is not equal to 0.0.
+     */
+    protected static void assertEquals(String message, double expected, double actual) {
+        if(Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+            fail(String.format("%s: expected <%s>, but was <%s>", message, expected, actual));
+        }
+    }
+
+    protected static void assertArrayEquals(String message, double[] expected, double[] actual) {
+        if(!Arrays.equals(expected, actual)) {
+            fail(String.format("%s: expected %s, but was %s", message, Arrays.toString(expected), Arrays.toString(actual)));
+        }
+    }
+
+    protected static void assertArrayEquals(String message, int[] expected, int[] actual) {
+        if(!Arrays.equals(expected, actual)) {
+            fail(String.format("%s: expected %s, but was %s", message, Arrays.toString(expected), Arrays.toString(actual)));
+        }
+    }
+
+    /**
+     * @param text Text which must contain given part.
+     */
+    protected static void assertContains(String message, String part, String text) {
+        if(text == null || !text.contains(part)) {
+            fail(String.format("%s: <%s> does not contain <%s>", message, text, part));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package testing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates source files of small maps with junctions: grid of roads on two layers and ramps between near vertices of the grid.
+ * The same random generator gives the same map.
+ */
+public class TestMaps {
+
+    private static final int GRID_SIZE = 4;
+    private static final double GRID_STEP = 0.02D;
+
+    /**
+     * Writes CSV file of roads: roads of grid lines parallel to latitude are in layer 1, other roads of grid are in layer 0,
+     * ramps connect random vertex with random vertex, which is closer than 0.012 degree. Roads are split into pieces of 2 to 9 segments.
+     */
+    public static void write(String fileName, Random random) throws IOException {
+        List<double[]> vertices = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("WKT,osm_id,code,fclass,name,ref,oneway,maxspeed,layer,bridge,tunnel\n");
+        for(int i=0; i<GRID_SIZE; i++) {
+            double latitude = 54D + i * GRID_STEP;
+            double longitude = 25D + i * GRID_STEP + 0.0037D;
+            writeLine(csv, vertices, random, 25D - 0.005D, latitude, 25D + GRID_SIZE * GRID_STEP, latitude, 1);
+            writeLine(csv, vertices, random, longitude, 54D - 0.005D, longitude, 54D + GRID_SIZE * GRID_STEP, 0);
+        }
+        int numberOfGridVertices = vertices.size();
+        for(int ramp=0; ramp<GRID_SIZE*GRID_SIZE*3; ramp++) {
+            double[] a = vertices.get(random.nextInt(numberOfGridVertices));
+            List<double[]> near = new ArrayList<>();
+            for(double[] vertex : vertices.subList(0, numberOfGridVertices)) {
+                double distance = Math.abs(a[0] - vertex[0]) + Math.abs(a[1] - vertex[1]);
+                if(distance > 0D && distance < 0.012D) {
+                    near.add(vertex);
+                }
+            }
+            if(!near.isEmpty()) {
+                double[] b = near.get(random.nextInt(near.size()));
+                double[] middle = {(a[0] + b[0]) / 2 + (random.nextDouble() - 0.5D) * 0.004D, (a[1] + b[1]) / 2 + (random.nextDouble() - 0.5D) * 0.004D};
+                writeRoad(csv, Arrays.asList(a, middle, b), random.nextBoolean() ? "F" : "B", random.nextInt(2));
+            }
+        }
+        Files.write(Paths.get(fileName), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeLine(StringBuilder csv, List<double[]> vertices, Random random, double startLongitude, double startLatitude, double endLongitude, double endLatitude, int layer) {
+        int numberOfSegments = GRID_SIZE * 12;
+        int first = vertices.size();
+        for(int i=0; i<=numberOfSegments; i++) {
+            vertices.add(new double[] {startLongitude + (endLongitude - startLongitude) * i / numberOfSegments, startLatitude + (endLatitude - startLatitude) * i / numberOfSegments});
+        }
+        for(int start=first; start<vertices.size()-1; ) {
+            int end = Math.min(vertices.size() - 1, start + 2 + random.nextInt(8));
+            writeRoad(csv, vertices.subList(start, end + 1), random.nextInt(4) == 0 ? "F" : "B", layer);
+            start = end;
+        }
+    }
+
+    private static void writeRoad(StringBuilder csv, List<double[]> points, String way, int layer) {
+        csv.append("\"MULTILINESTRING ((");
+        for(int i=0; i<points.size(); i++) {
+            csv.append((i == 0) ? "" : ",").append(String.format(Locale.ROOT, "%f %f", points.get(i)[0], points.get(i)[1]));
+        }
+        csv.append(String.format(Locale.ROOT, "))\",0,5111,motorway,\"name\",A1,%s,0,%d,F,F%n", way, layer));
+    }
+}
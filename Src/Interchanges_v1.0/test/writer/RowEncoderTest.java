@@ -0,0 +1,85 @@
+package writer;
+
+import testing.TestCase;
+
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Numbers must be written the same as String.format writes them, see {@link RowEncoder}.
+ */
+public class RowEncoderTest extends TestCase {
+
+    private static final double[] EDGE_VALUES = {0D, -0D, 1D, -1D, 0.5D, 1.5D, 2.5D, -2.5D, 0.125D, 1.005D, 2.675D, 0.0000005D, 0.0000015D,
+            -0.0000001D, -0.0000005D, 0.9999995D, 9.9999999995D, 54.6872035D, 25.2797005D, 999999.9999995D, 1e14D, 1e15D, 1e16D, 1e300D,
+            (double) Long.MAX_VALUE, Double.MIN_VALUE, -Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+    private static void assertFixed(double number, int decimals) {
+        String expected = String.format(Locale.ROOT, "%." + decimals + "f", number);
+        String actual = new RowEncoder().appendFixed(number, decimals).toString();
+        assertEquals(String.format("%s with %d decimals", Double.toString(number), decimals), expected, actual);
+    }
+
+    public void testEdgeValues() {
+        for(double number : EDGE_VALUES) {
+            for(int decimals=0; decimals<=9; decimals++) {
+                assertFixed(number, decimals);
+                assertFixed(Math.nextUp(number), decimals);
+                assertFixed(Math.nextAfter(number, Double.NEGATIVE_INFINITY), decimals);
+            }
+        }
+    }
+
+    public void testDecimalHalves() {
+        Random random = new Random(1);
+        for(int i=0; i<20000; i++) {
+            int decimals = random.nextInt(10);
+            double half = (random.nextInt(2000000000) + 0.5D) / Math.pow(10, decimals);      // Half of the last digit, not exact in binary.
+            assertFixed(half, decimals);
+            assertFixed(-half, decimals);
+            assertFixed(Math.nextUp(half), decimals);
+            assertFixed(Math.nextAfter(half, 0D), decimals);
+        }
+    }
+
+    public void testRandomNumbers() {
+        Random random = new Random(2);
+        for(int i=0; i<50000; i++) {
+            double number = (random.nextDouble() - 0.5D) * Math.pow(10, random.nextInt(20) - 5);
+            assertFixed(number, random.nextInt(10));
+        }
+    }
+
+    public void testCoordinates() {
+        Random random = new Random(3);
+        for(int i=0; i<20000; i++) {
+            double latitude = Math.round((random.nextDouble() * 180D - 90D) * 1e7) / 1e7;     // 7 decimals, as coordinates of OSM extracts are.
+            double longitude = random.nextDouble() * 360D - 180D;
+            assertEquals("coordinates", String.format(Locale.ROOT, "%f %f", latitude, longitude),
+                    new RowEncoder().appendCoordinates(latitude, longitude).toString());
+        }
+    }
+
+    public void testIntegers() {
+        long[] numbers = {0L, 1L, -1L, 9L, 10L, -10L, 123456789L, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1};
+        for(long number : numbers) {
+            assertEquals("integer", String.format("%d", number), new RowEncoder().append(number).toString());
+        }
+    }
+
+    public void testRowsAndFlush() throws Exception {
+        StringWriter writer = new StringWriter();
+        RowEncoder encoder = new RowEncoder(writer);
+        StringBuilder expected = new StringBuilder();
+        for(int i=0; i<5000; i++) {
+            encoder.append("road,").append(i).append(',').appendFixed(i / 7D, 3).endRow();
+            expected.append(String.format(Locale.ROOT, "road,%d,%.3f%n", i, i / 7D));
+            encoder.flushIfFull();
+        }
+        assertTrue("rows are moved to the writer", writer.getBuffer().length() > 0);
+        encoder.flush();
+        assertEquals("rows", expected.toString(), writer.toString());
+        assertEquals("buffer after flush", "", encoder.toString());
+    }
+}